@@ -0,0 +1,138 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.lang.model.element.TypeElement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jdk.javadoc.doclet.DocletEnvironment;
+
+/**
+ * Benchmarks the full {@link ClassPageBuilder} build of a synthetic
+ * type, from rendering to writing, for several type sizes. Rendering
+ * is measured both with comments parsed on the fly and with comments
+ * already held by the {@link DocComments} cache.
+ *
+ * @author wangzhi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassPageBenchmark {
+
+	/** Number of members of the synthetic type. **/
+	@Param({"10", "1000", "10000"})
+	private int members;
+
+	/** Temporary directory holding sources and output. **/
+	private Path directory;
+
+	/** Output page. **/
+	private Path output;
+
+	/** Environment of the synthetic type. **/
+	private DocletEnvironment environment;
+
+	/** Index of the synthetic type environment. **/
+	private ElementIndex index;
+
+	/** Synthetic type. **/
+	private TypeElement type;
+
+	/** Comments of the synthetic type, rendered once. **/
+	private DocComments comments;
+
+	/** Symbol table of the synthetic type environment. **/
+	private SymbolTable symbols;
+
+	/** Type hierarchy of the synthetic type environment. **/
+	private TypeHierarchy hierarchy;
+
+	/**
+	 * Generates the synthetic type and its environment.
+	 *
+	 * @throws IOException If any error occurs while writing sources.
+	 */
+	@Setup
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("javadocmark-class-page");
+		SyntheticSources.writeType(directory.resolve("src"), "Synthetic", members);
+		environment = DocletEnvironments.create(directory.resolve("src"), SyntheticSources.PACKAGE);
+		index = new ElementIndex(environment);
+		type = index.getType(SyntheticSources.PACKAGE + ".Synthetic");
+		output = directory.resolve("Synthetic.md");
+		symbols = new SymbolTable(index, environment.getElementUtils(), Collections.emptyList());
+		hierarchy = new TypeHierarchy(environment.getElementUtils(), environment.getTypeUtils());
+		comments = new DocComments(environment, symbols, hierarchy);
+		new ClassPageBuilder(type, environment, index, comments, symbols, hierarchy).render();
+	}
+
+	/**
+	 * Deletes generated files.
+	 *
+	 * @throws IOException If any error occurs while deleting files.
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		SyntheticSources.delete(directory);
+	}
+
+	/**
+	 * Renders the type page in memory, parsing every comment.
+	 *
+	 * @return Rendered page.
+	 * @throws IOException If any error occurs while rendering.
+	 */
+	@Benchmark
+	public String render() throws IOException {
+		final ClassPageBuilder builder = new ClassPageBuilder(type, environment, index, new DocComments(environment, symbols, hierarchy), symbols,
+			hierarchy);
+		builder.render();
+		return builder.build();
+	}
+
+	/**
+	 * Renders the type page in memory from cached comments.
+	 *
+	 * @return Rendered page.
+	 * @throws IOException If any error occurs while rendering.
+	 */
+	@Benchmark
+	public String renderCached() throws IOException {
+		final ClassPageBuilder builder = new ClassPageBuilder(type, environment, index, comments, symbols, hierarchy);
+		builder.render();
+		return builder.build();
+	}
+
+	/**
+	 * Renders and writes the type page.
+	 *
+	 * @return Written page.
+	 * @throws IOException If any error occurs while rendering or writing.
+	 */
+	@Benchmark
+	public Path build() throws IOException {
+		new ClassPageBuilder(type, environment, index, new DocComments(environment, symbols, hierarchy), symbols, hierarchy).build(output);
+		return output;
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.lang.model.SourceVersion;
+import javax.tools.DocumentationTool;
+import javax.tools.ToolProvider;
+
+import jdk.javadoc.doclet.Doclet;
+import jdk.javadoc.doclet.DocletEnvironment;
+import jdk.javadoc.doclet.Reporter;
+
+/**
+ * Creates doclet environments of source roots by running the
+ * javadoc tool in process with a doclet that only captures its
+ * environment, so that page builders can be benchmarked outside
+ * of a javadoc run.
+ *
+ * @author wangzhi
+ */
+public final class DocletEnvironments {
+
+	/** Environment captured by the last run of {@link CapturingDoclet}. **/
+	private static DocletEnvironment captured;
+
+	/**
+	 * Private constructor for avoiding instantiation.
+	 */
+	private DocletEnvironments() {
+		// Do nothing.
+	}
+
+	/**
+	 * Creates the doclet environment of every package of the given source root.
+	 *
+	 * @param sourceRoot Source root to document.
+	 * @param packageName Parent package of the documented packages.
+	 * @return Created environment.
+	 */
+	public static synchronized DocletEnvironment create(final Path sourceRoot, final String packageName) {
+		captured = null;
+		run(CapturingDoclet.class, List.of("-sourcepath", sourceRoot.toString(), "-subpackages", packageName));
+		if (captured == null) {
+			throw new IllegalStateException("Unable to create doclet environment of " + sourceRoot);
+		}
+		return captured;
+	}
+
+	/**
+	 * Runs the javadoc tool in process with the given doclet and options,
+	 * discarding the tool output.
+	 *
+	 * @param doclet Doclet class to run.
+	 * @param options Javadoc options.
+	 */
+	public static void run(final Class<?> doclet, final List<String> options) {
+		final DocumentationTool tool = ToolProvider.getSystemDocumentationTool();
+		final PrintWriter discard = new PrintWriter(OutputStream.nullOutputStream());
+		final Boolean success = tool.getTask(discard, null, null, doclet, options, null).call();
+		if (!Boolean.TRUE.equals(success)) {
+			throw new IllegalStateException("javadoc failed with options " + options);
+		}
+	}
+
+	/**
+	 * Runs JavadocMark over every package of the given source root.
+	 *
+	 * @param sourceRoot Source root to document.
+	 * @param packageName Parent package of the documented packages.
+	 * @param output Output directory.
+	 * @param options Additional JavadocMark options.
+	 * @throws IOException If any error occurs while cleaning the output directory.
+	 */
+	public static void generate(final Path sourceRoot, final String packageName, final Path output, final String ... options) throws IOException {
+		SyntheticSources.delete(output);
+		final List<String> arguments = new ArrayList<>(List.of(
+			"-sourcepath", sourceRoot.toString(),
+			"-subpackages", packageName,
+			"-d", output.toString()));
+		arguments.addAll(List.of(options));
+		run(JavadocMark.class, arguments);
+	}
+
+	/**
+	 * Doclet that only captures its environment.
+	 */
+	public static final class CapturingDoclet implements Doclet {
+
+		@Override
+		public void init(final Locale locale, final Reporter reporter) {
+			// Do nothing.
+		}
+
+		@Override
+		public String getName() {
+			return "CapturingDoclet";
+		}
+
+		@Override
+		public Set<? extends Option> getSupportedOptions() {
+			return Set.of();
+		}
+
+		@Override
+		public SourceVersion getSupportedSourceVersion() {
+			return SourceVersion.latest();
+		}
+
+		@Override
+		public boolean run(final DocletEnvironment environment) {
+			captured = environment;
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import javax.lang.model.element.TypeElement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jdk.javadoc.doclet.DocletEnvironment;
+
+/**
+ * Benchmarks the element index pass and the nested type
+ * name resolution over a synthetic corpus.
+ *
+ * @author wangzhi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ElementIndexBenchmark {
+
+	/** Number of packages of the corpus. **/
+	@Param({"20"})
+	private int packages;
+
+	/** Number of classes per package. **/
+	@Param({"50"})
+	private int classes;
+
+	/** Temporary directory holding sources. **/
+	private Path directory;
+
+	/** Environment of the corpus. **/
+	private DocletEnvironment environment;
+
+	/** Index of the corpus, used for name resolution. **/
+	private ElementIndex index;
+
+	/**
+	 * Generates the corpus and its environment.
+	 *
+	 * @throws IOException If any error occurs while writing sources.
+	 */
+	@Setup
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("javadocmark-index");
+		SyntheticSources.writeCorpus(directory, packages, classes, 4);
+		environment = DocletEnvironments.create(directory, SyntheticSources.PACKAGE);
+		index = new ElementIndex(environment);
+	}
+
+	/**
+	 * Deletes generated files.
+	 *
+	 * @throws IOException If any error occurs while deleting files.
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		SyntheticSources.delete(directory);
+	}
+
+	/**
+	 * Builds the index of the corpus.
+	 *
+	 * @return Built index.
+	 */
+	@Benchmark
+	public ElementIndex index() {
+		return new ElementIndex(environment);
+	}
+
+	/**
+	 * Resolves the file name of every type, nested ones included.
+	 *
+	 * @param blackhole Consumer of resolved names.
+	 */
+	@Benchmark
+	public void nestedNames(final Blackhole blackhole) {
+		for (final TypeElement type : index.getTypes()) {
+			blackhole.consume(index.getFileName(type));
+		}
+	}
+
+}
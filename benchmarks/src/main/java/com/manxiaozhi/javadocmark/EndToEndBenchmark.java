@@ -0,0 +1,90 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks a complete javadoc run with JavadocMark over a generated
+ * corpus of a few thousand classes, including source parsing. It is
+ * meant to track the overall throughput from one release to another.
+ *
+ * @author wangzhi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+
+	/** Number of packages of the corpus. **/
+	@Param({"40"})
+	private int packages;
+
+	/** Number of classes per package. **/
+	@Param({"50"})
+	private int classes;
+
+	/** Number of members per class. **/
+	@Param({"20"})
+	private int members;
+
+	/** Additional JavadocMark options, separated by spaces. **/
+	@Param({"", "-lowmemory"})
+	private String options;
+
+	/** Temporary directory holding sources and output. **/
+	private Path directory;
+
+	/**
+	 * Generates the corpus.
+	 *
+	 * @throws IOException If any error occurs while writing sources.
+	 */
+	@Setup
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("javadocmark-end-to-end");
+		SyntheticSources.writeCorpus(directory.resolve("src"), packages, classes, members);
+	}
+
+	/**
+	 * Deletes generated files.
+	 *
+	 * @throws IOException If any error occurs while deleting files.
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		SyntheticSources.delete(directory);
+	}
+
+	/**
+	 * Runs javadoc with JavadocMark over the corpus.
+	 *
+	 * @return Output directory.
+	 * @throws IOException If any error occurs while cleaning the output directory.
+	 */
+	@Benchmark
+	public Path generate() throws IOException {
+		final Path output = directory.resolve("out");
+		final String [] arguments = options.isBlank() ? new String[0] : options.trim().split("\\s+");
+		DocletEnvironments.generate(directory.resolve("src"), SyntheticSources.PACKAGE, output, arguments);
+		return output;
+	}
+
+}
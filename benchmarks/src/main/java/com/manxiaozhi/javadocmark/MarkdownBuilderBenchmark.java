@@ -0,0 +1,90 @@
+package com.manxiaozhi.javadocmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the {@link MarkdownDocumentBuilder} primitives.
+ *
+ * @author wangzhi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkdownBuilderBenchmark {
+
+	/** Number of primitives appended per document. **/
+	private static final int OPERATIONS = 100;
+
+	/** Comment used as text input. **/
+	private String comment;
+
+	/** Cells used as table row input. **/
+	private String [] cells;
+
+	/**
+	 * Prepares inputs.
+	 */
+	@Setup
+	public void setup() {
+		comment = SyntheticSources.comment("html", 42);
+		cells = new String[] {"[Type42](Type42.md)", "class", "Returns the `value42` of this **instance**."};
+	}
+
+	/**
+	 * Appends comments as text.
+	 *
+	 * @return Built document.
+	 */
+	@Benchmark
+	public String text() {
+		final MarkdownDocumentBuilder builder = new MarkdownDocumentBuilder();
+		for (int i = 0; i < OPERATIONS; i++) {
+			builder.text(comment);
+			builder.newLine();
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Appends table rows.
+	 *
+	 * @return Built document.
+	 */
+	@Benchmark
+	public String tableRow() {
+		final MarkdownDocumentBuilder builder = new MarkdownDocumentBuilder();
+		for (int i = 0; i < OPERATIONS; i++) {
+			builder.tableRow(cells);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Appends headers.
+	 *
+	 * @return Built document.
+	 */
+	@Benchmark
+	public String header() {
+		final MarkdownDocumentBuilder builder = new MarkdownDocumentBuilder();
+		for (int i = 0; i < OPERATIONS; i++) {
+			builder.header(3, "method42");
+		}
+		return builder.build();
+	}
+
+}
@@ -0,0 +1,144 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Generator of synthetic documentation and source corpora
+ * used as benchmark input.
+ *
+ * @author wangzhi
+ */
+public final class SyntheticSources {
+
+	/** Package of generated sources. **/
+	public static final String PACKAGE = "org.javadocmark.synthetic";
+
+	/**
+	 * Private constructor for avoiding instantiation.
+	 */
+	private SyntheticSources() {
+		// Do nothing.
+	}
+
+	/**
+	 * Generates a member comment of the given kind.
+	 *
+	 * @param kind Kind of comment, either <code>plain</code>, <code>paragraphs</code> or <code>html</code>.
+	 * @param index Index of the member, used to vary the comment.
+	 * @return Generated comment.
+	 */
+	public static String comment(final String kind, final int index) {
+		switch (kind) {
+			case "plain":
+				return " Returns the value number " + index + " of this instance.\n"
+					+ " The returned value is never null and may be cached by callers.\n";
+			case "paragraphs":
+				return " Returns the value number " + index + " of this instance.\n"
+					+ " <p>The returned value is never null.</p>\n"
+					+ " <p>It may be cached by callers.</p>\n";
+			case "html":
+				return " Returns the <code>value" + index + "</code> of this <b>instance</b>.\n"
+					+ " <p>The returned value is <em>never</em> null, see <code>List&lt;T&gt;</code>.</p>\n"
+					+ " <p>It may be cached by <i>callers</i>.</p>\n";
+			default:
+				throw new IllegalArgumentException("Unknown comment kind: " + kind);
+		}
+	}
+
+	/**
+	 * Generates the source of a documented class with the given number
+	 * of members, half fields and half methods, and two levels of
+	 * nested classes.
+	 *
+	 * @param packageName Package of the class.
+	 * @param className Simple name of the class.
+	 * @param members Number of members of the class.
+	 * @return Generated source.
+	 */
+	public static String type(final String packageName, final String className, final int members) {
+		final StringBuilder source = new StringBuilder();
+		source.append("package ").append(packageName).append(";\n\n");
+		source.append("/**\n * Synthetic class ").append(className).append(".\n")
+			.append(" * <p>It is generated for benchmarking purpose.</p>\n */\n");
+		source.append("public class ").append(className).append(" {\n\n");
+		for (int i = 0; i < members; i++) {
+			source.append("\t/**\n\t * ").append(comment("html", i).replace("\n ", "\n\t * ").trim()).append('\n');
+			if (i % 2 == 0) {
+				source.append("\t */\n\tpublic int field").append(i).append(";\n\n");
+			} else {
+				source.append("\t * @param value the value\n\t * @param count the count\n")
+					.append("\t * @return the <b>result</b>\n\t * @throws java.io.IOException on failure\n\t */\n")
+					.append("\tpublic java.util.List<String> method").append(i)
+					.append("(final String value, final int count) throws java.io.IOException {\n")
+					.append("\t\treturn null;\n\t}\n\n");
+			}
+		}
+		source.append("\t/** Nested class. */\n\tpublic static class Inner {\n")
+			.append("\t\t/** Deeply nested class. */\n\t\tpublic static class Deeper {\n\t\t}\n\t}\n\n");
+		source.append("}\n");
+		return source.toString();
+	}
+
+	/**
+	 * Writes a single class with the given number of members.
+	 *
+	 * @param root Source root to write the class into.
+	 * @param className Simple name of the class.
+	 * @param members Number of members of the class.
+	 * @throws IOException If any error occurs while writing sources.
+	 */
+	public static void writeType(final Path root, final String className, final int members) throws IOException {
+		final Path directory = root.resolve(PACKAGE.replace('.', '/'));
+		Files.createDirectories(directory);
+		Files.write(directory.resolve(className + ".java"),
+			type(PACKAGE, className, members).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes a corpus of the given number of packages, each one
+	 * containing the given number of classes.
+	 *
+	 * @param root Source root to write the corpus into.
+	 * @param packages Number of packages.
+	 * @param classes Number of classes per package.
+	 * @param members Number of members per class.
+	 * @throws IOException If any error occurs while writing sources.
+	 */
+	public static void writeCorpus(final Path root, final int packages, final int classes, final int members) throws IOException {
+		for (int p = 0; p < packages; p++) {
+			final String packageName = PACKAGE + ".p" + p;
+			final Path directory = root.resolve(packageName.replace('.', '/'));
+			Files.createDirectories(directory);
+			Files.write(directory.resolve("package-info.java"),
+				("/**\n * Synthetic package " + p + ".\n */\npackage " + packageName + ";\n").getBytes(StandardCharsets.UTF_8));
+			for (int c = 0; c < classes; c++) {
+				final String className = "Type" + c;
+				Files.write(directory.resolve(className + ".java"),
+					type(packageName, className, members).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	/**
+	 * Recursively deletes the given directory.
+	 *
+	 * @param directory Directory to delete.
+	 * @throws IOException If any error occurs while deleting.
+	 */
+	public static void delete(final Path directory) throws IOException {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.manxiaozhi.javadocmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the HTML filtering of {@link MarkdownDocumentBuilder#text(String)}
+ * on the comments of a comment heavy type, against the former implementation
+ * based on two <code>String.replaceAll</code> calls per text.
+ *
+ * Run with <code>-prof gc</code> to compare allocation rates.
+ *
+ * @author wangzhi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextFilterBenchmark {
+
+	/** Kind of comments of the benchmarked type. **/
+	@Param({"plain", "paragraphs", "html"})
+	private String comments;
+
+	/** Number of commented members of the benchmarked type. **/
+	@Param({"1000"})
+	private int members;
+
+	/** Comments of the benchmarked type members. **/
+	private String [] texts;
+
+	/**
+	 * Generates member comments.
+	 */
+	@Setup
+	public void setup() {
+		texts = new String[members];
+		for (int i = 0; i < members; i++) {
+			texts[i] = SyntheticSources.comment(comments, i);
+		}
+	}
+
+	/**
+	 * Appends every comment through the single pass filter.
+	 *
+	 * @return Length of the built document.
+	 */
+	@Benchmark
+	public int singlePassFilter() {
+		final MarkdownDocumentBuilder builder = new MarkdownDocumentBuilder();
+		for (final String text : texts) {
+			builder.text(text);
+			builder.newLine();
+		}
+		return builder.build().length();
+	}
+
+	/**
+	 * Appends every comment through the former regular expression filter.
+	 *
+	 * @return Length of the built document.
+	 */
+	@Benchmark
+	public int regexFilter() {
+		final StringBuilder builder = new StringBuilder();
+		for (final String text : texts) {
+			builder.append(text.replaceAll("<p>", "").replaceAll("</p>", ""));
+			builder.append('\n');
+		}
+		return builder.toString().length();
+	}
+
+}
@@ -0,0 +1,208 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+
+/**
+ * Writer of the NDJSON API index, one JSON record per line for each
+ * documented package, type, field, constructor and method. Records
+ * carry the kind, name, declaring type, signature, modifiers, first
+ * sentence and page path of their element, so that retrieval tools
+ * can load the API without parsing Markdown. Records are written as
+ * types are generated, so memory use does not depend on the number
+ * of types. The index is written to a temporary file renamed once
+ * complete. Instances are used from the doclet thread only.
+ *
+ * @author wangzhi
+ */
+public final class ApiIndexWriter {
+
+	/** Name of the index file within the output directory. **/
+	public static final String INDEX_FILE = "api-index.ndjson";
+
+	/** Output directory the index is written to. **/
+	private final Path outputDirectory;
+
+	/** Output stage the index is committed through. **/
+	private final PageWriter pageWriter;
+
+	/** Renderer of type and member signatures. **/
+	private final Signatures signatures;
+
+	/** Rendered documentation comments. **/
+	private final DocComments comments;
+
+	/** Index of the documented elements. **/
+	private final ElementIndex index;
+
+	/** Layout of the split type pages members are documented in. **/
+	private final PageSplitter splitter;
+
+	/** Writer of the temporary index file. **/
+	private final BufferedWriter writer;
+
+	/** Number of written records. **/
+	private long records;
+
+	/** Indicates if the index was committed. **/
+	private boolean finished;
+
+	/**
+	 * Default constructor, opening the temporary index file.
+	 *
+	 * @param outputDirectory Output directory the index is written to.
+	 * @param pageWriter Output stage the index is committed through.
+	 * @param signatures Renderer of type and member signatures.
+	 * @param comments Rendered documentation comments.
+	 * @param index Index of the documented elements.
+	 * @param splitter Layout of the split type pages members are documented in.
+	 * @throws IOException If any error occurs while opening the index.
+	 */
+	public ApiIndexWriter(final Path outputDirectory, final PageWriter pageWriter, final Signatures signatures,
+			final DocComments comments, final ElementIndex index, final PageSplitter splitter) throws IOException {
+		this.outputDirectory = outputDirectory;
+		this.pageWriter = pageWriter;
+		this.signatures = signatures;
+		this.comments = comments;
+		this.index = index;
+		this.splitter = splitter;
+		this.writer = Files.newBufferedWriter(PageWriter.getTemporaryFile(outputDirectory.resolve(INDEX_FILE)), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the record of the given package.
+	 *
+	 * @param packageElement Package to write record of.
+	 * @param page Path of the package page.
+	 * @throws IOException If any error occurs while writing the index.
+	 */
+	public void writePackage(final PackageElement packageElement, final Path page) throws IOException {
+		write(packageElement, packageElement.getQualifiedName().toString(), null, "package " + packageElement.getQualifiedName(), page);
+	}
+
+	/**
+	 * Writes the records of the given type and of its documented
+	 * fields, constructors and methods, in declaration order.
+	 *
+	 * @param typeElement Type to write records of.
+	 * @param page Path of the type page.
+	 * @throws IOException If any error occurs while writing the index.
+	 */
+	public void writeType(final TypeElement typeElement, final Path page) throws IOException {
+		final String typeName = typeElement.getQualifiedName().toString();
+		write(typeElement, typeName, null, signatures.getTypeSignature(typeElement), page);
+		for (final Element element : index.getMembers(typeElement)) {
+			switch (element.getKind()) {
+				case FIELD:
+				case ENUM_CONSTANT:
+					write(element, element.getSimpleName().toString(), typeName,
+						signatures.getFieldSignature((VariableElement) element), splitter.getPage(page, element));
+					break;
+				case CONSTRUCTOR:
+				case METHOD:
+					write(element, element.getSimpleName().toString(), typeName,
+						signatures.getMethodSignature((ExecutableElement) element), splitter.getPage(page, element));
+					break;
+				default:
+					// Nested types have records of their own.
+			}
+		}
+	}
+
+	/**
+	 * Commits the index.
+	 *
+	 * @throws IOException If any error occurs while committing the index.
+	 */
+	public void finish() throws IOException {
+		writer.close();
+		final Path indexFile = outputDirectory.resolve(INDEX_FILE);
+		pageWriter.commit(PageWriter.getTemporaryFile(indexFile), indexFile);
+		finished = true;
+		JavadocMarkLogger.info("JavadocMark", "API index written with " + records + " records");
+	}
+
+	/**
+	 * Releases the writer and deletes the temporary index if it was
+	 * not committed.
+	 *
+	 * @throws IOException If any error occurs while deleting the temporary index.
+	 */
+	public void close() throws IOException {
+		if (!finished) {
+			writer.close();
+			Files.deleteIfExists(PageWriter.getTemporaryFile(outputDirectory.resolve(INDEX_FILE)));
+		}
+	}
+
+	/**
+	 * Writes the record of the given element.
+	 *
+	 * @param element Element to write record of.
+	 * @param name Name of the element, qualified for packages and types.
+	 * @param owner Qualified name of the declaring type, null for packages and types.
+	 * @param signature Signature of the element.
+	 * @param page Path of the page documenting the element.
+	 * @throws IOException If any error occurs while writing the index.
+	 */
+	private void write(final Element element, final String name, final String owner, final String signature, final Path page)
+			throws IOException {
+		writer.write("{\"kind\":\"");
+		writer.write(element.getKind().name().toLowerCase(Locale.ROOT));
+		writer.write("\",\"name\":");
+		string(name);
+		if (owner != null) {
+			writer.write(",\"owner\":");
+			string(owner);
+		}
+		writer.write(",\"signature\":");
+		string(signature);
+		writer.write(",\"modifiers\":[");
+		final Set<Modifier> modifiers = element.getModifiers();
+		boolean first = true;
+		for (final Modifier modifier : modifiers) {
+			if (!first) {
+				writer.write(',');
+			}
+			writer.write('"');
+			writer.write(modifier.toString());
+			writer.write('"');
+			first = false;
+		}
+		final DocComments.Comment comment = comments.get(element);
+		writer.write("],\"summary\":");
+		string(MarkdownDocumentBuilder.filter(comment.getFirstSentence()));
+		if (comment.getDeprecated() != null) {
+			writer.write(",\"deprecated\":true");
+		}
+		writer.write(",\"page\":");
+		string(outputDirectory.relativize(page).toString().replace('\\', '/'));
+		writer.write("}\n");
+		records++;
+	}
+
+	/**
+	 * Writes the given value as a JSON string.
+	 *
+	 * @param value Value to write.
+	 * @throws IOException If any error occurs while writing the index.
+	 */
+	private void string(final String value) throws IOException {
+		writer.write('"');
+		writer.write(GenerationStats.escape(value));
+		writer.write('"');
+	}
+
+}
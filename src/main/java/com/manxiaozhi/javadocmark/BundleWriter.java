@@ -0,0 +1,223 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writer of the bundle output, which concatenates every generated
+ * page, in generation order, into size capped bundle files so that
+ * the whole documentation can be loaded without walking the output
+ * tree. A tab separated index gives for each page its bundle file,
+ * byte offset and byte length, so that a single page can be read with
+ * one seek. Pages are separated by a blank line, which is not part of
+ * the indexed range.
+ * <p>
+ * Bundles and index are written to temporary files and renamed once
+ * complete. Bundle files left by a previous run with more bundles are
+ * deleted. Instances are used from the doclet thread only.
+ *
+ * @author wangzhi
+ */
+public final class BundleWriter {
+
+	/** Prefix of bundle file names. **/
+	public static final String BUNDLE_PREFIX = "api-bundle-";
+
+	/** Name of the index file. **/
+	public static final String INDEX_FILE = "api-bundle-index.tsv";
+
+	/** Kind of package page entries. **/
+	public static final String PACKAGE = "package";
+
+	/** Kind of type page entries. **/
+	public static final String TYPE = "type";
+
+	/** Header line of the index, followed by the column names. **/
+	private static final String HEADER = "# javadocmark-bundle 1\nkind\tname\tpage\tbundle\toffset\tlength\n";
+
+	/** Separator written after each page. **/
+	private static final String PAGE_SEPARATOR = "\n";
+
+	/** Output directory bundles are written to. **/
+	private final Path outputDirectory;
+
+	/** Maximum size of a bundle file in bytes, exceeded only by single pages larger than it. **/
+	private final long maxSize;
+
+	/** Output stage temporary files are committed through. **/
+	private final PageWriter pageWriter;
+
+	/** Writer of the current bundle file. **/
+	private final Utf8ChannelWriter writer;
+
+	/** Writer of the temporary index file. **/
+	private final BufferedWriter index;
+
+	/** Number of bundle files opened so far. **/
+	private int bundles;
+
+	/** Number of bundled pages. **/
+	private long pages;
+
+	/** Current bundle file, null before the first page. **/
+	private Path bundle;
+
+	/** Indicates if the bundle output was committed. **/
+	private boolean finished;
+
+	/**
+	 * Default constructor, opening the temporary index file.
+	 *
+	 * @param outputDirectory Output directory bundles are written to.
+	 * @param maxSize Maximum size of a bundle file in bytes.
+	 * @param pageWriter Output stage temporary files are committed through.
+	 * @throws IOException If any error occurs while opening the index.
+	 */
+	public BundleWriter(final Path outputDirectory, final long maxSize, final PageWriter pageWriter) throws IOException {
+		this.outputDirectory = outputDirectory;
+		this.maxSize = maxSize;
+		this.pageWriter = pageWriter;
+		this.writer = new Utf8ChannelWriter();
+		this.index = Files.newBufferedWriter(PageWriter.getTemporaryFile(outputDirectory.resolve(INDEX_FILE)), StandardCharsets.UTF_8);
+		index.write(HEADER);
+	}
+
+	/**
+	 * Appends the rendered content of the given builder.
+	 *
+	 * @param kind Kind of the page, {@link #PACKAGE} or {@link #TYPE}.
+	 * @param name Qualified name of the documented element.
+	 * @param page Path of the page file.
+	 * @param builder Builder holding the rendered page.
+	 * @throws IOException If any error occurs while writing the bundle.
+	 */
+	public void append(final String kind, final String name, final Path page, final MarkdownDocumentBuilder builder)
+			throws IOException {
+		final CharSequence content = builder.getContent();
+		final long offset = prepare(Utf8ChannelWriter.encodedLength(content));
+		writer.write(content);
+		complete(kind, name, page, offset);
+	}
+
+	/**
+	 * Appends the content of an already written page file, used for
+	 * streamed pages and for pages skipped as up to date.
+	 *
+	 * @param kind Kind of the page, {@link #PACKAGE} or {@link #TYPE}.
+	 * @param name Qualified name of the documented element.
+	 * @param page Path of the page file.
+	 * @throws IOException If any error occurs while reading the page or writing the bundle.
+	 */
+	public void append(final String kind, final String name, final Path page) throws IOException {
+		final long offset = prepare(Files.size(page));
+		writer.append(page);
+		complete(kind, name, page, offset);
+	}
+
+	/**
+	 * Commits the bundles and the index, and deletes bundle files of
+	 * a previous run which were not rewritten.
+	 *
+	 * @throws IOException If any error occurs while writing the bundle.
+	 */
+	public void finish() throws IOException {
+		commitBundle();
+		index.close();
+		final Path indexFile = outputDirectory.resolve(INDEX_FILE);
+		pageWriter.commit(PageWriter.getTemporaryFile(indexFile), indexFile);
+		for (int i = bundles + 1; Files.deleteIfExists(getBundleFile(i)); i++) {
+			JavadocMarkLogger.debug("JavadocMark", "Removed stale bundle: " + getBundleFile(i));
+		}
+		finished = true;
+		JavadocMarkLogger.info("JavadocMark", "Bundled " + pages + " pages into " + bundles + " files");
+	}
+
+	/**
+	 * Releases the writers and deletes temporary files if the bundle
+	 * output was not committed.
+	 *
+	 * @throws IOException If any error occurs while deleting temporary files.
+	 */
+	public void close() throws IOException {
+		if (finished) {
+			return;
+		}
+		writer.close();
+		index.close();
+		if (bundle != null) {
+			Files.deleteIfExists(PageWriter.getTemporaryFile(bundle));
+		}
+		Files.deleteIfExists(PageWriter.getTemporaryFile(outputDirectory.resolve(INDEX_FILE)));
+	}
+
+	/**
+	 * Opens the next bundle file if the page of the given size does
+	 * not fit in the current one.
+	 *
+	 * @param length Size of the page in bytes.
+	 * @return Offset of the page in the current bundle.
+	 * @throws IOException If any error occurs while switching bundle.
+	 */
+	private long prepare(final long length) throws IOException {
+		if (bundle == null || writer.getPosition() > 0 && writer.getPosition() + length > maxSize) {
+			commitBundle();
+			bundles++;
+			bundle = getBundleFile(bundles);
+			writer.open(PageWriter.getTemporaryFile(bundle));
+		}
+		return writer.getPosition();
+	}
+
+	/**
+	 * Ends the page written since the given offset and indexes it.
+	 *
+	 * @param kind Kind of the page.
+	 * @param name Qualified name of the documented element.
+	 * @param page Path of the page file.
+	 * @param offset Offset of the page in the current bundle.
+	 * @throws IOException If any error occurs while writing the bundle or the index.
+	 */
+	private void complete(final String kind, final String name, final Path page, final long offset) throws IOException {
+		final long length = writer.getPosition() - offset;
+		writer.write(PAGE_SEPARATOR);
+		index.write(kind);
+		index.write('\t');
+		index.write(name);
+		index.write('\t');
+		index.write(outputDirectory.relativize(page).toString().replace('\\', '/'));
+		index.write('\t');
+		index.write(bundle.getFileName().toString());
+		index.write('\t');
+		index.write(Long.toString(offset));
+		index.write('\t');
+		index.write(Long.toString(length));
+		index.write('\n');
+		pages++;
+	}
+
+	/**
+	 * Closes and commits the current bundle file, if any.
+	 *
+	 * @throws IOException If any error occurs while committing the bundle.
+	 */
+	private void commitBundle() throws IOException {
+		if (bundle != null) {
+			writer.close();
+			pageWriter.commit(PageWriter.getTemporaryFile(bundle), bundle);
+		}
+	}
+
+	/**
+	 * Returns the path of the bundle file of the given number.
+	 *
+	 * @param number Bundle number, starting at 1.
+	 * @return Bundle file path.
+	 */
+	private Path getBundleFile(final int number) {
+		return outputDirectory.resolve(String.format("%s%03d%s", BUNDLE_PREFIX, number, SymbolTable.PAGE_EXTENSION));
+	}
+
+}
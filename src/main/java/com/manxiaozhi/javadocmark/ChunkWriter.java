@@ -0,0 +1,467 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Writer of the embedding chunk export: one NDJSON record per
+ * documented package, type, field, constructor and method, holding a
+ * stable identifier, a hash of its text and a text of bounded size,
+ * ready to be embedded into a vector store. Texts longer than the
+ * bound are split into parts, each starting with the heading line of
+ * its element. Identifiers follow the keys of the page manifest:
+ * {@code package:<name>}, {@code type:<binary name>} and, for members,
+ * the type identifier followed by {@code #<name>(<erased parameter types>)},
+ * parts after the first adding {@code ~<part number>}.
+ * <p>
+ * Next to the export, a delta file lists the identifiers of the chunks
+ * added, changed and removed since the export of the previous run, so
+ * that only those are embedded again. Records are written as types are
+ * generated and only the identifiers and hashes of the previous export
+ * are held in memory. Instances are used from the doclet thread only.
+ *
+ * @author wangzhi
+ */
+public final class ChunkWriter {
+
+	/** Name of the export file within the output directory. **/
+	public static final String CHUNKS_FILE = "chunks.ndjson";
+
+	/** Name of the delta file within the output directory. **/
+	public static final String DELTA_FILE = "chunks-delta.json";
+
+	/** Start of each record, followed by the escaped identifier. **/
+	private static final String ID_PREFIX = "{\"id\":\"";
+
+	/** Separator between the escaped identifier and the hash of a record. **/
+	private static final String HASH_PREFIX = "\",\"hash\":\"";
+
+	/** Separator between an identifier and the number of a part. **/
+	private static final char PART_SEPARATOR = '~';
+
+	/** Output directory the export is written to. **/
+	private final Path outputDirectory;
+
+	/** Output stage the export is committed through. **/
+	private final PageWriter pageWriter;
+
+	/** Renderer of type and member signatures. **/
+	private final Signatures signatures;
+
+	/** Rendered documentation comments. **/
+	private final DocComments comments;
+
+	/** Index of the documented elements. **/
+	private final ElementIndex index;
+
+	/** Layout of the split type pages members are documented in. **/
+	private final PageSplitter splitter;
+
+	/** Element utilities of the environment. **/
+	private final Elements elementUtils;
+
+	/** Type utilities of the environment. **/
+	private final Types typeUtils;
+
+	/** Maximum length of a chunk text, in characters. **/
+	private final int maxLength;
+
+	/** Indicates if member chunks link to the heading of their member. **/
+	private final boolean anchored;
+
+	/** Hashes of the chunks of the previous export not written yet, by escaped identifier. **/
+	private final Map<String, String> previous;
+
+	/** Escaped identifiers of the chunks added since the previous export. **/
+	private final List<String> added;
+
+	/** Escaped identifiers of the chunks changed since the previous export. **/
+	private final List<String> changed;
+
+	/** Writer of the temporary export file. **/
+	private final BufferedWriter writer;
+
+	/** Number of written chunks. **/
+	private long chunks;
+
+	/** Indicates if the export was committed. **/
+	private boolean finished;
+
+	/**
+	 * Default constructor, loading the previous export and opening the
+	 * temporary export file.
+	 *
+	 * @param outputDirectory Output directory the export is written to.
+	 * @param pageWriter Output stage the export is committed through.
+	 * @param signatures Renderer of type and member signatures.
+	 * @param comments Rendered documentation comments.
+	 * @param index Index of the documented elements.
+	 * @param splitter Layout of the split type pages members are documented in.
+	 * @param elementUtils Element utilities of the environment.
+	 * @param typeUtils Type utilities of the environment.
+	 * @param chunkTokens Maximum number of tokens of a chunk text.
+	 * @param anchored true if member chunks link to the heading of their member, false for the compact profile.
+	 * @throws IOException If any error occurs while reading the previous export or opening the export.
+	 */
+	public ChunkWriter(final Path outputDirectory, final PageWriter pageWriter, final Signatures signatures, final DocComments comments,
+			final ElementIndex index, final PageSplitter splitter, final Elements elementUtils, final Types typeUtils, final long chunkTokens,
+			final boolean anchored) throws IOException {
+		this.outputDirectory = outputDirectory;
+		this.pageWriter = pageWriter;
+		this.signatures = signatures;
+		this.comments = comments;
+		this.index = index;
+		this.splitter = splitter;
+		this.elementUtils = elementUtils;
+		this.typeUtils = typeUtils;
+		this.maxLength = (int) Math.min(Integer.MAX_VALUE, chunkTokens * TokenBudget.CHARACTERS_PER_TOKEN);
+		this.anchored = anchored;
+		this.previous = load(outputDirectory.resolve(CHUNKS_FILE));
+		this.added = new ArrayList<>();
+		this.changed = new ArrayList<>();
+		this.writer = Files.newBufferedWriter(PageWriter.getTemporaryFile(outputDirectory.resolve(CHUNKS_FILE)), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Loads the identifiers and hashes of the given previous export.
+	 *
+	 * @param file Previous export file.
+	 * @return Hashes by escaped identifier, empty if there is no previous export.
+	 * @throws IOException If any error occurs while reading the export.
+	 */
+	private static Map<String, String> load(final Path file) throws IOException {
+		final Map<String, String> hashes = new HashMap<>();
+		if (!Files.isRegularFile(file)) {
+			return hashes;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.startsWith(ID_PREFIX)) {
+					continue;
+				}
+				int end = ID_PREFIX.length();
+				while (end < line.length() && line.charAt(end) != '"') {
+					end += line.charAt(end) == '\\' ? 2 : 1;
+				}
+				final int hashStart = end + HASH_PREFIX.length();
+				final int hashEnd = line.indexOf('"', hashStart);
+				if (line.startsWith(HASH_PREFIX, end) && hashEnd > hashStart) {
+					hashes.put(line.substring(ID_PREFIX.length(), end), line.substring(hashStart, hashEnd));
+				}
+			}
+		}
+		return hashes;
+	}
+
+	/**
+	 * Writes the chunk of the given package: its comment and the summary
+	 * of each of its types.
+	 *
+	 * @param packageElement Package to write chunk of.
+	 * @param types Documented types of the package.
+	 * @param page Path of the package page.
+	 * @throws IOException If any error occurs while writing the export.
+	 */
+	public void writePackage(final PackageElement packageElement, final List<TypeElement> types, final Path page) throws IOException {
+		final String name = packageElement.getQualifiedName().toString();
+		final StringBuilder text = new StringBuilder();
+		appendComment(text, comments.get(packageElement));
+		if (!types.isEmpty()) {
+			text.append("\n\nTypes:");
+			for (final TypeElement type : types) {
+				text.append("\n* ").append(type.getQualifiedName());
+				final String summary = comments.get(type).getFirstSentence();
+				if (!summary.isEmpty()) {
+					text.append(" - ").append(summary);
+				}
+			}
+		}
+		write("package:" + name, packageElement, name, null, text, getPagePath(page));
+	}
+
+	/**
+	 * Writes the chunks of the given type and of its documented
+	 * fields, constructors and methods, in declaration order.
+	 *
+	 * @param typeElement Type to write chunks of.
+	 * @param page Path of the type page.
+	 * @throws IOException If any error occurs while writing the export.
+	 */
+	public void writeType(final TypeElement typeElement, final Path page) throws IOException {
+		final String typeId = "type:" + elementUtils.getBinaryName(typeElement);
+		final String typeName = typeElement.getQualifiedName().toString();
+		final String pagePath = getPagePath(page);
+		final StringBuilder text = new StringBuilder();
+		appendComment(text, comments.get(typeElement));
+		write(typeId, typeElement, typeName, signatures.getTypeSignature(typeElement), text, pagePath);
+		for (final Element element : index.getMembers(typeElement)) {
+			final String name = element.getSimpleName().toString();
+			final String anchor = anchored ? "#" + SearchIndexBuilder.getAnchor(name) : "";
+			text.setLength(0);
+			switch (element.getKind()) {
+				case FIELD:
+				case ENUM_CONSTANT:
+					appendComment(text, comments.get(element));
+					write(typeId + "#" + name, element, typeName + "." + name, signatures.getFieldSignature((VariableElement) element),
+						text, element.getKind() == ElementKind.FIELD ? splitter.getPage(pagePath, element) + anchor : pagePath);
+					break;
+				case CONSTRUCTOR:
+				case METHOD:
+					final ExecutableElement method = (ExecutableElement) element;
+					appendMethodComment(text, method);
+					write(typeId + "#" + getErasedSignature(method), element, typeName + "." + name, signatures.getMethodSignature(method),
+						text, element.getKind() == ElementKind.METHOD ? splitter.getPage(pagePath, element) + anchor : pagePath);
+					break;
+				default:
+					// Nested types have chunks of their own.
+			}
+		}
+	}
+
+	/**
+	 * Commits the export, then writes the delta file. The delta depends
+	 * on the previous content of the output directory rather than on
+	 * the sources only, so reproducible runs remove it instead.
+	 *
+	 * @param writeDelta true to write the delta file, false to remove it.
+	 * @throws IOException If any error occurs while committing the export or writing the delta.
+	 */
+	public void finish(final boolean writeDelta) throws IOException {
+		writer.close();
+		final Path chunksFile = outputDirectory.resolve(CHUNKS_FILE);
+		pageWriter.commit(PageWriter.getTemporaryFile(chunksFile), chunksFile);
+		finished = true;
+		final Path deltaFile = outputDirectory.resolve(DELTA_FILE);
+		if (!writeDelta) {
+			Files.deleteIfExists(deltaFile);
+			JavadocMarkLogger.info("JavadocMark", "Chunk export written with " + chunks + " chunks, without delta");
+			return;
+		}
+		final Path temporary = PageWriter.getTemporaryFile(deltaFile);
+		try (BufferedWriter delta = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+			delta.write("{\n");
+			writeIds(delta, "added", added);
+			delta.write(",\n");
+			writeIds(delta, "changed", changed);
+			delta.write(",\n");
+			writeIds(delta, "removed", new TreeSet<>(previous.keySet()));
+			delta.write("\n}\n");
+		} catch (final IOException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+		pageWriter.commit(temporary, deltaFile);
+		JavadocMarkLogger.info("JavadocMark", "Chunk export written with " + chunks + " chunks: " + added.size() + " added, "
+			+ changed.size() + " changed, " + previous.size() + " removed");
+	}
+
+	/**
+	 * Releases the writer and deletes the temporary export if it was
+	 * not committed.
+	 *
+	 * @throws IOException If any error occurs while deleting the temporary export.
+	 */
+	public void close() throws IOException {
+		if (!finished) {
+			writer.close();
+			Files.deleteIfExists(PageWriter.getTemporaryFile(outputDirectory.resolve(CHUNKS_FILE)));
+		}
+	}
+
+	/**
+	 * Writes the given escaped identifiers as a JSON array member.
+	 *
+	 * @param delta Writer of the delta file.
+	 * @param name Name of the member.
+	 * @param ids Escaped identifiers.
+	 * @throws IOException If any error occurs while writing the delta.
+	 */
+	private static void writeIds(final BufferedWriter delta, final String name, final Iterable<String> ids) throws IOException {
+		delta.write("  \"" + name + "\": [");
+		boolean first = true;
+		for (final String id : ids) {
+			delta.write(first ? "\n    \"" : ",\n    \"");
+			delta.write(id);
+			delta.write('"');
+			first = false;
+		}
+		delta.write(first ? "]" : "\n  ]");
+	}
+
+	/**
+	 * Returns the signature of the given method or constructor made of
+	 * its name and erased parameter types, constructors being named
+	 * {@code <init>}.
+	 *
+	 * @param method Method to get signature of.
+	 * @return Erased signature.
+	 */
+	private String getErasedSignature(final ExecutableElement method) {
+		final StringBuilder signature = new StringBuilder();
+		signature.append(method.getKind() == ElementKind.CONSTRUCTOR ? "<init>" : method.getSimpleName().toString()).append('(');
+		boolean first = true;
+		for (final VariableElement parameter : method.getParameters()) {
+			if (!first) {
+				signature.append(',');
+			}
+			signature.append(typeUtils.erasure(parameter.asType()));
+			first = false;
+		}
+		return signature.append(')').toString();
+	}
+
+	/**
+	 * Appends the body and tags of the given comment.
+	 *
+	 * @param text Text to append to.
+	 * @param comment Comment to append.
+	 */
+	private static void appendComment(final StringBuilder text, final DocComments.Comment comment) {
+		if (comment.getDeprecated() != null) {
+			text.append("Deprecated. ").append(comment.getDeprecated()).append("\n\n");
+		}
+		text.append(comment.getBody());
+		if (comment.getSince() != null) {
+			text.append("\n\nSince: ").append(comment.getSince());
+		}
+		if (!comment.getSee().isEmpty()) {
+			text.append("\n\nSee also: ").append(String.join(", ", comment.getSee()));
+		}
+	}
+
+	/**
+	 * Appends the comment of the given method, followed by the
+	 * descriptions of its parameters, return value and exceptions.
+	 *
+	 * @param text Text to append to.
+	 * @param method Method to append comment of.
+	 */
+	private void appendMethodComment(final StringBuilder text, final ExecutableElement method) {
+		final DocComments.Comment comment = comments.get(method);
+		appendComment(text, comment);
+		for (final VariableElement parameter : method.getParameters()) {
+			final String description = comment.getParam(parameter.getSimpleName().toString());
+			if (description != null && !description.isEmpty()) {
+				text.append("\n\nParameter ").append(parameter.getSimpleName()).append(": ").append(description);
+			}
+		}
+		if (comment.getReturns() != null && !comment.getReturns().isEmpty()) {
+			text.append("\n\nReturns: ").append(comment.getReturns());
+		}
+		for (final Map.Entry<String, String> exception : comment.getExceptions().entrySet()) {
+			text.append("\n\nThrows ").append(exception.getKey());
+			if (!exception.getValue().isEmpty()) {
+				text.append(": ").append(exception.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Writes the chunks of the given element: its heading line, its
+	 * signature and its text, split into parts of bounded length.
+	 *
+	 * @param id Identifier of the element.
+	 * @param element Element to write chunks of.
+	 * @param name Name of the element, qualified.
+	 * @param signature Signature of the element, null for packages.
+	 * @param body Text of the element, filtered as the text of pages.
+	 * @param page Path of the page documenting the element, with its anchor if any.
+	 * @throws IOException If any error occurs while writing the export.
+	 */
+	private void write(final String id, final Element element, final String name, final String signature, final CharSequence body,
+			final String page) throws IOException {
+		final String kind = element.getKind().name().toLowerCase(Locale.ROOT);
+		final String heading = kind + " " + name + (signature == null ? "\n\n" : "\n" + signature + "\n\n");
+		final List<String> parts = split(MarkdownDocumentBuilder.filter(body.toString()).strip(), Math.max(1, maxLength - heading.length()));
+		for (int i = 0; i < parts.size(); i++) {
+			final String text = heading + parts.get(i);
+			final String escapedId = GenerationStats.escape(i == 0 ? id : id + PART_SEPARATOR + (i + 1));
+			final String hash = new PageManifest.Hasher().add(text).digest();
+			final String previousHash = previous.remove(escapedId);
+			if (previousHash == null) {
+				added.add(escapedId);
+			} else if (!previousHash.equals(hash)) {
+				changed.add(escapedId);
+			}
+			writer.write(ID_PREFIX);
+			writer.write(escapedId);
+			writer.write(HASH_PREFIX);
+			writer.write(hash);
+			writer.write("\",\"kind\":\"");
+			writer.write(kind);
+			writer.write("\",\"name\":\"");
+			writer.write(GenerationStats.escape(name));
+			writer.write("\",\"page\":\"");
+			writer.write(GenerationStats.escape(page));
+			writer.write("\",\"text\":\"");
+			writer.write(GenerationStats.escape(text));
+			writer.write("\"}\n");
+			chunks++;
+		}
+	}
+
+	/**
+	 * Splits the given text into parts of at most the given length,
+	 * preferably between paragraphs, then lines, then words.
+	 *
+	 * @param text Text to split.
+	 * @param length Maximum length of a part.
+	 * @return Parts, a single empty part for an empty text.
+	 */
+	private static List<String> split(final String text, final int length) {
+		final List<String> parts = new ArrayList<>();
+		int start = 0;
+		while (text.length() - start > length) {
+			final int limit = start + length;
+			int end = text.lastIndexOf("\n\n", limit - 2);
+			if (end <= start + length / 2) {
+				end = text.lastIndexOf('\n', limit - 1);
+			}
+			if (end <= start + length / 2) {
+				end = text.lastIndexOf(' ', limit - 1);
+			}
+			if (end <= start + length / 2) {
+				end = Character.isHighSurrogate(text.charAt(limit - 1)) ? limit - 1 : limit;
+			}
+			parts.add(text.substring(start, end).strip());
+			start = end;
+			while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+				start++;
+			}
+		}
+		parts.add(text.substring(start));
+		return parts;
+	}
+
+	/**
+	 * Returns the path of the given page, relative to the output
+	 * directory and using '/' as separator.
+	 *
+	 * @param page Page file.
+	 * @return Relative page path.
+	 */
+	private String getPagePath(final Path page) {
+		return outputDirectory.relativize(page).toString().replace('\\', '/');
+	}
+
+}
@@ -2,13 +2,23 @@ package com.manxiaozhi.javadocmark;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
+import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Parameterizable;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
 
 import jdk.javadoc.doclet.DocletEnvironment;
 
@@ -25,15 +35,103 @@ public final class ClassPageBuilder extends MarkdownDocumentBuilder {
     /** Doclet environment instance. **/
     private final DocletEnvironment environment;
 
+    /** Index of the documented elements. **/
+    private final ElementIndex index;
+
+    /** Rendered documentation comments. **/
+    private final DocComments comments;
+
+    /** Symbol table types are linked with. **/
+    private final SymbolTable symbols;
+
+    /** Type hierarchy inherited members are resolved with. **/
+    private final TypeHierarchy hierarchy;
+
+    /** Layout of the split type pages. **/
+    private final PageSplitter splitter;
+
+    /** Member page this builder is working on, null for the type page. **/
+    private final PageSplitter.Shard shard;
+
+    /** Directory of the page, relative to the output directory. **/
+    private final String directory;
+
     /**
      * Default constructor.
      * 
      * @param typeElement Target type element this builder is working on.
      * @param environment Doclet environment instance.
+     * @param index Index of the documented elements.
+     * @param comments Rendered documentation comments.
+     * @param symbols Symbol table types are linked with.
+     * @param hierarchy Type hierarchy inherited members are resolved with.
+     */
+    public ClassPageBuilder(final TypeElement typeElement, final DocletEnvironment environment, final ElementIndex index,
+            final DocComments comments, final SymbolTable symbols, final TypeHierarchy hierarchy) {
+        this(typeElement, environment, index, comments, symbols, hierarchy, PageSplitter.NONE, null);
+    }
+
+    /**
+     * Builds the page of the given type, which is an overview of its
+     * member pages if the splitter splits it.
+     * 
+     * @param typeElement Target type element this builder is working on.
+     * @param environment Doclet environment instance.
+     * @param index Index of the documented elements.
+     * @param comments Rendered documentation comments.
+     * @param symbols Symbol table types are linked with.
+     * @param hierarchy Type hierarchy inherited members are resolved with.
+     * @param splitter Layout of the split type pages.
      */
-    public ClassPageBuilder(final TypeElement typeElement, final DocletEnvironment environment) {
+    public ClassPageBuilder(final TypeElement typeElement, final DocletEnvironment environment, final ElementIndex index,
+            final DocComments comments, final SymbolTable symbols, final TypeHierarchy hierarchy, final PageSplitter splitter) {
+        this(typeElement, environment, index, comments, symbols, hierarchy, splitter, null);
+    }
+
+    /**
+     * Internal constructor.
+     * 
+     * @param typeElement Target type element this builder is working on.
+     * @param environment Doclet environment instance.
+     * @param index Index of the documented elements.
+     * @param comments Rendered documentation comments.
+     * @param symbols Symbol table types are linked with.
+     * @param hierarchy Type hierarchy inherited members are resolved with.
+     * @param splitter Layout of the split type pages.
+     * @param shard Member page to build, null for the type page.
+     */
+    private ClassPageBuilder(final TypeElement typeElement, final DocletEnvironment environment, final ElementIndex index,
+            final DocComments comments, final SymbolTable symbols, final TypeHierarchy hierarchy, final PageSplitter splitter,
+            final PageSplitter.Shard shard) {
         this.typeElement = typeElement;
         this.environment = environment;
+        this.index = index;
+        this.comments = comments;
+        this.symbols = symbols;
+        this.hierarchy = hierarchy;
+        this.splitter = splitter;
+        this.shard = shard;
+        this.directory = symbols.getDirectory(typeElement);
+    }
+
+    /**
+     * Returns a builder of the given member page of the type.
+     * 
+     * @param memberPage Member page of the type, as given by the splitter.
+     * @return Builder of the member page.
+     */
+    public ClassPageBuilder getShardBuilder(final PageSplitter.Shard memberPage) {
+        return new ClassPageBuilder(typeElement, environment, index, comments, symbols, hierarchy, splitter, memberPage);
+    }
+
+    /**
+     * Renders the given type, linked to its page if it is documented.
+     * 
+     * @param type Type to render.
+     * @return Rendered type.
+     */
+    private String linkType(final TypeMirror type) {
+        return symbols.linkType(type, directory);
     }
 
     /**
@@ -42,19 +140,7 @@ public final class ClassPageBuilder extends MarkdownDocumentBuilder {
      * @return The full name of the type.
      */
     private String getTypeFullName() {
-        String name = typeElement.getSimpleName().toString();
-        if (typeElement.getNestingKind().isNested()) {
-            // 获取外部类
-            TypeElement enclosingElement = (TypeElement) typeElement.getEnclosingElement();
-            while (enclosingElement != null && enclosingElement.getNestingKind().isNested()) {
-                name = enclosingElement.getSimpleName() + "." + name;
-                enclosingElement = (TypeElement) enclosingElement.getEnclosingElement();
-            }
-            if (enclosingElement != null) {
-                name = enclosingElement.getSimpleName() + "." + name;
-            }
-        }
-        return name;
+        return index.getFileName(typeElement);
     }
 
     /**
@@ -63,15 +149,134 @@ public final class ClassPageBuilder extends MarkdownDocumentBuilder {
      * @throws IOException If any error occurs while writing header.
      */
     private void buildClassHeader() throws IOException {
-        System.out.println("[ClassPageBuilder] Building class header");
+        JavadocMarkLogger.debug("ClassPageBuilder", "Building class header");
         header(1, getTypeFullName());
-        final String comment = environment.getElementUtils().getDocComment(typeElement);
-        if (comment != null) {
-            System.out.println("[ClassPageBuilder] Found class comment");
-            text(comment);
+        final DocComments.Comment comment = comments.get(typeElement);
+        if (!comment.getBody().isEmpty()) {
+            JavadocMarkLogger.debug("ClassPageBuilder", "Found class comment");
+        } else {
+            JavadocMarkLogger.debug("ClassPageBuilder", "No class comment found");
+        }
+        comment(comment);
+        buildInterfaceHierarchy();
+    }
+
+    /**
+     * Builds the header of a member page: the type name, the range of
+     * the page and a link back to the type page.
+     */
+    private void buildShardHeader() {
+        header(1, getTypeFullName() + " " + shard.getKind() + " " + shard.getNumber() + " of " + shard.getTotal());
+        text("Part of [" + getTypeFullName() + "](" + getTypeFullName() + SymbolTable.PAGE_EXTENSION + "), from `"
+            + shard.getFirst() + "` to `" + shard.getLast() + "`.");
+        newLine();
+    }
+
+    /**
+     * Builds the table of the member pages of a split type, giving the
+     * first and last member of each page, so that the page documenting
+     * a member is found from its name.
+     */
+    private void buildShardTable() {
+        header(2, JavadocMarkConstant.MEMBER_PAGES_HEADER);
+        text("| Page | Members | First | Last |");
+        newLine();
+        text("|------|---------|-------|------|");
+        newLine();
+        final String typePage = getTypeFullName() + SymbolTable.PAGE_EXTENSION;
+        for (final PageSplitter.Shard memberPage : splitter.getShards(typeElement)) {
+            text("| [" + memberPage.getKind() + " " + memberPage.getNumber() + "](" + memberPage.getPage(typePage) + ") | "
+                + memberPage.getMembers().size() + " | `" + memberPage.getFirst() + "` | `" + memberPage.getLast() + "` |");
             newLine();
+        }
+    }
+
+    /**
+     * Returns the members of the given kind documented in this page:
+     * every documented member for an unsplit type page, the members of
+     * the member page, and none for the overview of a split type.
+     * 
+     * @param kind Kind of the members.
+     * @return Documented members of the given kind.
+     */
+    private List<? extends Element> getMembers(final ElementKind kind) {
+        final List<? extends Element> members;
+        if (shard != null) {
+            members = shard.getMembers();
+        } else if (splitter.isSplit(typeElement)) {
+            members = Collections.emptyList();
         } else {
-            System.out.println("[ClassPageBuilder] No class comment found");
+            members = index.getMembers(typeElement);
+        }
+        return members.stream()
+            .filter(element -> element.getKind() == kind)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Builds the list of every interface the class implements,
+     * directly or not, or the interface extends.
+     */
+    private void buildInterfaceHierarchy() {
+        final List<TypeElement> interfaces = hierarchy.getInterfaces(typeElement);
+        if (!interfaces.isEmpty()) {
+            newLine();
+            bold(typeElement.getKind().isInterface() ? JavadocMarkConstant.SUPERINTERFACES_HEADER : JavadocMarkConstant.INTERFACE_HIEARCHY_HEADER);
+            character(' ');
+            text(interfaces.stream()
+                .map(this::linkSupertype)
+                .collect(Collectors.joining(", ")));
+            newLine();
+        }
+    }
+
+    /**
+     * Renders the given supertype, without type arguments, linked to
+     * its page if it is documented.
+     * 
+     * @param supertype Supertype to render.
+     * @return Rendered supertype.
+     */
+    private String linkSupertype(final TypeElement supertype) {
+        return linkType(environment.getTypeUtils().erasure(supertype.asType()));
+    }
+
+    /**
+     * Builds one section per supertype listing the given members
+     * the class inherits from it, linked to their documentation.
+     * 
+     * @param label Label of the sections.
+     * @param inherited Inherited members, by declaring type.
+     * @throws IOException If any error occurs while writing the sections.
+     */
+    private void buildInheritedMembers(final String label, final Map<TypeElement, ? extends List<? extends Element>> inherited)
+            throws IOException {
+        for (final Map.Entry<TypeElement, ? extends List<? extends Element>> entry : inherited.entrySet()) {
+            final TypeElement supertype = entry.getKey();
+            final Map<String, Element> names = new TreeMap<>();
+            for (final Element member : entry.getValue()) {
+                if (index.isDocumented(member)) {
+                    names.putIfAbsent(member.getSimpleName().toString(), member);
+                }
+            }
+            if (names.isEmpty()) {
+                continue;
+            }
+            header(2, label + (supertype.getKind().isInterface() ? " interface " : " class ") + linkSupertype(supertype));
+            final StringBuilder members = new StringBuilder();
+            for (final Map.Entry<String, Element> name : names.entrySet()) {
+                if (members.length() > 0) {
+                    members.append(", ");
+                }
+                final String link = symbols.getMemberLink(directory, name.getValue());
+                if (link == null) {
+                    members.append('`').append(name.getKey()).append('`');
+                } else {
+                    members.append("[`").append(name.getKey()).append("`](").append(link).append(')');
+                }
+            }
+            text(members.toString());
+            newLine();
         }
     }
 
@@ -83,11 +288,7 @@ public final class ClassPageBuilder extends MarkdownDocumentBuilder {
      */
     private void buildFieldDocumentation(final VariableElement field) throws IOException {
         header(3, field.getSimpleName().toString());
-        final String comment = environment.getElementUtils().getDocComment(field);
-        if (comment != null) {
-            text(comment);
-            newLine();
-        }
+        comment(comments.get(field));
     }
 
     /**
@@ -96,20 +297,26 @@ public final class ClassPageBuilder extends MarkdownDocumentBuilder {
      * @throws IOException If any error occurs while writing field list.
      */
     private void buildFieldList() throws IOException {
-        System.out.println("[ClassPageBuilder] Building field list");
-        final List<VariableElement> fields = typeElement.getEnclosedElements().stream()
-            .filter(element -> element.getKind() == ElementKind.FIELD)
+        JavadocMarkLogger.debug("ClassPageBuilder", "Building field list");
+        final List<VariableElement> fields = getMembers(ElementKind.FIELD).stream()
             .map(element -> (VariableElement) element)
             .collect(Collectors.toList());
-        System.out.println("[ClassPageBuilder] Found " + fields.size() + " fields");
+        if (JavadocMarkLogger.isDebugEnabled()) {
+            JavadocMarkLogger.debug("ClassPageBuilder", "Found " + fields.size() + " fields");
+        }
         
         if (!fields.isEmpty()) {
             header(2, "Fields");
             for (VariableElement field : fields) {
-                System.out.println("[ClassPageBuilder] Processing field: " + field.getSimpleName());
+                if (JavadocMarkLogger.isDebugEnabled()) {
+                    JavadocMarkLogger.debug("ClassPageBuilder", "Processing field: " + field.getSimpleName());
+                }
                 buildFieldDocumentation(field);
             }
         }
+        if (shard == null) {
+            buildInheritedMembers(JavadocMarkConstant.INHERITED_FIELDS, hierarchy.getInheritedFields(typeElement));
+        }
     }
 
     /**
@@ -120,28 +327,43 @@ public final class ClassPageBuilder extends MarkdownDocumentBuilder {
      */
     private void buildMethodDocumentation(final ExecutableElement method) throws IOException {
         header(3, method.getSimpleName().toString());
-        final String comment = environment.getElementUtils().getDocComment(method);
-        if (comment != null) {
-            text(comment);
-            newLine();
+        final DocComments.Comment comment = comments.get(method);
+        comment(comment);
+        buildParametersDocumentation(method, comment);
+        buildReturnDocumentation(method, comment);
+        buildThrowsDocumentation(method, comment);
+    }
+
+    /**
+     * Appends the given description, if any, after a dash.
+     * 
+     * @param description Description to append, may be null.
+     */
+    private void description(final String description) {
+        if (description != null && !description.isEmpty()) {
+            text(" - " + description);
         }
-        buildParametersDocumentation(method);
-        buildReturnDocumentation(method);
-        buildThrowsDocumentation(method);
     }
 
     /**
      * Builds parameters documentation for the given method.
      * 
      * @param method Method to build parameters documentation for.
+     * @param comment Rendered comment of the method.
      * @throws IOException If any error occurs while writing documentation.
      */
-    private void buildParametersDocumentation(final ExecutableElement method) throws IOException {
+    private void buildParametersDocumentation(final ExecutableElement method, final DocComments.Comment comment) throws IOException {
         final List<? extends VariableElement> parameters = method.getParameters();
         if (!parameters.isEmpty()) {
             header(4, "Parameters");
-            for (VariableElement param : parameters) {
-                text("* " + param.getSimpleName() + " - " + param.asType().toString());
+            for (int i = 0; i < parameters.size(); i++) {
+                final VariableElement param = parameters.get(i);
+                if (method.isVarArgs() && i == parameters.size() - 1) {
+                    text("* " + param.getSimpleName() + " - " + linkType(((ArrayType) param.asType()).getComponentType()) + "...");
+                } else {
+                    text("* " + param.getSimpleName() + " - " + linkType(param.asType()));
+                }
+                description(comment.getParam(param.getSimpleName().toString()));
                 newLine();
             }
         }
@@ -151,33 +373,64 @@ public final class ClassPageBuilder extends MarkdownDocumentBuilder {
      * Builds return type documentation for the given method.
      * 
      * @param method Method to build return type documentation for.
+     * @param comment Rendered comment of the method.
      * @throws IOException If any error occurs while writing documentation.
      */
-    private void buildReturnDocumentation(final ExecutableElement method) throws IOException {
+    private void buildReturnDocumentation(final ExecutableElement method, final DocComments.Comment comment) throws IOException {
         if (method.getReturnType() != null) {
             header(4, "Returns");
-            text(method.getReturnType().toString());
+            text(linkType(method.getReturnType()));
+            description(comment.getReturns());
             newLine();
         }
     }
 
     /**
-     * Builds throws documentation for the given method.
+     * Builds throws documentation for the given method: declared
+     * exceptions first, then exceptions only documented in its comment.
      * 
      * @param method Method to build throws documentation for.
+     * @param comment Rendered comment of the method.
      * @throws IOException If any error occurs while writing documentation.
      */
-    private void buildThrowsDocumentation(final ExecutableElement method) throws IOException {
-        final List<? extends TypeElement> thrownTypes = method.getThrownTypes().stream()
-            .map(type -> (TypeElement) environment.getTypeUtils().asElement(type))
-            .collect(Collectors.toList());
-        if (!thrownTypes.isEmpty()) {
+    private void buildThrowsDocumentation(final ExecutableElement method, final DocComments.Comment comment) throws IOException {
+        final List<? extends TypeMirror> thrownTypes = method.getThrownTypes();
+        final Map<String, String> exceptions = new LinkedHashMap<>(comment.getExceptions());
+        if (!thrownTypes.isEmpty() || !exceptions.isEmpty()) {
             header(4, "Throws");
-            for (TypeElement type : thrownTypes) {
-                text("* " + type.getQualifiedName().toString());
+            for (TypeMirror type : thrownTypes) {
+                text("* " + linkType(type));
+                final Element element = environment.getTypeUtils().asElement(type);
+                if (element instanceof TypeElement) {
+                    description(removeException(exceptions, (TypeElement) element));
+                } else {
+                    description(exceptions.remove(type.toString()));
+                }
                 newLine();
             }
+            for (Map.Entry<String, String> exception : exceptions.entrySet()) {
+                text("* " + comment.getExceptionName(exception.getKey()));
+                description(exception.getValue());
+                newLine();
+            }
+        }
+    }
+
+    /**
+     * Removes the description of the given exception type from the given
+     * descriptions, which are keyed by the exception name as written in
+     * the comment, either qualified or simple.
+     * 
+     * @param exceptions Exception descriptions to remove from.
+     * @param type Exception type to remove description of.
+     * @return Removed description, null if the exception is not documented.
+     */
+    private static String removeException(final Map<String, String> exceptions, final TypeElement type) {
+        final String qualifiedName = type.getQualifiedName().toString();
+        if (exceptions.containsKey(qualifiedName)) {
+            return exceptions.remove(qualifiedName);
         }
+        return exceptions.remove(type.getSimpleName().toString());
     }
 
     /**
@@ -186,42 +439,138 @@ public final class ClassPageBuilder extends MarkdownDocumentBuilder {
      * @throws IOException If any error occurs while writing method list.
      */
     private void buildMethodList() throws IOException {
-        System.out.println("[ClassPageBuilder] Building method list");
-        final List<ExecutableElement> methods = typeElement.getEnclosedElements().stream()
-            .filter(element -> element.getKind() == ElementKind.METHOD)
+        JavadocMarkLogger.debug("ClassPageBuilder", "Building method list");
+        final List<ExecutableElement> methods = getMembers(ElementKind.METHOD).stream()
             .map(element -> (ExecutableElement) element)
             .collect(Collectors.toList());
-        System.out.println("[ClassPageBuilder] Found " + methods.size() + " methods");
+        if (JavadocMarkLogger.isDebugEnabled()) {
+            JavadocMarkLogger.debug("ClassPageBuilder", "Found " + methods.size() + " methods");
+        }
         
         if (!methods.isEmpty()) {
             header(2, "Methods");
             for (ExecutableElement method : methods) {
-                System.out.println("[ClassPageBuilder] Processing method: " + method.getSimpleName());
+                if (JavadocMarkLogger.isDebugEnabled()) {
+                    JavadocMarkLogger.debug("ClassPageBuilder", "Processing method: " + method.getSimpleName());
+                }
                 buildMethodDocumentation(method);
             }
         }
+        if (shard == null) {
+            buildInheritedMembers(JavadocMarkConstant.INHERITED_METHODS, hierarchy.getInheritedMethods(typeElement));
+        }
+    }
+
+    /**
+     * Computes a hash of every input this page is rendered from: the type
+     * declaration and comment, the declaration and comment of each enclosed
+     * member, and the members of its supertypes, which are inherited or
+     * inherit comments, and which member page of a split type it is.
+     * Two runs producing the same hash render the same page.
+     * 
+     * @return Hash of the page inputs.
+     */
+    public String getInputHash() {
+        return hashInputs(typeElement, environment.getElementUtils(), index, symbols, hierarchy)
+            .add(shard == null ? splitter.isSplit(typeElement) : shard.getSuffix())
+            .digest();
+    }
+
+    /**
+     * Hashes the inputs of the page of the given type, shared by every
+     * profile rendering type pages.
+     * 
+     * @param typeElement Documented type.
+     * @param elementUtils Element utilities of the environment.
+     * @param index Index of the documented elements.
+     * @param symbols Symbol table types are linked with.
+     * @param hierarchy Type hierarchy inherited members are resolved with.
+     * @return Hasher holding the type inputs, to which profile specific inputs may be added.
+     */
+    static PageManifest.Hasher hashInputs(final TypeElement typeElement, final Elements elementUtils, final ElementIndex index,
+            final SymbolTable symbols, final TypeHierarchy hierarchy) {
+        final PageManifest.Hasher hasher = new PageManifest.Hasher()
+            .add(index.getFileName(typeElement))
+            .add(index.getFilter())
+            .add(symbols.getDigest())
+            .add(hierarchy.getDigest(typeElement))
+            .add(typeElement.getQualifiedName())
+            .add(typeElement.getKind())
+            .add(typeElement.getSuperclass())
+            .add(typeElement.getInterfaces())
+            .add(elementUtils.getDocComment(typeElement));
+        hashDeclaration(hasher, typeElement);
+        for (final Element element : index.getMembers(typeElement)) {
+            hasher.add(element.getKind())
+                .add(element.getSimpleName())
+                .add(element.asType())
+                .add(elementUtils.getDocComment(element));
+            hashDeclaration(hasher, element);
+            if (element instanceof ExecutableElement) {
+                final ExecutableElement method = (ExecutableElement) element;
+                hasher.add(method.getThrownTypes());
+                for (final VariableElement param : method.getParameters()) {
+                    hasher.add(param.getSimpleName()).add(param.getAnnotationMirrors());
+                }
+            } else if (element instanceof VariableElement) {
+                hasher.add(((VariableElement) element).getConstantValue());
+            }
+        }
+        return hasher;
+    }
+
+    /**
+     * Hashes the parts of the given declaration which its type
+     * does not hold: its modifiers, its annotations, and its type
+     * parameters with their bounds.
+     * 
+     * @param hasher Hasher to add declaration to.
+     * @param element Declared type or member.
+     */
+    private static void hashDeclaration(final PageManifest.Hasher hasher, final Element element) {
+        hasher.add(element.getModifiers()).add(element.getAnnotationMirrors());
+        if (element instanceof Parameterizable) {
+            for (final TypeParameterElement parameter : ((Parameterizable) element).getTypeParameters()) {
+                hasher.add(parameter.getSimpleName()).add(parameter.getBounds());
+            }
+        }
     }
 
     /** {@inheritDoc} **/
     @Override
-    public void build(final Path output) throws IOException {
-        System.out.println("[ClassPageBuilder] Building documentation for class: " + typeElement.getQualifiedName());
+    public void render() throws IOException {
+        if (JavadocMarkLogger.isDebugEnabled()) {
+            JavadocMarkLogger.debug("ClassPageBuilder", "Building documentation for class: " + typeElement.getQualifiedName());
+        }
         try {
-            buildClassHeader();
-            System.out.println("[ClassPageBuilder] Class header built successfully");
+            if (shard == null) {
+                buildClassHeader();
+                if (splitter.isSplit(typeElement)) {
+                    buildShardTable();
+                }
+            } else {
+                buildShardHeader();
+            }
+            JavadocMarkLogger.debug("ClassPageBuilder", "Class header built successfully");
             
             buildFieldList();
-            System.out.println("[ClassPageBuilder] Field list built successfully");
+            JavadocMarkLogger.debug("ClassPageBuilder", "Field list built successfully");
             
             buildMethodList();
-            System.out.println("[ClassPageBuilder] Method list built successfully");
-            
-            super.build(output);
-            System.out.println("[ClassPageBuilder] Documentation written to: " + output);
+            JavadocMarkLogger.debug("ClassPageBuilder", "Method list built successfully");
         } catch (IOException e) {
-            System.err.println("[ClassPageBuilder] Error building documentation: " + e.getMessage());
+            JavadocMarkLogger.error("ClassPageBuilder", "Error building documentation: " + e.getMessage(), null);
             throw e;
         }
     }
 
+    /** {@inheritDoc} **/
+    @Override
+    public void write(final Path output) throws IOException {
+        super.write(output);
+        if (JavadocMarkLogger.isDebugEnabled()) {
+            JavadocMarkLogger.debug("ClassPageBuilder", "Documentation written to: " + output);
+        }
+    }
+
 }
@@ -0,0 +1,317 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+
+import jdk.javadoc.doclet.DocletEnvironment;
+
+/**
+ * Builder that creates the class documentation file of the compact
+ * profile: the type signature and summary, then one line per field
+ * and method holding its signature and the first sentence of its
+ * comment, and one line per supertype listing the names of the members
+ * inherited from it, except the ones of {@code java.lang.Object} which
+ * every class inherits. Pages over the token budget are trimmed, least
+ * important content first: inherited members, then field summaries,
+ * then method summaries, then the last fields, then the last methods.
+ *
+ * @author wangzhi
+ */
+public final class CompactClassPageBuilder extends MarkdownDocumentBuilder {
+
+	/** Separator between a member signature and its summary. **/
+	private static final String SUMMARY_SEPARATOR = " - ";
+
+	/** Target type element this builder is working on. **/
+	private final TypeElement typeElement;
+
+	/** Doclet environment instance. **/
+	private final DocletEnvironment environment;
+
+	/** Index of the documented elements. **/
+	private final ElementIndex index;
+
+	/** Rendered documentation comments. **/
+	private final DocComments comments;
+
+	/** Symbol table types are named with. **/
+	private final SymbolTable symbols;
+
+	/** Token budget pages are trimmed to. **/
+	private final TokenBudget budget;
+
+	/** Renderer of type and member signatures. **/
+	private final Signatures signatures;
+
+	/** Type hierarchy inherited members are resolved with. **/
+	private final TypeHierarchy hierarchy;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param typeElement Target type element this builder is working on.
+	 * @param environment Doclet environment instance.
+	 * @param index Index of the documented elements.
+	 * @param comments Rendered documentation comments.
+	 * @param symbols Symbol table types are named with.
+	 * @param budget Token budget pages are trimmed to.
+	 * @param signatures Renderer of type and member signatures.
+	 * @param hierarchy Type hierarchy inherited members are resolved with.
+	 */
+	public CompactClassPageBuilder(final TypeElement typeElement, final DocletEnvironment environment, final ElementIndex index,
+			final DocComments comments, final SymbolTable symbols, final TokenBudget budget, final Signatures signatures,
+			final TypeHierarchy hierarchy) {
+		this.typeElement = typeElement;
+		this.environment = environment;
+		this.index = index;
+		this.comments = comments;
+		this.symbols = symbols;
+		this.budget = budget;
+		this.signatures = signatures;
+		this.hierarchy = hierarchy;
+	}
+
+	/**
+	 * Computes a hash of every input this page is rendered from, the
+	 * inputs of the full profile plus the page budget.
+	 *
+	 * @return Hash of the page inputs.
+	 */
+	public String getInputHash() {
+		return ClassPageBuilder.hashInputs(typeElement, environment.getElementUtils(), index, symbols, hierarchy)
+			.add("compact")
+			.add(budget.getPageTokens())
+			.digest();
+	}
+
+	/** {@inheritDoc} **/
+	@Override
+	public void render() throws IOException {
+		if (JavadocMarkLogger.isDebugEnabled()) {
+			JavadocMarkLogger.debug("CompactClassPageBuilder", "Building compact documentation for class: " + typeElement.getQualifiedName());
+		}
+		final StringBuilder head = new StringBuilder();
+		head.append("# ").append(index.getFileName(typeElement)).append('\n');
+		head.append('`').append(signatures.getTypeSignature(typeElement)).append("`\n");
+		final DocComments.Comment typeComment = comments.get(typeElement);
+		if (typeComment.getDeprecated() != null) {
+			head.append("*Deprecated.* ");
+		}
+		if (!typeComment.getFirstSentence().isEmpty()) {
+			head.append(typeComment.getFirstSentence());
+		}
+		if (typeComment.getDeprecated() != null || !typeComment.getFirstSentence().isEmpty()) {
+			head.append('\n');
+		}
+
+		final List<Member> fields = new ArrayList<>();
+		final List<Member> methods = new ArrayList<>();
+		for (final Element element : index.getMembers(typeElement)) {
+			if (element.getKind() == ElementKind.FIELD) {
+				fields.add(new Member(signatures.getFieldSignature((VariableElement) element), comments.get(element)));
+			} else if (element.getKind() == ElementKind.METHOD) {
+				methods.add(new Member(signatures.getMethodSignature((ExecutableElement) element), comments.get(element)));
+			}
+		}
+		final List<Member> inherited = getInheritedMembers();
+		final int omitted = trim(head.length(), inherited, fields, methods);
+
+		text(head.toString());
+		if (!fields.isEmpty()) {
+			text("## Fields\n");
+			for (final Member field : fields) {
+				field.write();
+			}
+		}
+		if (!methods.isEmpty()) {
+			text("## Methods\n");
+			for (final Member method : methods) {
+				method.write();
+			}
+		}
+		if (!inherited.isEmpty()) {
+			text("## Inherited\n");
+			for (final Member supertype : inherited) {
+				supertype.write();
+			}
+		}
+		if (omitted > 0) {
+			text("*" + omitted + (omitted == 1 ? " more member omitted.*\n" : " more members omitted.*\n"));
+		}
+	}
+
+	/**
+	 * Returns one line per supertype, but {@code java.lang.Object},
+	 * listing the names of the fields and methods inherited from it.
+	 *
+	 * @return Lines of the inherited members.
+	 */
+	private List<Member> getInheritedMembers() {
+		final Map<TypeElement, Set<String>> names = new LinkedHashMap<>();
+		final Map<TypeElement, Integer> counts = new HashMap<>();
+		for (final Map<TypeElement, ? extends List<? extends Element>> inherited
+				: List.of(hierarchy.getInheritedFields(typeElement), hierarchy.getInheritedMethods(typeElement))) {
+			for (final Map.Entry<TypeElement, ? extends List<? extends Element>> entry : inherited.entrySet()) {
+				if (!entry.getKey().getQualifiedName().contentEquals(Object.class.getName())) {
+					for (final Element member : entry.getValue()) {
+						if (index.isDocumented(member)) {
+							names.computeIfAbsent(entry.getKey(), key -> new TreeSet<>()).add(member.getSimpleName().toString());
+							counts.merge(entry.getKey(), 1, Integer::sum);
+						}
+					}
+				}
+			}
+		}
+		final List<Member> members = new ArrayList<>(names.size());
+		for (final TypeElement supertype : hierarchy.getSupertypes(typeElement)) {
+			if (names.containsKey(supertype)) {
+				members.add(new Member(symbols.getTypeName(environment.getTypeUtils().erasure(supertype.asType())),
+					String.join(", ", names.get(supertype)), counts.get(supertype)));
+			}
+		}
+		return members;
+	}
+
+	/**
+	 * Trims the given members to the page token budget, least
+	 * important content first.
+	 *
+	 * @param headLength Length of the page head, never trimmed.
+	 * @param inherited Inherited members of the page, by supertype, trimmed in place.
+	 * @param fields Fields of the page, trimmed in place.
+	 * @param methods Methods of the page, trimmed in place.
+	 * @return Number of members removed.
+	 */
+	private int trim(final int headLength, final List<Member> inherited, final List<Member> fields, final List<Member> methods) {
+		final long limit = budget.getPageLimit();
+		if (limit == Long.MAX_VALUE) {
+			return 0;
+		}
+		final long maxLength = limit * TokenBudget.CHARACTERS_PER_TOKEN;
+		long length = headLength + length(inherited) + length(fields) + length(methods);
+		int omitted = 0;
+		while (!inherited.isEmpty() && length > maxLength) {
+			final Member supertype = inherited.remove(inherited.size() - 1);
+			length -= supertype.length();
+			omitted += supertype.count;
+		}
+		for (final List<Member> members : List.of(fields, methods)) {
+			for (int i = members.size() - 1; i >= 0 && length > maxLength; i--) {
+				length -= members.get(i).dropSummary();
+			}
+		}
+		for (final List<Member> members : List.of(fields, methods)) {
+			while (!members.isEmpty() && length > maxLength) {
+				length -= members.remove(members.size() - 1).length();
+				omitted++;
+			}
+		}
+		return omitted;
+	}
+
+	/**
+	 * Returns the total rendered length of the given members.
+	 *
+	 * @param members Members to measure.
+	 * @return Rendered length, in characters.
+	 */
+	private static long length(final List<Member> members) {
+		long length = 0;
+		for (final Member member : members) {
+			length += member.length();
+		}
+		return length;
+	}
+
+	/**
+	 * Line of a member, made of its signature and summary, or of the
+	 * members inherited from a supertype, made of the supertype name
+	 * and of the member names.
+	 */
+	private final class Member {
+
+		/** Signature of the member. **/
+		private final String signature;
+
+		/** Summary of the member, empty once dropped. **/
+		private String summary;
+
+		/** Number of members of the line. **/
+		private final int count;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param signature Signature of the member.
+		 * @param comment Comment of the member.
+		 */
+		Member(final String signature, final DocComments.Comment comment) {
+			this.signature = signature;
+			final String firstSentence = comment.getFirstSentence();
+			this.summary = comment.getDeprecated() != null ? "*Deprecated.* " + firstSentence : firstSentence;
+			this.count = 1;
+		}
+
+		/**
+		 * Constructor of a line of inherited members.
+		 *
+		 * @param supertype Name of the supertype.
+		 * @param names Names of the inherited members.
+		 * @param count Number of inherited members.
+		 */
+		Member(final String supertype, final String names, final int count) {
+			this.signature = supertype;
+			this.summary = names;
+			this.count = count;
+		}
+
+		/**
+		 * Returns the rendered length of the line.
+		 *
+		 * @return Length, in characters.
+		 */
+		long length() {
+			// "* `" + signature + "`" + separator + summary + "\n"
+			return 5 + signature.length() + (summary.isEmpty() ? 0 : SUMMARY_SEPARATOR.length() + summary.length());
+		}
+
+		/**
+		 * Drops the summary of the member.
+		 *
+		 * @return Number of characters removed.
+		 */
+		long dropSummary() {
+			final long length = length();
+			summary = "";
+			return length - length();
+		}
+
+		/**
+		 * Writes the line of the member.
+		 */
+		void write() {
+			text("* `");
+			text(signature);
+			character('`');
+			if (!summary.isEmpty()) {
+				text(SUMMARY_SEPARATOR);
+				text(summary);
+			}
+			newLine();
+		}
+
+	}
+
+}
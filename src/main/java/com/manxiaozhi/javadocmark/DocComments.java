@@ -0,0 +1,775 @@
+package com.manxiaozhi.javadocmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.Elements;
+
+import com.sun.source.doctree.AttributeTree;
+import com.sun.source.doctree.DeprecatedTree;
+import com.sun.source.doctree.DocCommentTree;
+import com.sun.source.doctree.DocTree;
+import com.sun.source.doctree.EndElementTree;
+import com.sun.source.doctree.EntityTree;
+import com.sun.source.doctree.ErroneousTree;
+import com.sun.source.doctree.IndexTree;
+import com.sun.source.doctree.LinkTree;
+import com.sun.source.doctree.LiteralTree;
+import com.sun.source.doctree.ParamTree;
+import com.sun.source.doctree.ReferenceTree;
+import com.sun.source.doctree.ReturnTree;
+import com.sun.source.doctree.SeeTree;
+import com.sun.source.doctree.SinceTree;
+import com.sun.source.doctree.StartElementTree;
+import com.sun.source.doctree.SummaryTree;
+import com.sun.source.doctree.TextTree;
+import com.sun.source.doctree.ThrowsTree;
+import com.sun.source.doctree.UnknownInlineTagTree;
+import com.sun.source.doctree.ValueTree;
+import com.sun.source.util.DocTreePath;
+import com.sun.source.util.DocTrees;
+import com.sun.source.util.TreePath;
+
+import jdk.javadoc.doclet.DocletEnvironment;
+
+/**
+ * Cache of documentation comments parsed with {@link DocTrees} and
+ * rendered as Markdown. Each comment is parsed and rendered once
+ * per element: its first sentence, body and block tag descriptions
+ * are then shared by every page which needs them. Inline tags such
+ * as {@code {@link}} or {@code {@code}} are turned into Markdown,
+ * references being linked through the {@link SymbolTable} and
+ * {@code {@value}} tags replaced by the constant value, and HTML
+ * tags are left to the document builder filters, which do not touch
+ * the code spans of {@code {@code}} tags. Comments of methods
+ * inherit from the comment of the method they override, following the
+ * javadoc rules: a missing comment, main description, parameter or
+ * return description is inherited, and {@code {@inheritDoc}} is
+ * replaced by the matching inherited part. As it accesses the compiler
+ * model, this cache must only be used from the doclet thread.
+ *
+ * @author wangzhi
+ */
+public final class DocComments {
+
+	/** Comment of elements without documentation. **/
+	private static final Comment EMPTY = new Comment();
+
+	/** Doc trees utility of the environment. **/
+	private final DocTrees docTrees;
+
+	/** Elements utility of the environment, used to render constant values. **/
+	private final Elements elements;
+
+	/** Symbol table links are resolved with. **/
+	private final SymbolTable symbols;
+
+	/** Type hierarchy overridden methods are resolved with. **/
+	private final TypeHierarchy hierarchy;
+
+	/** Rendered comments, by element. **/
+	private final Map<Element, Comment> cache;
+
+	/** Comments of overridden methods, rendered for the pages of overriding methods of other packages, by method and directory. **/
+	private final Map<Element, Map<String, Comment>> inheritedCache;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param environment Doclet environment instance.
+	 * @param symbols Symbol table links are resolved with.
+	 * @param hierarchy Type hierarchy overridden methods are resolved with.
+	 */
+	public DocComments(final DocletEnvironment environment, final SymbolTable symbols, final TypeHierarchy hierarchy) {
+		this.docTrees = environment.getDocTrees();
+		this.elements = environment.getElementUtils();
+		this.symbols = symbols;
+		this.hierarchy = hierarchy;
+		this.cache = new HashMap<>();
+		this.inheritedCache = new HashMap<>();
+	}
+
+	/**
+	 * Returns the rendered comment of the given element, parsing
+	 * and rendering it on first access.
+	 *
+	 * @param element Element to get comment of.
+	 * @return Rendered comment, empty if the element is not documented.
+	 */
+	public Comment get(final Element element) {
+		Comment comment = cache.get(element);
+		if (comment == null) {
+			comment = render(element, symbols.getDirectory(element));
+			cache.put(element, comment);
+		}
+		return comment;
+	}
+
+	/**
+	 * Returns the rendered comment of the given element, for a page of
+	 * the given directory.
+	 *
+	 * @param element Element to get comment of.
+	 * @param directory Directory of the page the comment is rendered for.
+	 * @return Rendered comment, empty if the element is not documented.
+	 */
+	private Comment get(final Element element, final String directory) {
+		if (directory.equals(symbols.getDirectory(element))) {
+			return get(element);
+		}
+		final Map<String, Comment> comments = inheritedCache.computeIfAbsent(element, key -> new HashMap<>());
+		Comment comment = comments.get(directory);
+		if (comment == null) {
+			comment = render(element, directory);
+			comments.put(directory, comment);
+		}
+		return comment;
+	}
+
+	/**
+	 * Parses and renders the comment of the given element, for a page
+	 * of the given directory, inheriting from the comment of the method
+	 * it overrides.
+	 *
+	 * @param element Element to render comment of.
+	 * @param directory Directory of the page the comment is rendered for.
+	 * @return Rendered comment, empty if the element is not documented.
+	 */
+	private Comment render(final Element element, final String directory) {
+		final FlightEvents.CommentEvent event = new FlightEvents.CommentEvent();
+		event.begin();
+		final DocCommentTree tree = docTrees.getDocCommentTree(element);
+		Comment inherited = EMPTY;
+		if (element.getKind() == ElementKind.METHOD) {
+			final ExecutableElement overridden = hierarchy.getOverridden((ExecutableElement) element);
+			if (overridden != null) {
+				inherited = get(overridden, directory).rename(overridden, (ExecutableElement) element);
+			}
+		}
+		final Comment comment = tree == null ? inherited : new Comment(tree, new Renderer(element, tree, directory), inherited);
+		event.end();
+		if (event.shouldCommit()) {
+			event.element = FlightEvents.getName(element);
+			event.characters = comment.getBody().length();
+			event.commit();
+		}
+		return comment;
+	}
+
+	/**
+	 * Returns the number of cached comments.
+	 *
+	 * @return Number of cached comments.
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Removes every cached comment.
+	 */
+	public void clear() {
+		cache.clear();
+		inheritedCache.clear();
+	}
+
+	/**
+	 * Renderer of the comment of a single element. Links are resolved
+	 * through the symbol table, relative to the directory of the page
+	 * documenting the element.
+	 */
+	private final class Renderer {
+
+		/** Element whose comment is rendered. **/
+		private final Element element;
+
+		/** Comment tree of the element. **/
+		private final DocCommentTree comment;
+
+		/** Directory of the page the comment is rendered for. **/
+		private final String directory;
+
+		/** Path of the element declaration, resolved on first reference. **/
+		private TreePath path;
+
+		/** Rendered text {@code {@inheritDoc}} is replaced by, null if none. **/
+		private String inheritDoc;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param element Element whose comment is rendered.
+		 * @param comment Comment tree of the element.
+		 * @param directory Directory of the page the comment is rendered for.
+		 */
+		Renderer(final Element element, final DocCommentTree comment, final String directory) {
+			this.element = element;
+			this.comment = comment;
+			this.directory = directory;
+		}
+
+		/**
+		 * Renders the given trees as Markdown.
+		 *
+		 * @param trees Trees to render.
+		 * @return Rendered trees, without leading and trailing whitespaces.
+		 */
+		String render(final List<? extends DocTree> trees) {
+			return render(trees, (String) null);
+		}
+
+		/**
+		 * Renders the given trees as Markdown, replacing
+		 * {@code {@inheritDoc}} by the given inherited text.
+		 *
+		 * @param trees Trees to render.
+		 * @param inherited Rendered inherited text, null if none.
+		 * @return Rendered trees, without leading and trailing whitespaces.
+		 */
+		String render(final List<? extends DocTree> trees, final String inherited) {
+			final String enclosing = inheritDoc;
+			inheritDoc = inherited;
+			final StringBuilder builder = new StringBuilder();
+			render(trees, builder);
+			inheritDoc = enclosing;
+			return builder.toString().strip();
+		}
+
+		/**
+		 * Renders the given trees as Markdown to the given builder.
+		 *
+		 * @param trees Trees to render.
+		 * @param builder Builder to render trees to.
+		 */
+		private void render(final List<? extends DocTree> trees, final StringBuilder builder) {
+			for (final DocTree tree : trees) {
+				render(tree, builder);
+			}
+		}
+
+		/**
+		 * Renders the given tree as Markdown to the given builder.
+		 *
+		 * @param tree Tree to render.
+		 * @param builder Builder to render tree to.
+		 */
+		private void render(final DocTree tree, final StringBuilder builder) {
+			switch (tree.getKind()) {
+				case TEXT:
+					builder.append(((TextTree) tree).getBody());
+					break;
+				case CODE:
+					MarkdownDocumentBuilder.appendCode(builder, ((LiteralTree) tree).getBody().getBody());
+					break;
+				case LITERAL:
+					builder.append(escapeHtml(((LiteralTree) tree).getBody().getBody()));
+					break;
+				case LINK:
+				case LINK_PLAIN:
+					final LinkTree link = (LinkTree) tree;
+					final String label;
+					if (!link.getLabel().isEmpty()) {
+						label = render(link.getLabel());
+					} else if (tree.getKind() == DocTree.Kind.LINK) {
+						label = "`" + getDisplayName(link.getReference()) + "`";
+					} else {
+						label = getDisplayName(link.getReference());
+					}
+					appendLink(builder, label, link.getReference());
+					break;
+				case REFERENCE:
+					appendLink(builder, "`" + getDisplayName((ReferenceTree) tree) + "`", (ReferenceTree) tree);
+					break;
+				case VALUE:
+					final ReferenceTree value = ((ValueTree) tree).getReference();
+					final String constant = getConstantValue(value == null ? element : getTarget(value));
+					if (constant != null) {
+						builder.append(escapeHtml(constant));
+					} else if (value != null) {
+						render(value, builder);
+					}
+					break;
+				case ENTITY:
+					builder.append('&').append(((EntityTree) tree).getName()).append(';');
+					break;
+				case SUMMARY:
+					render(((SummaryTree) tree).getSummary(), builder);
+					break;
+				case INDEX:
+					render(((IndexTree) tree).getSearchTerm(), builder);
+					break;
+				case RETURN:
+					builder.append("Returns ");
+					render(((ReturnTree) tree).getDescription(), builder);
+					builder.append('.');
+					break;
+				case UNKNOWN_INLINE_TAG:
+					render(((UnknownInlineTagTree) tree).getContent(), builder);
+					break;
+				case ERRONEOUS:
+					builder.append(((ErroneousTree) tree).getBody());
+					break;
+				case INHERIT_DOC:
+					if (inheritDoc != null) {
+						builder.append(inheritDoc);
+					}
+					break;
+				case COMMENT:
+				case DOC_ROOT:
+					break;
+				default:
+					builder.append(tree.toString());
+			}
+		}
+
+		/**
+		 * Renders the reference of a see also tag as Markdown: a
+		 * reference linked with its label if any, a quoted string, or
+		 * an HTML link turned into a Markdown link.
+		 *
+		 * @param trees Reference and label of the tag.
+		 * @return Rendered reference, without leading and trailing whitespaces.
+		 */
+		String renderSee(final List<? extends DocTree> trees) {
+			if (trees.isEmpty()) {
+				return "";
+			}
+			final DocTree first = trees.get(0);
+			final DocTree last = trees.get(trees.size() - 1);
+			if (first.getKind() == DocTree.Kind.REFERENCE) {
+				final String label = render(trees.subList(1, trees.size()));
+				if (label.isEmpty()) {
+					return render(trees.subList(0, 1));
+				}
+				final StringBuilder builder = new StringBuilder();
+				appendLink(builder, label, (ReferenceTree) first);
+				return builder.toString();
+			}
+			if (first.getKind() == DocTree.Kind.TEXT && trees.size() == 1) {
+				return escapeHtml(((TextTree) first).getBody().strip());
+			}
+			if (first.getKind() == DocTree.Kind.START_ELEMENT && last.getKind() == DocTree.Kind.END_ELEMENT
+					&& ((StartElementTree) first).getName().contentEquals("a") && ((EndElementTree) last).getName().contentEquals("a")) {
+				for (final DocTree attribute : ((StartElementTree) first).getAttributes()) {
+					if (attribute.getKind() == DocTree.Kind.ATTRIBUTE && ((AttributeTree) attribute).getName().contentEquals("href")) {
+						final String url = render(((AttributeTree) attribute).getValue());
+						final String label = render(trees.subList(1, trees.size() - 1));
+						return "[" + (label.isEmpty() ? url : label) + "](" + url + ")";
+					}
+				}
+			}
+			return render(trees);
+		}
+
+		/**
+		 * Appends the given label, linked to the page of the given
+		 * reference if it can be resolved.
+		 *
+		 * @param builder Builder to append link to.
+		 * @param label Rendered label of the link.
+		 * @param reference Reference to link to.
+		 */
+		private void appendLink(final StringBuilder builder, final String label, final ReferenceTree reference) {
+			final String target = getLink(reference);
+			if (target == null) {
+				builder.append(label);
+			} else {
+				builder.append('[').append(label).append("](").append(target).append(')');
+			}
+		}
+
+		/**
+		 * Resolves the link to the page of the given reference: the
+		 * page of a type or package, or the section of a member in
+		 * the page of its type or in its member page.
+		 *
+		 * @param reference Reference to resolve.
+		 * @return Link to the referenced element, or null if it cannot be linked.
+		 */
+		private String getLink(final ReferenceTree reference) {
+			final Element target = getTarget(reference);
+			if (target == null) {
+				return null;
+			}
+			if (target instanceof TypeElement) {
+				return symbols.getLink(directory, (TypeElement) target);
+			}
+			if (target instanceof PackageElement) {
+				return symbols.getLink(directory, (PackageElement) target);
+			}
+			if (!(target.getEnclosingElement() instanceof TypeElement)) {
+				return null;
+			}
+			return symbols.getMemberLink(directory, target);
+		}
+
+		/**
+		 * Resolves the element of the given reference.
+		 *
+		 * @param reference Reference to resolve.
+		 * @return Referenced element, or null if it cannot be resolved.
+		 */
+		private Element getTarget(final ReferenceTree reference) {
+			if (path == null) {
+				path = docTrees.getPath(element);
+				if (path == null) {
+					return null;
+				}
+			}
+			return docTrees.getElement(new DocTreePath(new DocTreePath(path, comment), reference));
+		}
+
+		/**
+		 * Returns the constant value of the given field as shown by
+		 * javadoc: strings and characters are quoted and escaped as
+		 * in source code.
+		 *
+		 * @param field Field to get constant value of, may be null.
+		 * @return Constant value, or null if the element is not a constant field.
+		 */
+		private String getConstantValue(final Element field) {
+			if (!(field instanceof VariableElement)) {
+				return null;
+			}
+			final Object value = ((VariableElement) field).getConstantValue();
+			if (value == null) {
+				return null;
+			}
+			return value instanceof String || value instanceof Character ? elements.getConstantExpression(value) : value.toString();
+		}
+
+	}
+
+	/**
+	 * Returns the display name of the given reference, as shown by
+	 * javadoc: member references use a dot instead of a hash, and
+	 * references to members of the current type only show the member.
+	 *
+	 * @param reference Reference to get display name of.
+	 * @return Display name of the reference.
+	 */
+	private static String getDisplayName(final ReferenceTree reference) {
+		final String signature = reference.getSignature();
+		if (signature.startsWith("#")) {
+			return signature.substring(1);
+		}
+		return signature.replace('#', '.');
+	}
+
+	/**
+	 * Escapes the HTML special characters of the given text, so that
+	 * it is shown as is rather than filtered as HTML.
+	 *
+	 * @param text Text to escape.
+	 * @return Escaped text.
+	 */
+	private static String escapeHtml(final String text) {
+		final StringBuilder builder = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			final char character = text.charAt(i);
+			if (character == '<') {
+				builder.append("&lt;");
+			} else if (character == '>') {
+				builder.append("&gt;");
+			} else if (character == '&') {
+				builder.append("&amp;");
+			} else {
+				builder.append(character);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Joins the lines of the given text: each whitespace run holding
+	 * a line break is replaced by a single space, in a single pass.
+	 *
+	 * @param text Text to join lines of.
+	 * @return Text on a single line, the given text if it has a single line.
+	 */
+	private static String joinLines(final String text) {
+		if (text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+			return text;
+		}
+		final StringBuilder builder = new StringBuilder(text.length());
+		int index = 0;
+		while (index < text.length()) {
+			final char character = text.charAt(index);
+			if (!Character.isWhitespace(character)) {
+				builder.append(character);
+				index++;
+				continue;
+			}
+			int end = index;
+			boolean lineBreak = false;
+			while (end < text.length() && Character.isWhitespace(text.charAt(end))) {
+				lineBreak |= text.charAt(end) == '\n' || text.charAt(end) == '\r';
+				end++;
+			}
+			if (lineBreak) {
+				builder.append(' ');
+			} else {
+				builder.append(text, index, end);
+			}
+			index = end;
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Documentation comment of an element, rendered as Markdown.
+	 */
+	public static final class Comment {
+
+		/** Rendered body. **/
+		private final String body;
+
+		/** Rendered first sentence, on a single line. **/
+		private final String firstSentence;
+
+		/** Rendered parameter descriptions, by name, type parameters names being enclosed in angle brackets. **/
+		private final Map<String, String> params;
+
+		/** Rendered return description, null if none. **/
+		private final String returns;
+
+		/** Rendered exception descriptions, by exception name as written in the comment. **/
+		private final Map<String, String> exceptions;
+
+		/** Rendered exception names, by exception name as written in the comment. **/
+		private final Map<String, String> exceptionNames;
+
+		/** Rendered deprecation description, null if the element is not deprecated by its comment. **/
+		private final String deprecated;
+
+		/** Rendered since description, null if none. **/
+		private final String since;
+
+		/** Rendered see also references. **/
+		private final List<String> see;
+
+		/**
+		 * Constructor of the empty comment.
+		 */
+		private Comment() {
+			this.body = "";
+			this.firstSentence = "";
+			this.params = Collections.emptyMap();
+			this.returns = null;
+			this.exceptions = Collections.emptyMap();
+			this.exceptionNames = Collections.emptyMap();
+			this.deprecated = null;
+			this.since = null;
+			this.see = Collections.emptyList();
+		}
+
+		/**
+		 * Copy constructor, with other parameter descriptions.
+		 *
+		 * @param comment Comment to copy.
+		 * @param params Parameter descriptions of the copy.
+		 */
+		private Comment(final Comment comment, final Map<String, String> params) {
+			this.body = comment.body;
+			this.firstSentence = comment.firstSentence;
+			this.params = params;
+			this.returns = comment.returns;
+			this.exceptions = comment.exceptions;
+			this.exceptionNames = comment.exceptionNames;
+			this.deprecated = comment.deprecated;
+			this.since = comment.since;
+			this.see = comment.see;
+		}
+
+		/**
+		 * Renders the given comment tree. Missing main description,
+		 * parameter and return descriptions are taken from the given
+		 * inherited comment, which also provides the text of the
+		 * {@code {@inheritDoc}} tags.
+		 *
+		 * @param tree Comment tree to render.
+		 * @param renderer Renderer of the comment.
+		 * @param inherited Comment of the overridden method, empty if none.
+		 */
+		private Comment(final DocCommentTree tree, final Renderer renderer, final Comment inherited) {
+			final String body = renderer.render(tree.getFullBody(), inherited.body);
+			this.body = body.isEmpty() ? inherited.body : body;
+			final String firstSentence = joinLines(renderer.render(tree.getFirstSentence(), inherited.firstSentence));
+			this.firstSentence = firstSentence.isEmpty() ? inherited.firstSentence : firstSentence;
+			final Map<String, String> params = new LinkedHashMap<>();
+			final Map<String, String> exceptions = new LinkedHashMap<>();
+			final Map<String, String> exceptionNames = new HashMap<>();
+			final List<String> see = new ArrayList<>();
+			String returns = null;
+			String deprecated = null;
+			String since = null;
+			for (final DocTree tag : tree.getBlockTags()) {
+				switch (tag.getKind()) {
+					case PARAM:
+						final ParamTree param = (ParamTree) tag;
+						final String name = param.isTypeParameter() ? "<" + param.getName().getName() + ">" : param.getName().getName().toString();
+						params.put(name, renderer.render(param.getDescription(), inherited.params.get(name)));
+						break;
+					case RETURN:
+						returns = renderer.render(((ReturnTree) tag).getDescription(), inherited.returns);
+						break;
+					case THROWS:
+					case EXCEPTION:
+						final ThrowsTree exception = (ThrowsTree) tag;
+						final String signature = exception.getExceptionName().getSignature();
+						exceptions.put(signature, renderer.render(exception.getDescription(), inherited.exceptions.get(signature)));
+						exceptionNames.put(signature, renderer.render(List.of(exception.getExceptionName())));
+						break;
+					case DEPRECATED:
+						deprecated = renderer.render(((DeprecatedTree) tag).getBody());
+						break;
+					case SINCE:
+						since = renderer.render(((SinceTree) tag).getBody());
+						break;
+					case SEE:
+						see.add(renderer.renderSee(((SeeTree) tag).getReference()));
+						break;
+					default:
+						break;
+				}
+			}
+			for (final Map.Entry<String, String> param : inherited.params.entrySet()) {
+				params.putIfAbsent(param.getKey(), param.getValue());
+			}
+			this.params = params;
+			this.returns = returns == null ? inherited.returns : returns;
+			this.exceptions = exceptions;
+			this.exceptionNames = exceptionNames;
+			this.deprecated = deprecated;
+			this.since = since;
+			this.see = see;
+		}
+
+		/**
+		 * Returns this comment of the given overridden method with its
+		 * parameter descriptions renamed after the parameters of the
+		 * given overriding method, parameters being matched by position.
+		 *
+		 * @param overridden Method this comment documents.
+		 * @param method Overriding method.
+		 * @return Renamed comment, this comment if no parameter is renamed.
+		 */
+		Comment rename(final ExecutableElement overridden, final ExecutableElement method) {
+			final List<? extends VariableElement> from = overridden.getParameters();
+			final List<? extends VariableElement> to = method.getParameters();
+			if (params.isEmpty() || from.size() != to.size()) {
+				return this;
+			}
+			boolean renamed = false;
+			final Map<String, String> renamedParams = new LinkedHashMap<>();
+			for (final Map.Entry<String, String> param : params.entrySet()) {
+				String name = param.getKey();
+				for (int i = 0; i < from.size(); i++) {
+					if (from.get(i).getSimpleName().contentEquals(name)) {
+						name = to.get(i).getSimpleName().toString();
+						renamed |= !param.getKey().equals(name);
+						break;
+					}
+				}
+				renamedParams.put(name, param.getValue());
+			}
+			return renamed ? new Comment(this, renamedParams) : this;
+		}
+
+		/**
+		 * Getter for the rendered body, without block tags.
+		 *
+		 * @return Rendered body, empty if none.
+		 */
+		public String getBody() {
+			return body;
+		}
+
+		/**
+		 * Getter for the rendered first sentence, on a single line.
+		 *
+		 * @return Rendered first sentence, empty if none.
+		 */
+		public String getFirstSentence() {
+			return firstSentence;
+		}
+
+		/**
+		 * Returns the rendered description of the given parameter.
+		 *
+		 * @param name Name of the parameter, enclosed in angle brackets for type parameters.
+		 * @return Rendered description, null if the parameter is not documented.
+		 */
+		public String getParam(final String name) {
+			return params.get(name);
+		}
+
+		/**
+		 * Getter for the rendered return description.
+		 *
+		 * @return Rendered return description, null if none.
+		 */
+		public String getReturns() {
+			return returns;
+		}
+
+		/**
+		 * Getter for the rendered exception descriptions.
+		 *
+		 * @return Rendered exception descriptions, by exception name as written in the comment.
+		 */
+		public Map<String, String> getExceptions() {
+			return Collections.unmodifiableMap(exceptions);
+		}
+
+		/**
+		 * Returns the rendered name of the given exception, linked to
+		 * its page if it can be resolved.
+		 *
+		 * @param name Exception name as written in the comment.
+		 * @return Rendered exception name, null if the exception is not documented.
+		 */
+		public String getExceptionName(final String name) {
+			return exceptionNames.get(name);
+		}
+
+		/**
+		 * Getter for the rendered deprecation description.
+		 *
+		 * @return Rendered deprecation description, null if the comment has no deprecated tag.
+		 */
+		public String getDeprecated() {
+			return deprecated;
+		}
+
+		/**
+		 * Getter for the rendered since description.
+		 *
+		 * @return Rendered since description, null if none.
+		 */
+		public String getSince() {
+			return since;
+		}
+
+		/**
+		 * Getter for the rendered see also references.
+		 *
+		 * @return Rendered see also references.
+		 */
+		public List<String> getSee() {
+			return Collections.unmodifiableList(see);
+		}
+
+	}
+
+}
@@ -0,0 +1,226 @@
+package com.manxiaozhi.javadocmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Selection of the documented elements: packages matching the include
+ * and exclude package globs, then types and members at least as visible
+ * as the minimum visibility and not annotated with an excluded
+ * annotation. The package globs are compiled once into a single regular
+ * expression each. In a glob, {@code *} matches any part of a package
+ * name segment, {@code **} matches any number of segments, and a glob
+ * ending with {@code .**} also matches the package it starts with.
+ *
+ * @author wangzhi
+ */
+public final class DocumentationFilter {
+
+	/** Filter selecting every element. **/
+	public static final DocumentationFilter ALL = new DocumentationFilter(Visibility.PRIVATE, Collections.emptyList(),
+		Collections.emptyList(), Collections.emptyList());
+
+	/** Minimum visibility of the documented types and members. **/
+	private final Visibility visibility;
+
+	/** Pattern of the included packages, null if every package is included. **/
+	private final Pattern includedPackages;
+
+	/** Pattern of the excluded packages, null if no package is excluded. **/
+	private final Pattern excludedPackages;
+
+	/** Qualified or simple names of the annotations excluding the elements they annotate. **/
+	private final Set<String> excludedAnnotations;
+
+	/** Description of the filter, used to hash page inputs. **/
+	private final String description;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param visibility Minimum visibility of the documented types and members.
+	 * @param includedPackages Globs of the included packages, empty to include every package.
+	 * @param excludedPackages Globs of the excluded packages.
+	 * @param excludedAnnotations Qualified or simple names of the annotations excluding the elements they annotate.
+	 */
+	public DocumentationFilter(final Visibility visibility, final List<String> includedPackages, final List<String> excludedPackages,
+			final List<String> excludedAnnotations) {
+		this.visibility = visibility;
+		this.includedPackages = compile(includedPackages);
+		this.excludedPackages = compile(excludedPackages);
+		this.excludedAnnotations = new TreeSet<>(excludedAnnotations);
+		this.description = visibility + " " + includedPackages + " " + excludedPackages + " " + this.excludedAnnotations;
+	}
+
+	/**
+	 * Compiles the given package globs into a single pattern.
+	 *
+	 * @param globs Package globs.
+	 * @return Pattern matching any of the globs, null if there is none.
+	 */
+	private static Pattern compile(final List<String> globs) {
+		if (globs.isEmpty()) {
+			return null;
+		}
+		final List<String> expressions = new ArrayList<>(globs.size());
+		for (final String glob : globs) {
+			final StringBuilder expression = new StringBuilder();
+			int i = 0;
+			while (i < glob.length()) {
+				if (glob.startsWith(".**", i) && i + 3 == glob.length()) {
+					expression.append("(\\..*)?");
+					i += 3;
+				} else if (glob.startsWith("**", i)) {
+					expression.append(".*");
+					i += 2;
+				} else if (glob.charAt(i) == '*') {
+					expression.append("[^.]*");
+					i++;
+				} else {
+					expression.append(Pattern.quote(String.valueOf(glob.charAt(i))));
+					i++;
+				}
+			}
+			expressions.add(expression.toString());
+		}
+		return Pattern.compile(String.join("|", expressions));
+	}
+
+	/**
+	 * Indicates if the given package is documented: matched by the
+	 * included packages, not matched by the excluded packages and not
+	 * annotated with an excluded annotation.
+	 *
+	 * @param packageElement Package to check.
+	 * @return true if the package is documented, false otherwise.
+	 */
+	public boolean isDocumented(final PackageElement packageElement) {
+		final String name = packageElement.getQualifiedName().toString();
+		return (includedPackages == null || includedPackages.matcher(name).matches())
+			&& (excludedPackages == null || !excludedPackages.matcher(name).matches())
+			&& !isExcludedByAnnotation(packageElement);
+	}
+
+	/**
+	 * Indicates if the given type or member is documented: at least as
+	 * visible as the minimum visibility and not annotated with an
+	 * excluded annotation. Enclosing elements are not checked.
+	 *
+	 * @param element Type or member to check.
+	 * @return true if the element is documented, false otherwise.
+	 */
+	public boolean isDocumented(final Element element) {
+		return Visibility.of(element).compareTo(visibility) <= 0 && !isExcludedByAnnotation(element);
+	}
+
+	/**
+	 * Indicates if the given element is annotated with an excluded
+	 * annotation.
+	 *
+	 * @param element Element to check.
+	 * @return true if the element is excluded, false otherwise.
+	 */
+	private boolean isExcludedByAnnotation(final Element element) {
+		if (excludedAnnotations.isEmpty()) {
+			return false;
+		}
+		for (final AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			final TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+			if (excludedAnnotations.contains(annotationType.getQualifiedName().toString())
+					|| excludedAnnotations.contains(annotationType.getSimpleName().toString())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Indicates if this filter selects every element.
+	 *
+	 * @return true if no element is filtered out, false otherwise.
+	 */
+	public boolean isAll() {
+		return visibility == Visibility.PRIVATE && includedPackages == null && excludedPackages == null && excludedAnnotations.isEmpty();
+	}
+
+	/**
+	 * Describes the filter, two filters with the same description
+	 * selecting the same elements.
+	 *
+	 * @return Description of the filter.
+	 */
+	@Override
+	public String toString() {
+		return description;
+	}
+
+	/**
+	 * Visibility levels, from the most to the least visible.
+	 */
+	public enum Visibility {
+
+		/** Public elements. **/
+		PUBLIC,
+
+		/** Protected elements. **/
+		PROTECTED,
+
+		/** Package private elements. **/
+		PACKAGE,
+
+		/** Private elements. **/
+		PRIVATE;
+
+		/**
+		 * Returns the visibility of the given element. Members of
+		 * interfaces which are not private are public.
+		 *
+		 * @param element Element to get visibility of.
+		 * @return Visibility of the element.
+		 */
+		public static Visibility of(final Element element) {
+			final Set<Modifier> modifiers = element.getModifiers();
+			if (modifiers.contains(Modifier.PUBLIC)) {
+				return PUBLIC;
+			}
+			if (modifiers.contains(Modifier.PROTECTED)) {
+				return PROTECTED;
+			}
+			if (modifiers.contains(Modifier.PRIVATE)) {
+				return PRIVATE;
+			}
+			if (element.getEnclosingElement() != null && element.getEnclosingElement().getKind().isInterface()) {
+				return PUBLIC;
+			}
+			return PACKAGE;
+		}
+
+		/**
+		 * Returns the visibility of the given name.
+		 *
+		 * @param name Name of the visibility, case insensitive.
+		 * @return Visibility, null if the name is unknown.
+		 */
+		public static Visibility parse(final String name) {
+			for (final Visibility visibility : values()) {
+				if (visibility.name().equals(name.toUpperCase(Locale.ROOT))) {
+					return visibility;
+				}
+			}
+			return null;
+		}
+
+	}
+
+}
@@ -0,0 +1,337 @@
+package com.manxiaozhi.javadocmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+
+import jdk.javadoc.doclet.DocletEnvironment;
+
+/**
+ * Index of the documented elements, built in a single pass over
+ * the included elements of the doclet environment. It replaces
+ * per-package scans of the environment by constant time lookups.
+ * Elements rejected by the {@link DocumentationFilter} are pruned
+ * while the index is built, before any page is rendered: types of
+ * excluded packages, types and members under the minimum visibility
+ * or annotated with an excluded annotation, and the types nested in
+ * excluded types.
+ * <p>
+ * The included elements of the environment form a set without a
+ * defined order, so the index sorts them: packages by qualified name,
+ * and the types of a package by file name, that is by their simple
+ * name prefixed by the names of their enclosing types, which puts
+ * nested types right after their enclosing type. Names are compared
+ * by UTF-16 code unit, whatever the locale. Members keep their
+ * declaration order. Every page, table and index is generated in
+ * this order, so that the same sources always give the same output.
+ *
+ * @author wangzhi
+ */
+public final class ElementIndex {
+
+	/** Documented types of each package, sorted by file name, packages sorted by qualified name. **/
+	private final Map<PackageElement, List<TypeElement>> packageTypes;
+
+	/** Package of each documented type. **/
+	private final Map<TypeElement, PackageElement> typePackages;
+
+	/** File name, without extension, of each documented type. **/
+	private final Map<TypeElement, String> fileNames;
+
+	/** Documented types by qualified name. **/
+	private final Map<String, TypeElement> typesByName;
+
+	/** Every documented type, sorted by package then by file name. **/
+	private final List<TypeElement> types;
+
+	/** Documented members of each documented type, in declaration order. **/
+	private final Map<TypeElement, List<Element>> members;
+
+	/** Filter of the documented elements. **/
+	private final DocumentationFilter filter;
+
+	/** Number of types pruned by the filter. **/
+	private int prunedTypes;
+
+	/** Number of members pruned by the filter. **/
+	private int prunedMembers;
+
+	/**
+	 * Builds the index of every included element of the given environment.
+	 *
+	 * @param environment Doclet environment to index.
+	 */
+	public ElementIndex(final DocletEnvironment environment) {
+		this(environment, DocumentationFilter.ALL);
+	}
+
+	/**
+	 * Builds the index of the included elements of the given environment
+	 * selected by the given filter.
+	 *
+	 * @param environment Doclet environment to index.
+	 * @param filter Filter of the documented elements.
+	 */
+	public ElementIndex(final DocletEnvironment environment, final DocumentationFilter filter) {
+		this.typePackages = new HashMap<>();
+		this.fileNames = new HashMap<>();
+		this.typesByName = new HashMap<>();
+		this.types = new ArrayList<>();
+		this.members = new HashMap<>();
+		this.filter = filter;
+		final Elements elementUtils = environment.getElementUtils();
+		final Map<PackageElement, Boolean> documentedPackages = new HashMap<>();
+		final Map<PackageElement, List<TypeElement>> encounteredTypes = new HashMap<>();
+		for (final Element element : environment.getIncludedElements()) {
+			if (isDocumentedType(element)) {
+				final TypeElement typeElement = (TypeElement) element;
+				final PackageElement packageElement = elementUtils.getPackageOf(typeElement);
+				if (!documentedPackages.computeIfAbsent(packageElement, filter::isDocumented) || !isSelected(typeElement)) {
+					prunedTypes++;
+					continue;
+				}
+				encounteredTypes.computeIfAbsent(packageElement, key -> new ArrayList<>()).add(typeElement);
+				typePackages.put(typeElement, packageElement);
+				typesByName.put(typeElement.getQualifiedName().toString(), typeElement);
+				computeFileName(typeElement);
+			}
+		}
+		final List<PackageElement> packages = new ArrayList<>(encounteredTypes.keySet());
+		packages.sort(Comparator.comparing(packageElement -> packageElement.getQualifiedName().toString()));
+		this.packageTypes = new LinkedHashMap<>();
+		for (final PackageElement packageElement : packages) {
+			final List<TypeElement> packageTypeList = encounteredTypes.get(packageElement);
+			packageTypeList.sort(Comparator.comparing(fileNames::get));
+			packageTypes.put(packageElement, packageTypeList);
+			types.addAll(packageTypeList);
+		}
+		for (final TypeElement typeElement : types) {
+			final List<Element> documented = new ArrayList<>();
+			for (final Element member : typeElement.getEnclosedElements()) {
+				if (member instanceof TypeElement) {
+					if (typesByName.containsKey(((TypeElement) member).getQualifiedName().toString())) {
+						documented.add(member);
+					}
+				} else if (filter.isDocumented(member)) {
+					documented.add(member);
+				} else {
+					prunedMembers++;
+				}
+			}
+			members.put(typeElement, documented);
+		}
+	}
+
+	/**
+	 * Indicates if the given type and its enclosing types are selected
+	 * by the filter.
+	 *
+	 * @param typeElement Type to check.
+	 * @return true if the type is selected, false otherwise.
+	 */
+	private boolean isSelected(final TypeElement typeElement) {
+		Element element = typeElement;
+		while (element instanceof TypeElement) {
+			if (!filter.isDocumented(element)) {
+				return false;
+			}
+			element = element.getEnclosingElement();
+		}
+		return true;
+	}
+
+	/**
+	 * Indicates if the given element is a type this doclet documents.
+	 *
+	 * @param element Element to check.
+	 * @return true if the element is a documented type, false otherwise.
+	 */
+	private static boolean isDocumentedType(final Element element) {
+		final ElementKind kind = element.getKind();
+		return kind == ElementKind.CLASS || kind == ElementKind.INTERFACE || kind == ElementKind.ENUM;
+	}
+
+	/**
+	 * Computes and caches the file name of the given type, which for
+	 * nested types is prefixed by the names of its enclosing types.
+	 * Enclosing types names are reused from the cache when available.
+	 *
+	 * @param typeElement Type to compute file name for.
+	 * @return File name of the type, without extension.
+	 */
+	private String computeFileName(final TypeElement typeElement) {
+		final String cached = fileNames.get(typeElement);
+		if (cached != null) {
+			return cached;
+		}
+		final String simpleName = typeElement.getSimpleName().toString();
+		final String fileName;
+		if (typeElement.getNestingKind().isNested() && typeElement.getEnclosingElement() instanceof TypeElement) {
+			fileName = computeFileName((TypeElement) typeElement.getEnclosingElement()) + "." + simpleName;
+		} else {
+			fileName = simpleName;
+		}
+		fileNames.put(typeElement, fileName);
+		return fileName;
+	}
+
+	/**
+	 * Returns the packages containing at least one documented type.
+	 *
+	 * @return Indexed packages, sorted by qualified name.
+	 */
+	public List<PackageElement> getPackages() {
+		return new ArrayList<>(packageTypes.keySet());
+	}
+
+	/**
+	 * Returns every documented type, nested ones included.
+	 *
+	 * @return Indexed types, sorted by package then by file name.
+	 */
+	public List<TypeElement> getTypes() {
+		return Collections.unmodifiableList(types);
+	}
+
+	/**
+	 * Returns every documented type of the given package, nested ones included.
+	 *
+	 * @param packageElement Package to get types of.
+	 * @return Types of the package sorted by file name, empty if the package is not indexed.
+	 */
+	public List<TypeElement> getTypes(final PackageElement packageElement) {
+		return Collections.unmodifiableList(packageTypes.getOrDefault(packageElement, Collections.emptyList()));
+	}
+
+	/**
+	 * Returns the documented top level types of the given package.
+	 *
+	 * @param packageElement Package to get types of.
+	 * @return Top level types of the package, sorted by name.
+	 */
+	public List<TypeElement> getTopLevelTypes(final PackageElement packageElement) {
+		final List<TypeElement> topLevelTypes = new ArrayList<>();
+		for (final TypeElement typeElement : getTypes(packageElement)) {
+			if (packageElement.equals(typeElement.getEnclosingElement())) {
+				topLevelTypes.add(typeElement);
+			}
+		}
+		return topLevelTypes;
+	}
+
+	/**
+	 * Returns the documented members of the given type: its fields,
+	 * constructors, methods and nested types selected by the filter.
+	 * Members of a type which is not indexed, such as a supertype of a
+	 * documented type, are filtered on each call.
+	 *
+	 * @param typeElement Type to get members of.
+	 * @return Documented members, in declaration order.
+	 */
+	public List<Element> getMembers(final TypeElement typeElement) {
+		final List<Element> documented = members.get(typeElement);
+		if (documented != null) {
+			return Collections.unmodifiableList(documented);
+		}
+		final List<Element> filtered = new ArrayList<>();
+		for (final Element member : typeElement.getEnclosedElements()) {
+			if (filter.isDocumented(member)) {
+				filtered.add(member);
+			}
+		}
+		return filtered;
+	}
+
+	/**
+	 * Indicates if the given member is selected by the filter, its
+	 * enclosing type being documented or not.
+	 *
+	 * @param member Member to check.
+	 * @return true if the member is documented, false otherwise.
+	 */
+	public boolean isDocumented(final Element member) {
+		return filter.isDocumented(member);
+	}
+
+	/**
+	 * Getter for the filter of the documented elements.
+	 *
+	 * @return Filter of the documented elements.
+	 */
+	public DocumentationFilter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Getter for the number of types pruned by the filter.
+	 *
+	 * @return Number of pruned types.
+	 */
+	public int getPrunedTypes() {
+		return prunedTypes;
+	}
+
+	/**
+	 * Getter for the number of members of the documented types pruned
+	 * by the filter.
+	 *
+	 * @return Number of pruned members.
+	 */
+	public int getPrunedMembers() {
+		return prunedMembers;
+	}
+
+	/**
+	 * Returns the package of the given documented type.
+	 *
+	 * @param typeElement Documented type.
+	 * @return Package of the type, or null if the type is not indexed.
+	 */
+	public PackageElement getPackage(final TypeElement typeElement) {
+		return typePackages.get(typeElement);
+	}
+
+	/**
+	 * Returns the documented type of the given qualified name.
+	 *
+	 * @param qualifiedName Qualified name of the type.
+	 * @return Documented type, or null if no such type is indexed.
+	 */
+	public TypeElement getType(final String qualifiedName) {
+		return typesByName.get(qualifiedName);
+	}
+
+	/**
+	 * Returns the file name, without extension, of the given type. For
+	 * nested types, the name is prefixed by the enclosing type names,
+	 * such as <code>Outer.Inner</code>.
+	 *
+	 * @param typeElement Type to get file name of.
+	 * @return File name of the type.
+	 */
+	public String getFileName(final TypeElement typeElement) {
+		return computeFileName(typeElement);
+	}
+
+	/**
+	 * Returns the directory of the given package, relative to
+	 * the output directory.
+	 *
+	 * @param packageElement Package to get directory of.
+	 * @return Relative directory of the package.
+	 */
+	public static String getPackageDirectory(final PackageElement packageElement) {
+		return packageElement.getQualifiedName().toString().replace('.', '/');
+	}
+
+}
@@ -0,0 +1,166 @@
+package com.manxiaozhi.javadocmark;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the doclet, recorded with the usual
+ * JFR tooling, for instance by running javadoc with
+ * {@code -J-XX:StartFlightRecording=filename=javadocmark.jfr}. They
+ * attribute the time of a run to the element index, to each rendered
+ * page, to each parsed comment and to each written page. When no
+ * recording is running, events are disabled and cost next to nothing:
+ * their fields are only computed once {@link Event#shouldCommit()}
+ * says the event is recorded.
+ *
+ * @author wangzhi
+ */
+public final class FlightEvents {
+
+	/** Category of every event. **/
+	private static final String CATEGORY = "JavadocMark";
+
+	/**
+	 * Private constructor for avoiding instantiation.
+	 */
+	private FlightEvents() {
+		// Do nothing.
+	}
+
+	/**
+	 * Returns the name of the given element in events: the qualified
+	 * name of packages and types, and the qualified name of the type
+	 * followed by the signature of members.
+	 *
+	 * @param element Element to get name of.
+	 * @return Name of the element.
+	 */
+	static String getName(final Element element) {
+		if (element instanceof PackageElement) {
+			return ((PackageElement) element).getQualifiedName().toString();
+		}
+		if (element instanceof TypeElement) {
+			return ((TypeElement) element).getQualifiedName().toString();
+		}
+		final Element enclosing = element.getEnclosingElement();
+		return enclosing == null ? element.toString() : getName(enclosing) + "#" + element;
+	}
+
+	/**
+	 * Build of the index of the documented elements.
+	 */
+	@Name("com.manxiaozhi.javadocmark.Index")
+	@Label("Element Index")
+	@Description("Build of the index of the documented elements, filtering included")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static final class IndexEvent extends Event {
+
+		/** Number of indexed packages. **/
+		@Label("Packages")
+		int packages;
+
+		/** Number of indexed types. **/
+		@Label("Types")
+		int types;
+
+		/** Number of types pruned by the filter. **/
+		@Label("Pruned Types")
+		int prunedTypes;
+
+		/** Number of members pruned by the filter. **/
+		@Label("Pruned Members")
+		int prunedMembers;
+
+	}
+
+	/**
+	 * Rendering of a package, type or member page. Streamed pages are
+	 * written while rendered, so their duration includes writing.
+	 */
+	@Name("com.manxiaozhi.javadocmark.Render")
+	@Label("Page Rendering")
+	@Description("Rendering of a package, type or member page, writing included for streamed pages")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static final class RenderEvent extends Event {
+
+		/** Kind of the page. **/
+		@Label("Kind")
+		String kind;
+
+		/** Qualified name of the documented element. **/
+		@Label("Element")
+		String element;
+
+		/** Number of documented types of a package, or of documented members of a type. **/
+		@Label("Members")
+		int members;
+
+		/** Number of rendered characters. **/
+		@Label("Rendered Characters")
+		long characters;
+
+		/** Number of written bytes, for streamed pages. **/
+		@Label("Streamed Bytes")
+		@DataAmount
+		long bytes;
+
+	}
+
+	/**
+	 * Parsing and rendering of the documentation comment of an element.
+	 */
+	@Name("com.manxiaozhi.javadocmark.Comment")
+	@Label("Comment Parsing")
+	@Description("Parsing and rendering of a documentation comment, inherited comments included")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static final class CommentEvent extends Event {
+
+		/** Name of the commented element. **/
+		@Label("Element")
+		String element;
+
+		/** Number of characters of the rendered body. **/
+		@Label("Rendered Characters")
+		long characters;
+
+	}
+
+	/**
+	 * Writing of a rendered page, or comparison with the existing file
+	 * when unchanged files are kept.
+	 */
+	@Name("com.manxiaozhi.javadocmark.Write")
+	@Label("Page Write")
+	@Description("Writing of a rendered page to its file, comparison with the existing file included")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static final class WriteEvent extends Event {
+
+		/** Path of the page file. **/
+		@Label("Path")
+		String path;
+
+		/** Number of written bytes, 0 if the file was left untouched. **/
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		/** Indicates if the file already held the page and was left untouched. **/
+		@Label("Unchanged")
+		boolean unchanged;
+
+	}
+
+}
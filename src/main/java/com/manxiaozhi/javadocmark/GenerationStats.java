@@ -0,0 +1,398 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a generation run: per phase timings, page and byte
+ * counters, and the slowest generated types. Counters may be
+ * updated concurrently by the writer threads.
+ *
+ * @author wangzhi
+ */
+public final class GenerationStats {
+
+	/** Number of slowest types kept in the report. **/
+	public static final int SLOWEST_TYPES = 20;
+
+	/**
+	 * Generation phases.
+	 */
+	public enum Phase {
+
+		/** Collection of the elements included by javadoc. **/
+		SCAN,
+
+		/** Indexing of the documented elements. **/
+		INDEX,
+
+		/** Rendering of pages, summed over pages. **/
+		RENDER,
+
+		/** Writing of pages, summed over pages and writer threads. **/
+		WRITE
+
+	}
+
+	/** Time spent in each phase, in nanoseconds. **/
+	private final LongAdder [] phaseNanos;
+
+	/** Number of pages written. **/
+	private final LongAdder pagesWritten;
+
+	/** Number of rendered pages left untouched because their file content did not change. **/
+	private final LongAdder pagesUnchanged;
+
+	/** Number of pages skipped because they were up to date. **/
+	private final LongAdder pagesSkipped;
+
+	/** Number of stale pages removed. **/
+	private final LongAdder pagesRemoved;
+
+	/** Number of bytes written. **/
+	private final LongAdder bytesWritten;
+
+	/** Estimated number of tokens of each page, by page path. **/
+	private final Map<String, Long> pageTokens;
+
+	/** Slowest types, the fastest of them at the head. **/
+	private final PriorityQueue<PageTiming> slowest;
+
+	/** Start time of the run, in nanoseconds. **/
+	private final long start;
+
+	/** Duration of the run, in nanoseconds, set once the run completes. **/
+	private long duration;
+
+	/**
+	 * Default constructor, starting the run timer.
+	 */
+	public GenerationStats() {
+		this.phaseNanos = new LongAdder[Phase.values().length];
+		for (int i = 0; i < phaseNanos.length; i++) {
+			phaseNanos[i] = new LongAdder();
+		}
+		this.pagesWritten = new LongAdder();
+		this.pagesUnchanged = new LongAdder();
+		this.pagesSkipped = new LongAdder();
+		this.pagesRemoved = new LongAdder();
+		this.bytesWritten = new LongAdder();
+		this.pageTokens = new TreeMap<>();
+		this.slowest = new PriorityQueue<>(Comparator.comparingLong(PageTiming::getTotalNanos));
+		this.start = System.nanoTime();
+	}
+
+	/**
+	 * Adds the given duration to the given phase.
+	 *
+	 * @param phase Phase to add duration to.
+	 * @param nanos Duration in nanoseconds.
+	 */
+	public void addPhase(final Phase phase, final long nanos) {
+		phaseNanos[phase.ordinal()].add(nanos);
+	}
+
+	/**
+	 * Records a written page.
+	 *
+	 * @param typeName Qualified name of the documented type, null for package pages.
+	 * @param renderNanos Time spent rendering the page, in nanoseconds.
+	 * @param writeNanos Time spent writing the page, in nanoseconds.
+	 * @param bytes Number of bytes written.
+	 */
+	public void recordPage(final String typeName, final long renderNanos, final long writeNanos, final long bytes) {
+		addPhase(Phase.RENDER, renderNanos);
+		addPhase(Phase.WRITE, writeNanos);
+		pagesWritten.increment();
+		bytesWritten.add(bytes);
+		if (typeName != null) {
+			final PageTiming timing = new PageTiming(typeName, renderNanos, writeNanos, bytes);
+			synchronized (slowest) {
+				if (slowest.size() < SLOWEST_TYPES) {
+					slowest.add(timing);
+				} else if (slowest.peek().getTotalNanos() < timing.getTotalNanos()) {
+					slowest.poll();
+					slowest.add(timing);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records a rendered page whose file was left untouched because
+	 * its content did not change.
+	 *
+	 * @param renderNanos Time spent rendering the page, in nanoseconds.
+	 * @param compareNanos Time spent comparing the page with its file, in nanoseconds.
+	 */
+	public void recordUnchanged(final long renderNanos, final long compareNanos) {
+		addPhase(Phase.RENDER, renderNanos);
+		addPhase(Phase.WRITE, compareNanos);
+		pagesUnchanged.increment();
+	}
+
+	/**
+	 * Records the estimated number of tokens of a page.
+	 *
+	 * @param page Path of the page, relative to the output directory.
+	 * @param tokens Estimated number of tokens.
+	 */
+	public void recordTokens(final String page, final long tokens) {
+		synchronized (pageTokens) {
+			pageTokens.put(page, tokens);
+		}
+	}
+
+	/**
+	 * Returns the estimated number of tokens of every recorded page.
+	 *
+	 * @return Estimated number of tokens.
+	 */
+	public long getEstimatedTokens() {
+		long total = 0;
+		synchronized (pageTokens) {
+			for (final long tokens : pageTokens.values()) {
+				total += tokens;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Records a page skipped because it was up to date.
+	 */
+	public void recordSkipped() {
+		pagesSkipped.increment();
+	}
+
+	/**
+	 * Records a removed stale page.
+	 */
+	public void recordRemoved() {
+		pagesRemoved.increment();
+	}
+
+	/**
+	 * Stops the run timer.
+	 */
+	public void complete() {
+		duration = System.nanoTime() - start;
+	}
+
+	/**
+	 * Getter for the number of pages written.
+	 *
+	 * @return Number of pages written.
+	 */
+	public long getPagesWritten() {
+		return pagesWritten.sum();
+	}
+
+	/**
+	 * Getter for the number of rendered pages left untouched.
+	 *
+	 * @return Number of unchanged pages.
+	 */
+	public long getPagesUnchanged() {
+		return pagesUnchanged.sum();
+	}
+
+	/**
+	 * Getter for the number of pages skipped.
+	 *
+	 * @return Number of pages skipped.
+	 */
+	public long getPagesSkipped() {
+		return pagesSkipped.sum();
+	}
+
+	/**
+	 * Getter for the number of bytes written.
+	 *
+	 * @return Number of bytes written.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	/**
+	 * Returns a one line summary of the run.
+	 *
+	 * @return Run summary.
+	 */
+	public String summary() {
+		return String.format("%d pages written (%d bytes), %d unchanged, %d skipped, %d removed, ~%d tokens in %d ms",
+			getPagesWritten(), getBytesWritten(), getPagesUnchanged(), getPagesSkipped(), pagesRemoved.sum(), getEstimatedTokens(),
+			toMillis(duration));
+	}
+
+	/**
+	 * Writes the JSON report of the run to the given file. Without run
+	 * metrics, durations, page counts, written bytes and the slowest
+	 * types, which depend on the machine and on the previous output
+	 * rather than on the sources, are left out, so that the same
+	 * sources always give the same report.
+	 *
+	 * @param file File to write report to.
+	 * @param runMetrics true to report run metrics, false for a reproducible report.
+	 * @throws IOException If any error occurs while writing the report.
+	 */
+	public void writeReport(final Path file, final boolean runMetrics) throws IOException {
+		final Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("{\n");
+			if (runMetrics) {
+				writer.write("  \"durationMillis\": " + toMillis(duration) + ",\n");
+				writer.write("  \"phases\": {\n");
+				final Phase [] phases = Phase.values();
+				for (int i = 0; i < phases.length; i++) {
+					writer.write("    \"" + phases[i].name().toLowerCase(Locale.ROOT) + "Millis\": " + toMillis(phaseNanos[i].sum()));
+					writer.write(i < phases.length - 1 ? ",\n" : "\n");
+				}
+				writer.write("  },\n");
+				writer.write("  \"pages\": {\n");
+				writer.write("    \"written\": " + getPagesWritten() + ",\n");
+				writer.write("    \"unchanged\": " + getPagesUnchanged() + ",\n");
+				writer.write("    \"skipped\": " + getPagesSkipped() + ",\n");
+				writer.write("    \"removed\": " + pagesRemoved.sum() + "\n");
+				writer.write("  },\n");
+				writer.write("  \"bytesWritten\": " + getBytesWritten() + ",\n");
+			}
+			writer.write("  \"estimatedTokens\": " + getEstimatedTokens() + ",\n");
+			writer.write("  \"pageTokens\": {");
+			synchronized (pageTokens) {
+				boolean first = true;
+				for (final Map.Entry<String, Long> entry : pageTokens.entrySet()) {
+					writer.write(first ? "\n" : ",\n");
+					writer.write("    \"" + escape(entry.getKey()) + "\": " + entry.getValue());
+					first = false;
+				}
+				writer.write(first ? "}" : "\n  }");
+			}
+			if (runMetrics) {
+				writer.write(",\n  \"slowestTypes\": [");
+				final List<PageTiming> slowestTimings;
+				synchronized (slowest) {
+					slowestTimings = new ArrayList<>(slowest);
+				}
+				slowestTimings.sort(Comparator.comparingLong(PageTiming::getTotalNanos).reversed());
+				for (int i = 0; i < slowestTimings.size(); i++) {
+					final PageTiming timing = slowestTimings.get(i);
+					writer.write(i == 0 ? "\n" : ",\n");
+					writer.write("    {\"name\": \"" + escape(timing.name) + "\""
+						+ ", \"renderMicros\": " + TimeUnit.NANOSECONDS.toMicros(timing.renderNanos)
+						+ ", \"writeMicros\": " + TimeUnit.NANOSECONDS.toMicros(timing.writeNanos)
+						+ ", \"bytes\": " + timing.bytes + "}");
+				}
+				writer.write(slowestTimings.isEmpty() ? "]" : "\n  ]");
+			}
+			writer.write("\n}\n");
+		}
+	}
+
+	/**
+	 * Converts the given duration to milliseconds.
+	 *
+	 * @param nanos Duration in nanoseconds.
+	 * @return Duration in milliseconds.
+	 */
+	private static long toMillis(final long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	/**
+	 * Escapes the given value for a JSON string.
+	 *
+	 * @param value Value to escape.
+	 * @return Escaped value.
+	 */
+	static String escape(final String value) {
+		final StringBuilder builder = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					builder.append("\\\"");
+					break;
+				case '\\':
+					builder.append("\\\\");
+					break;
+				case '\n':
+					builder.append("\\n");
+					break;
+				case '\r':
+					builder.append("\\r");
+					break;
+				case '\t':
+					builder.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						builder.append(String.format("\\u%04x", (int) c));
+					} else {
+						builder.append(c);
+					}
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Timing of a single type page.
+	 */
+	private static final class PageTiming {
+
+		/** Qualified name of the type. **/
+		private final String name;
+
+		/** Render duration, in nanoseconds. **/
+		private final long renderNanos;
+
+		/** Write duration, in nanoseconds. **/
+		private final long writeNanos;
+
+		/** Number of bytes written. **/
+		private final long bytes;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param name Qualified name of the type.
+		 * @param renderNanos Render duration, in nanoseconds.
+		 * @param writeNanos Write duration, in nanoseconds.
+		 * @param bytes Number of bytes written.
+		 */
+		PageTiming(final String name, final long renderNanos, final long writeNanos, final long bytes) {
+			this.name = name;
+			this.renderNanos = renderNanos;
+			this.writeNanos = writeNanos;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Returns the total duration of the page generation.
+		 *
+		 * @return Total duration, in nanoseconds.
+		 */
+		long getTotalNanos() {
+			return renderNanos + writeNanos;
+		}
+
+	}
+
+}
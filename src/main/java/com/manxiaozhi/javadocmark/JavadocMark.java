@@ -4,12 +4,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
@@ -33,6 +31,12 @@ public final class JavadocMark implements Doclet {
 	/** Output directory option name. **/
 	private static final String OUTPUT_DIRECTORY = "-d";
 
+	/** Maximum number of rendered characters waiting to be written in parallel mode. **/
+	private static final int IN_FLIGHT_LIMIT = 64 * 1024 * 1024;
+
+	/** Maximum number of rendered characters waiting to be written in parallel low memory mode. **/
+	private static final int LOW_MEMORY_IN_FLIGHT_LIMIT = 4 * 1024 * 1024;
+
 	/** Doclet environment instance. **/
 	private DocletEnvironment environment;
 
@@ -45,11 +49,41 @@ public final class JavadocMark implements Doclet {
 	/** Options instance. **/
 	private JavadocMarkOptions options;
 
+	/** Output stage pages are written through. **/
+	private PageWriter pageWriter;
+
+	/** Token budget of the run. **/
+	private TokenBudget budget;
+
+	/** Writer of the API index, null if no index is requested. **/
+	private ApiIndexWriter apiIndex;
+
+	/** Embedding chunk export of the current run, null if not requested. **/
+	private ChunkWriter chunks;
+
+	/** Builder of the search index, null if no index is requested. **/
+	private SearchIndexBuilder searchIndex;
+
+	/** Writer of the bundle output, null if pages are not bundled. **/
+	private BundleWriter bundle;
+
+	/** Writer pages are streamed with, null if pages are not streamed. **/
+	private Utf8ChannelWriter streamWriter;
+
+	/** Manifest of previously generated pages, null if generation is not incremental. **/
+	private PageManifest manifest;
+
+	/** Layout of the split type pages of the current run. **/
+	private PageSplitter splitter;
+
+	/** Metrics of the current run. **/
+	private GenerationStats stats;
+
 	/**
 	 * Default constructor.
 	 */
 	public JavadocMark() {
-		System.out.println("[JavadocMark] Initializing JavadocMark doclet");
+		JavadocMarkLogger.debug("JavadocMark", "Initializing JavadocMark doclet");
 	}
 
 	/**
@@ -60,7 +94,7 @@ public final class JavadocMark implements Doclet {
 	 */
 	@Override
 	public void init(Locale locale, Reporter reporter) {
-		System.out.println("[JavadocMark] Initializing doclet with locale: " + locale);
+		JavadocMarkLogger.debug("JavadocMark", "Initializing doclet with locale: " + locale);
 		this.reporter = reporter;
 		this.options = new JavadocMarkOptions(reporter);
 	}
@@ -82,8 +116,7 @@ public final class JavadocMark implements Doclet {
 	 */
 	@Override
 	public Set<? extends Option> getSupportedOptions() {
-		System.out.println("[JavadocMark] Getting supported options");
-		return Set.of(options);
+		return options.getSupportedOptions();
 	}
 
 	/**
@@ -104,97 +137,466 @@ public final class JavadocMark implements Doclet {
 	 */
 	@Override
 	public boolean run(final DocletEnvironment environment) {
-		System.out.println("[JavadocMark] Starting documentation generation");
+		JavadocMarkLogger.info("JavadocMark", "Starting documentation generation");
 		try {
 			this.environment = environment;
 			this.outputDirectory = options.getOutputDirectory();
-			System.out.println("[JavadocMark] Output directory: " + outputDirectory);
-
-			if (!Files.exists(outputDirectory)) {
-				System.out.println("[JavadocMark] Creating output directory");
-				Files.createDirectories(outputDirectory);
-			}
-
-			final Elements elementUtils = environment.getElementUtils();
-			final List<PackageElement> packages = new ArrayList<>();
-			final List<TypeElement> classes = new ArrayList<>();
-			System.out.println("[JavadocMark] Processing included elements");
-			
-			for (final Element element : environment.getIncludedElements()) {
-				if (element.getKind() == ElementKind.CLASS || 
-					element.getKind() == ElementKind.INTERFACE || 
-					element.getKind() == ElementKind.ENUM) {
-					final TypeElement typeElement = (TypeElement) element;
-					final PackageElement packageElement = elementUtils.getPackageOf(typeElement);
-					if (!packages.contains(packageElement)) {
-						System.out.println("[JavadocMark] Found package: " + packageElement.getQualifiedName());
-						packages.add(packageElement);
-					}
-					System.out.println("[JavadocMark] Found class: " + typeElement.getQualifiedName());
-					classes.add(typeElement);
-				}
+			this.stats = new GenerationStats();
+			JavadocMarkLogger.info("JavadocMark", "Output directory: " + outputDirectory);
+			if (options.isLowMemory()) {
+				JavadocMarkLogger.info("JavadocMark", "Low memory mode: packages are processed one at a time");
+			}
+			int writerThreads = 1;
+			if (options.isStreaming() || options.isLowMemory() && options.getThreads() == 1) {
+				JavadocMarkLogger.info("JavadocMark", "Streaming pages while rendering them");
+				streamWriter = new Utf8ChannelWriter();
+			} else if (options.getThreads() > 1) {
+				JavadocMarkLogger.info("JavadocMark", "Writing pages with " + options.getThreads() + " threads");
+				writerThreads = options.getThreads();
+			}
+			if (options.isReproducible()) {
+				JavadocMarkLogger.info("JavadocMark", "Writing reproducible output, files dated " + options.getTimestamp());
+			}
+			pageWriter = new PageWriter(writerThreads, options.isLowMemory() ? LOW_MEMORY_IN_FLIGHT_LIMIT : IN_FLIGHT_LIMIT, stats,
+				options.isKeepUnchanged(), options.getTimestamp());
+			pageWriter.createDirectories(outputDirectory);
+			budget = new TokenBudget(options.getPageTokens(), options.getRunTokens());
+			if (options.isCompact()) {
+				JavadocMarkLogger.info("JavadocMark", "Rendering type pages with the compact profile");
+			} else if (options.getPageTokens() > 0) {
+				JavadocMarkLogger.info("JavadocMark", "Page token budget only applies to the compact profile, ignored");
+			}
+			if (budget.isRunLimited()) {
+				JavadocMarkLogger.info("JavadocMark", "Run token budget set, every page is regenerated");
+			}
+			if (options.getBundleSize() > 0) {
+				JavadocMarkLogger.info("JavadocMark", "Bundling pages into files of at most " + options.getBundleSize() + " bytes");
+				bundle = new BundleWriter(outputDirectory, options.getBundleSize(), pageWriter);
+			}
+			if (options.isIncremental()) {
+				manifest = PageManifest.load(outputDirectory);
 			}
 
-			System.out.println("[JavadocMark] Generating documentation for " + packages.size() + " packages");
+			long phaseStart = System.nanoTime();
+			final int includedElements = environment.getIncludedElements().size();
+			stats.addPhase(GenerationStats.Phase.SCAN, System.nanoTime() - phaseStart);
+			phaseStart = System.nanoTime();
+			final FlightEvents.IndexEvent indexEvent = new FlightEvents.IndexEvent();
+			indexEvent.begin();
+			final ElementIndex index = new ElementIndex(environment, options.getFilter());
+			indexEvent.end();
+			if (indexEvent.shouldCommit()) {
+				indexEvent.packages = index.getPackages().size();
+				indexEvent.types = index.getTypes().size();
+				indexEvent.prunedTypes = index.getPrunedTypes();
+				indexEvent.prunedMembers = index.getPrunedMembers();
+				indexEvent.commit();
+			}
+			if (index.getPrunedTypes() > 0 || index.getPrunedMembers() > 0) {
+				JavadocMarkLogger.info("JavadocMark", "Filtered out " + index.getPrunedTypes() + " types and " + index.getPrunedMembers()
+					+ " members of documented types");
+			}
+			final List<SymbolExport> moduleExports = options.getModulesDirectory() == null ? List.of()
+				: SymbolExport.openModules(options.getModulesDirectory(), outputDirectory);
+			if (!moduleExports.isEmpty()) {
+				JavadocMarkLogger.info("JavadocMark", "Linking " + moduleExports.size() + " other modules of " + options.getModulesDirectory());
+			}
+			if (options.getSplitMembers() > 0 && options.isCompact()) {
+				JavadocMarkLogger.info("JavadocMark", "Compact pages are trimmed rather than split, ignoring the page splitting threshold");
+			}
+			splitter = options.isCompact() ? PageSplitter.NONE : new PageSplitter(index, options.getSplitMembers());
+			final SymbolTable symbols = new SymbolTable(index, environment.getElementUtils(), moduleExports, options.getExternalRoots(),
+				splitter);
+			final TypeHierarchy hierarchy = new TypeHierarchy(environment.getElementUtils(), environment.getTypeUtils());
+			final DocComments comments = new DocComments(environment, symbols, hierarchy);
+			final Signatures signatures = new Signatures(symbols, index, environment.getTypeUtils());
+			final List<PackageElement> packages = index.getPackages();
+			stats.addPhase(GenerationStats.Phase.INDEX, System.nanoTime() - phaseStart);
+			if (options.isApiIndex()) {
+				apiIndex = new ApiIndexWriter(outputDirectory, pageWriter, signatures, comments, index, splitter);
+			}
+			if (options.getChunkTokens() > 0) {
+				chunks = new ChunkWriter(outputDirectory, pageWriter, signatures, comments, index, splitter, environment.getElementUtils(),
+					environment.getTypeUtils(), options.getChunkTokens(), !options.isCompact());
+			}
+			if (options.isSearchIndex()) {
+				searchIndex = new SearchIndexBuilder();
+			}
+			JavadocMarkLogger.info("JavadocMark", "Indexed " + index.getTypes().size() + " classes in " + packages.size()
+				+ " packages out of " + includedElements + " included elements");
+
 			for (final PackageElement packageElement : packages) {
-				try {
-					System.out.println("[JavadocMark] Processing package: " + packageElement.getQualifiedName());
-					final PackagePageBuilder builder = new PackagePageBuilder(packageElement, environment);
-					final Path packageDirectory = outputDirectory.resolve(packageElement.getQualifiedName().toString().replace('.', '/'));
-					if (!Files.exists(packageDirectory)) {
-						System.out.println("[JavadocMark] Creating package directory: " + packageDirectory);
-						Files.createDirectories(packageDirectory);
-					}
-					final Path output = packageDirectory.resolve("README.md");
-					System.out.println("[JavadocMark] Writing package documentation to: " + output);
-					builder.build(output);
-				} catch (final IOException e) {
-					System.err.println("[JavadocMark] Error processing package " + packageElement.getQualifiedName() + ": " + e.getMessage());
-					e.printStackTrace();
+				if (!generatePackage(packageElement, index, comments, symbols, signatures, hierarchy)) {
 					return false;
 				}
+				if (options.isLowMemory()) {
+					comments.clear();
+				}
 			}
 
-			System.out.println("[JavadocMark] Generating documentation for " + classes.size() + " classes");
-			for (final TypeElement classElement : classes) {
+			if (!pageWriter.await()) {
+				return false;
+			}
+			if (bundle != null) {
+				bundle.finish();
+			}
+			if (apiIndex != null) {
+				apiIndex.finish();
+			}
+			if (chunks != null) {
+				chunks.finish(!options.isReproducible());
+			}
+			if (searchIndex != null) {
+				searchIndex.write(outputDirectory.resolve(SearchIndex.INDEX_FILE), pageWriter);
+			}
+			if (options.getModulesDirectory() != null) {
+				symbols.export(outputDirectory.resolve(SymbolExport.EXPORT_FILE), pageWriter);
+			}
+			if (manifest != null) {
+				for (final Path deleted : manifest.prune()) {
+					JavadocMarkLogger.debug("JavadocMark", "Removed stale page: " + deleted);
+					stats.recordRemoved();
+				}
+				manifest.save();
+				pageWriter.stamp(outputDirectory.resolve(PageManifest.MANIFEST_FILE));
+			}
+			pageWriter.stampDirectories(outputDirectory);
+			stats.complete();
+			if (options.getStatsFile() != null) {
+				stats.writeReport(options.getStatsFile(), !options.isReproducible());
+				JavadocMarkLogger.info("JavadocMark", "Statistics written to: " + options.getStatsFile());
+			}
+			JavadocMarkLogger.info("JavadocMark", "Documentation generation completed successfully: " + stats.summary());
+			return true;
+		} catch (final Exception e) {
+			JavadocMarkLogger.error("JavadocMark", "Fatal error during documentation generation: " + e.getMessage(), e);
+			return false;
+		} finally {
+			if (pageWriter != null) {
+				pageWriter.close();
+				pageWriter = null;
+			}
+			if (bundle != null) {
 				try {
-					System.out.println("[JavadocMark] Processing class: " + classElement.getQualifiedName());
-					final PackageElement packageElement = elementUtils.getPackageOf(classElement);
-					final Path packageDirectory = outputDirectory.resolve(packageElement.getQualifiedName().toString().replace('.', '/'));
-					
-					// 处理内部类
-					String fileName = classElement.getSimpleName().toString();
-					if (classElement.getNestingKind().isNested()) {
-						// 获取外部类
-						TypeElement enclosingElement = (TypeElement) classElement.getEnclosingElement();
-						while (enclosingElement != null && enclosingElement.getNestingKind().isNested()) {
-							fileName = enclosingElement.getSimpleName() + "." + fileName;
-							enclosingElement = (TypeElement) enclosingElement.getEnclosingElement();
-						}
-						if (enclosingElement != null) {
-							fileName = enclosingElement.getSimpleName() + "." + fileName;
-						}
-					}
-					
-					final Path classFile = packageDirectory.resolve(fileName + ".md");
-					System.out.println("[JavadocMark] Writing class documentation to: " + classFile);
-					
-					final ClassPageBuilder builder = new ClassPageBuilder(classElement, environment);
-					builder.build(classFile);
+					bundle.close();
 				} catch (final IOException e) {
-					System.err.println("[JavadocMark] Error processing class " + classElement.getQualifiedName() + ": " + e.getMessage());
-					e.printStackTrace();
-					return false;
+					JavadocMarkLogger.error("JavadocMark", "Error closing bundle: " + e.getMessage(), e);
+				}
+				bundle = null;
+			}
+			if (apiIndex != null) {
+				try {
+					apiIndex.close();
+				} catch (final IOException e) {
+					JavadocMarkLogger.error("JavadocMark", "Error closing API index: " + e.getMessage(), e);
+				}
+				apiIndex = null;
+			}
+			if (chunks != null) {
+				try {
+					chunks.close();
+				} catch (final IOException e) {
+					JavadocMarkLogger.error("JavadocMark", "Error closing chunk export: " + e.getMessage(), e);
 				}
+				chunks = null;
 			}
+			searchIndex = null;
+			budget = null;
+			streamWriter = null;
+			manifest = null;
+			splitter = null;
+		}
+	}
 
-			System.out.println("[JavadocMark] Documentation generation completed successfully");
-			return true;
-		} catch (final Exception e) {
-			System.err.println("[JavadocMark] Fatal error during documentation generation: " + e.getMessage());
-			e.printStackTrace();
+	/**
+	 * Generates the page of the given package, then the pages of
+	 * each of its types. Packages are generated one after the other
+	 * so that state held for a package can be released before the
+	 * next one starts.
+	 * 
+	 * @param packageElement Package to generate pages of.
+	 * @param index Index of the documented elements.
+	 * @param comments Rendered documentation comments.
+	 * @param symbols Symbol table pages are linked with.
+	 * @param signatures Renderer of type and member signatures.
+	 * @param hierarchy Type hierarchy inherited members are resolved with.
+	 * @return true if every page was generated, false otherwise.
+	 */
+	private boolean generatePackage(final PackageElement packageElement, final ElementIndex index, final DocComments comments,
+			final SymbolTable symbols, final Signatures signatures, final TypeHierarchy hierarchy) {
+		final Path packageDirectory = outputDirectory.resolve(ElementIndex.getPackageDirectory(packageElement));
+		try {
+			if (JavadocMarkLogger.isDebugEnabled()) {
+				JavadocMarkLogger.debug("JavadocMark", "Processing package: " + packageElement.getQualifiedName());
+			}
+			final PackagePageBuilder builder = new PackagePageBuilder(packageElement, environment, index, comments, symbols);
+			final Path output = packageDirectory.resolve("README.md");
+			final String packageName = packageElement.getQualifiedName().toString();
+			if (apiIndex != null) {
+				apiIndex.writePackage(packageElement, output);
+			}
+			if (chunks != null) {
+				chunks.writePackage(packageElement, index.getTypes(packageElement), output);
+			}
+			if (searchIndex != null) {
+				searchIndex.addDefinition(getPagePath(output), packageName);
+			}
+			if (manifest != null && isUpToDate("package:" + packageName, builder.getInputHash(), output)) {
+				bundleExisting(BundleWriter.PACKAGE, packageName, output);
+				keepIndexed(output);
+			} else {
+				generate(builder, output, BundleWriter.PACKAGE, packageName, index.getTopLevelTypes(packageElement).size());
+			}
+		} catch (final IOException e) {
+			JavadocMarkLogger.error("JavadocMark", "Error processing package " + packageElement.getQualifiedName() + ": " + e.getMessage(), e);
 			return false;
 		}
+
+		final Elements elementUtils = environment.getElementUtils();
+		for (final TypeElement classElement : index.getTypes(packageElement)) {
+			try {
+				if (JavadocMarkLogger.isDebugEnabled()) {
+					JavadocMarkLogger.debug("JavadocMark", "Processing class: " + classElement.getQualifiedName());
+				}
+				final Path classFile = packageDirectory.resolve(index.getFileName(classElement) + ".md");
+				final MarkdownDocumentBuilder builder;
+				final String hash;
+				ClassPageBuilder classBuilder = null;
+				if (options.isCompact()) {
+					final CompactClassPageBuilder compactBuilder = new CompactClassPageBuilder(classElement, environment, index, comments,
+						symbols, budget, signatures, hierarchy);
+					builder = compactBuilder;
+					hash = manifest == null ? null : compactBuilder.getInputHash();
+				} else {
+					classBuilder = new ClassPageBuilder(classElement, environment, index, comments, symbols, hierarchy, splitter);
+					builder = classBuilder;
+					hash = manifest == null ? null : classBuilder.getInputHash();
+				}
+				final String typeName = classElement.getQualifiedName().toString();
+				if (apiIndex != null) {
+					apiIndex.writeType(classElement, classFile);
+				}
+				if (chunks != null) {
+					chunks.writeType(classElement, classFile);
+				}
+				indexDefinitions(classElement, index, classFile);
+				final String key = "type:" + elementUtils.getBinaryName(classElement);
+				if (manifest != null && isUpToDate(key, hash, classFile)) {
+					bundleExisting(BundleWriter.TYPE, typeName, classFile);
+					keepIndexed(classFile);
+				} else {
+					generate(builder, classFile, BundleWriter.TYPE, typeName, index.getMembers(classElement).size());
+				}
+				if (classBuilder != null) {
+					generateShards(classElement, classBuilder, classFile, key);
+				}
+			} catch (final IOException e) {
+				JavadocMarkLogger.error("JavadocMark", "Error processing class " + classElement.getQualifiedName() + ": " + e.getMessage(), e);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Generates the member pages of the given type, if its page is
+	 * split, each page being handed to the output stage as soon as it
+	 * is rendered. Member pages are recorded in the manifest under the
+	 * key of the type page followed by their suffix.
+	 * 
+	 * @param typeElement Type to generate member pages of.
+	 * @param classBuilder Builder of the type page.
+	 * @param classFile Path of the type page.
+	 * @param key Manifest key of the type page.
+	 * @throws IOException If any error occurs while rendering or writing the pages.
+	 */
+	private void generateShards(final TypeElement typeElement, final ClassPageBuilder classBuilder, final Path classFile,
+			final String key) throws IOException {
+		final String typeName = typeElement.getQualifiedName().toString();
+		for (final PageSplitter.Shard shard : splitter.getShards(typeElement)) {
+			final ClassPageBuilder shardBuilder = classBuilder.getShardBuilder(shard);
+			final Path shardFile = classFile.resolveSibling(shard.getPage(classFile.getFileName().toString()));
+			if (manifest != null && isUpToDate(key + shard.getSuffix(), shardBuilder.getInputHash(), shardFile)) {
+				bundleExisting(BundleWriter.TYPE, typeName + shard.getSuffix(), shardFile);
+				keepIndexed(shardFile);
+			} else {
+				generate(shardBuilder, shardFile, BundleWriter.TYPE, typeName + shard.getSuffix(), shard.getMembers().size());
+			}
+		}
+	}
+
+	/**
+	 * Records the page of the given element in the manifest and
+	 * indicates if it is up to date and can therefore be skipped.
+	 * 
+	 * @param key Manifest key of the documented element.
+	 * @param hash Hash of the page inputs.
+	 * @param output Path of the page file.
+	 * @return true if the page is up to date, false if it must be generated.
+	 * @throws IOException If any error occurs while measuring the page.
+	 */
+	private boolean isUpToDate(final String key, final String hash, final Path output) throws IOException {
+		manifest.record(key, hash, output);
+		// With a run budget, a page depends on every page generated before it.
+		if (!budget.isRunLimited() && manifest.isUpToDate(key, hash, output)) {
+			if (JavadocMarkLogger.isDebugEnabled()) {
+				JavadocMarkLogger.debug("JavadocMark", "Skipping unchanged page: " + output);
+			}
+			pageWriter.stamp(output);
+			stats.recordSkipped();
+			// Skipped pages are part of the output, so the token estimate of the summary counts them too.
+			stats.recordTokens(getPagePath(output), TokenBudget.estimate(Files.size(output)));
+			return true;
+		}
+		return false;
 	}
-}
 
+	/**
+	 * Returns the path of the given page relative to the output
+	 * directory, using '/' as separator.
+	 * 
+	 * @param output Path of the page file.
+	 * @return Relative page path.
+	 */
+	private String getPagePath(final Path output) {
+		return outputDirectory.relativize(output).toString().replace('\\', '/');
+	}
+
+	/**
+	 * Generates the page of the given builder to the given output.
+	 * In streaming mode the page is written while it is rendered.
+	 * Otherwise the page is rendered on the doclet thread, as the
+	 * compiler model is not thread safe, and handed to the output
+	 * stage which writes it, in the background in parallel mode.
+	 * Content is identical in every mode.
+	 * 
+	 * Pages are also appended to the bundle, if any, in generation
+	 * order, and their rendering is recorded as a flight recorder event.
+	 * 
+	 * @param builder Builder of the page to generate.
+	 * @param output Path of the file to write.
+	 * @param kind Kind of the page, {@link BundleWriter#PACKAGE} or {@link BundleWriter#TYPE}.
+	 * @param name Qualified name of the documented element.
+	 * @param members Number of types of a package, or of members of a type, documented by the page.
+	 * @throws IOException If any error occurs while rendering or writing the page.
+	 */
+	private void generate(final MarkdownDocumentBuilder builder, final Path output, final String kind, final String name,
+			final int members) throws IOException {
+		if (JavadocMarkLogger.isDebugEnabled()) {
+			JavadocMarkLogger.debug("JavadocMark", "Writing documentation to: " + output);
+		}
+		final String typeName = BundleWriter.TYPE.equals(kind) ? name : null;
+		final FlightEvents.RenderEvent event = new FlightEvents.RenderEvent();
+		if (streamWriter != null) {
+			event.begin();
+			pageWriter.stream(builder, output, typeName, streamWriter);
+			event.end();
+			if (event.shouldCommit()) {
+				event.kind = kind;
+				event.element = name;
+				event.members = members;
+				event.characters = builder.getRenderedLength();
+				event.bytes = builder.getWrittenBytes();
+				event.commit();
+			}
+			consumeTokens(builder, output);
+			if (searchIndex != null) {
+				searchIndex.addText(getPagePath(output), Files.readString(output));
+			}
+			bundleExisting(kind, name, output);
+			return;
+		}
+		event.begin();
+		final long start = System.nanoTime();
+		builder.render();
+		final long renderNanos = System.nanoTime() - start;
+		event.end();
+		if (event.shouldCommit()) {
+			event.kind = kind;
+			event.element = name;
+			event.members = members;
+			event.characters = builder.getRenderedLength();
+			event.commit();
+		}
+		consumeTokens(builder, output);
+		if (searchIndex != null) {
+			searchIndex.addText(getPagePath(output), builder.getContent());
+		}
+		if (bundle != null) {
+			bundle.append(kind, name, output, builder);
+		}
+		pageWriter.write(builder, output, typeName, renderNanos);
+	}
+
+	/**
+	 * Charges the estimated tokens of the given rendered page to the
+	 * run budget and records them.
+	 * 
+	 * @param builder Builder of the rendered page.
+	 * @param output Path of the page file.
+	 */
+	private void consumeTokens(final MarkdownDocumentBuilder builder, final Path output) {
+		final long tokens = TokenBudget.estimate(builder.getRenderedLength());
+		budget.consume(tokens);
+		stats.recordTokens(getPagePath(output), tokens);
+		if (JavadocMarkLogger.isDebugEnabled()) {
+			JavadocMarkLogger.debug("JavadocMark", "Estimated tokens of " + output + ": " + tokens);
+		}
+	}
+
+	/**
+	 * Indexes the names defined by the page of the given type, if a
+	 * search index is requested: the simple, nested and qualified
+	 * names of the type, and the names of its fields and methods with
+	 * the anchor of their heading in full pages, in their member page
+	 * if the type page is split.
+	 * 
+	 * @param typeElement Type documented by the page.
+	 * @param index Index of the documented elements.
+	 * @param output Path of the page file.
+	 */
+	private void indexDefinitions(final TypeElement typeElement, final ElementIndex index, final Path output) {
+		if (searchIndex == null) {
+			return;
+		}
+		final String page = getPagePath(output);
+		searchIndex.addDefinition(page, typeElement.getQualifiedName().toString());
+		searchIndex.addDefinition(page, index.getFileName(typeElement));
+		searchIndex.addDefinition(page, typeElement.getSimpleName().toString());
+		for (final Element element : index.getMembers(typeElement)) {
+			if (element.getKind() == ElementKind.FIELD || element.getKind() == ElementKind.METHOD) {
+				final String name = element.getSimpleName().toString();
+				searchIndex.addMemberDefinition(splitter.getPage(page, element), name,
+					options.isCompact() ? null : SearchIndexBuilder.getAnchor(name));
+			}
+		}
+	}
+
+	/**
+	 * Keeps the indexed words of the given up to date page, if a
+	 * search index is requested.
+	 * 
+	 * @param output Path of the page file.
+	 */
+	private void keepIndexed(final Path output) {
+		if (searchIndex != null) {
+			searchIndex.keepPage(getPagePath(output));
+		}
+	}
+
+	/**
+	 * Appends the already written page file of the given element to
+	 * the bundle, if any.
+	 * 
+	 * @param kind Kind of the page, {@link BundleWriter#PACKAGE} or {@link BundleWriter#TYPE}.
+	 * @param name Qualified name of the documented element.
+	 * @param output Path of the page file.
+	 * @throws IOException If any error occurs while reading the page or writing the bundle.
+	 */
+	private void bundleExisting(final String kind, final String name, final Path output) throws IOException {
+		if (bundle != null) {
+			bundle.append(kind, name, output);
+		}
+	}
+
+}
@@ -107,6 +107,18 @@ public final class JavadocMarkConstant {
 	/** Header label for the interface hierachy. **/
 	public static final String INTERFACE_HIEARCHY_HEADER = "All implemented interfaces :";
 
+	/** Header label for the interface hierachy of an interface. **/
+	public static final String SUPERINTERFACES_HEADER = "All superinterfaces :";
+
+	/** Header for methods inherited from a supertype. **/
+	public static final String INHERITED_METHODS = "Methods inherited from";
+
+	/** Header for fields inherited from a supertype. **/
+	public static final String INHERITED_FIELDS = "Fields inherited from";
+
+	/** Header for the table of the member pages of a split type. **/
+	public static final String MEMBER_PAGES_HEADER = "Member pages";
+
 	/**
 	 * Private constructor for avoiding instantiation.
 	 */
@@ -1,7 +1,6 @@
 package com.manxiaozhi.javadocmark;
 
 import java.io.IOException;
-import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -26,50 +25,26 @@ public final class JavadocMarkDocumentBuilder extends MarkdownDocumentBuilder {
 	/** Doclet environment instance. **/
 	private final DocletEnvironment environment;
 
+	/** Rendered documentation comments. **/
+	private final DocComments comments;
+
+	/** Symbol table types are linked with. **/
+	private final SymbolTable symbols;
+
 	/**
 	 * Default constructor. 
 	 * 
 	 * @param typeElement Target type element this builder is working on.
 	 * @param environment Doclet environment instance.
+	 * @param comments Rendered documentation comments.
+	 * @param symbols Symbol table types are linked with.
 	 */
-	public JavadocMarkDocumentBuilder(final TypeElement typeElement, final DocletEnvironment environment) {
+	public JavadocMarkDocumentBuilder(final TypeElement typeElement, final DocletEnvironment environment, final DocComments comments,
+			final SymbolTable symbols) {
 		this.typeElement = typeElement;
 		this.environment = environment;
-	}
-
-	/**
-	 * Builds and returns the package name of the given type.
-	 * 
-	 * @param type Type to get package name from.
-	 * @return Package name of the given type.
-	 */
-	private String getPackageName(final TypeMirror type) {
-		if (type instanceof DeclaredType) {
-			Element element = ((DeclaredType) type).asElement();
-			if (element != null) {
-				Element enclosing = element.getEnclosingElement();
-				if (enclosing instanceof PackageElement) {
-					return ((PackageElement) enclosing).getQualifiedName().toString();
-				}
-			}
-		}
-		return "";
-	}
-
-	/**
-	 * Builds and returns the class name of the given type.
-	 * 
-	 * @param type Type to get class name from.
-	 * @return Class name of the given type.
-	 */
-	private String getClassName(final TypeMirror type) {
-		if (type instanceof DeclaredType) {
-			Element element = ((DeclaredType) type).asElement();
-			if (element != null) {
-				return element.getSimpleName().toString();
-			}
-		}
-		return type.toString();
+		this.comments = comments;
+		this.symbols = symbols;
 	}
 
 	/**
@@ -129,15 +104,10 @@ public final class JavadocMarkDocumentBuilder extends MarkdownDocumentBuilder {
 	 * Builds a valid markdown link for the given type.
 	 * 
 	 * @param type Type to build link for.
-	 * @return Built link.
+	 * @return Built link, or the type name if the type cannot be linked.
 	 */
 	private String buildTypeLink(final TypeMirror type) {
-		final String packageName = getPackageName(type);
-		final String className = getClassName(type);
-		if (packageName.isEmpty()) {
-			return className;
-		}
-		return String.format("[%s](%s/%s.md)", className, packageName.replace('.', '/'), className);
+		return symbols.linkType(type, symbols.getDirectory(typeElement));
 	}
 
 	/**
@@ -149,10 +119,7 @@ public final class JavadocMarkDocumentBuilder extends MarkdownDocumentBuilder {
 	private void buildMethodDocumentation(final ExecutableElement method) throws IOException {
 		if (method.getKind() == ElementKind.METHOD) {
 			header(3, method.getSimpleName().toString());
-			final String comment = environment.getElementUtils().getDocComment(method);
-			if (comment != null) {
-				text(comment);
-			}
+			comment(comments.get(method));
 			buildParametersDocumentation(method);
 			buildReturnDocumentation(method);
 			buildThrowsDocumentation(method);
@@ -171,6 +138,10 @@ public final class JavadocMarkDocumentBuilder extends MarkdownDocumentBuilder {
 			header(4, "Parameters");
 			for (VariableElement param : parameters) {
 				text("* " + param.getSimpleName() + " - " + buildTypeLink(param.asType()));
+				final String description = comments.get(method).getParam(param.getSimpleName().toString());
+				if (description != null && !description.isEmpty()) {
+					text(" - " + description);
+				}
 				newLine();
 			}
 		}
@@ -187,6 +158,10 @@ public final class JavadocMarkDocumentBuilder extends MarkdownDocumentBuilder {
 		if (returnType.getKind() != TypeKind.VOID) {
 			header(4, "Returns");
 			text(buildTypeLink(returnType));
+			final String description = comments.get(method).getReturns();
+			if (description != null && !description.isEmpty()) {
+				text(" - " + description);
+			}
 		}
 	}
 
@@ -214,10 +189,7 @@ public final class JavadocMarkDocumentBuilder extends MarkdownDocumentBuilder {
 	 */
 	private void buildClassHeader() throws IOException {
 		header(1, typeElement.getSimpleName().toString());
-		final String comment = environment.getElementUtils().getDocComment(typeElement);
-		if (comment != null) {
-			text(comment);
-		}
+		comment(comments.get(typeElement));
 	}
 
 	/**
@@ -236,7 +208,7 @@ public final class JavadocMarkDocumentBuilder extends MarkdownDocumentBuilder {
 					buildMethodDocumentation((ExecutableElement) method);
 				}
 				catch (final IOException e) {
-					e.printStackTrace();
+					JavadocMarkLogger.error("JavadocMarkDocumentBuilder", "Error building method documentation: " + e.getMessage(), e);
 				}
 			});
 		}
@@ -244,10 +216,9 @@ public final class JavadocMarkDocumentBuilder extends MarkdownDocumentBuilder {
 
 	/** {@inheritDoc} **/
 	@Override
-	public void build(final Path output) throws IOException {
+	public void render() throws IOException {
 		buildClassHeader();
 		buildMethodList();
-		super.build(output);
 	}
 
 }
@@ -0,0 +1,131 @@
+package com.manxiaozhi.javadocmark;
+
+import java.util.Locale;
+
+/**
+ * Leveled console logger of the doclet. Per element messages are
+ * logged at {@link Level#DEBUG} so that they cost nothing by default;
+ * callers building such messages by concatenation should check
+ * {@link #isDebugEnabled()} first. Errors are always logged.
+ *
+ * @author wangzhi
+ */
+public final class JavadocMarkLogger {
+
+	/**
+	 * Logging levels, from the least to the most verbose.
+	 */
+	public enum Level {
+
+		/** Only errors are logged. **/
+		QUIET,
+
+		/** Run progress and summaries are logged. **/
+		INFO,
+
+		/** Every processed element is logged. **/
+		DEBUG;
+
+		/**
+		 * Parses the given level name, ignoring case.
+		 *
+		 * @param name Name of the level.
+		 * @return Parsed level, or null if the name is unknown.
+		 */
+		public static Level parse(final String name) {
+			for (final Level level : values()) {
+				if (level.name().equalsIgnoreCase(name)) {
+					return level;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Returns the lower case name of this level, as used by the doclet option.
+		 *
+		 * @return Lower case level name.
+		 */
+		@Override
+		public String toString() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+
+	}
+
+	/** Current logging level. **/
+	private static volatile Level level = Level.INFO;
+
+	/**
+	 * Private constructor for avoiding instantiation.
+	 */
+	private JavadocMarkLogger() {
+		// Do nothing.
+	}
+
+	/**
+	 * Sets the current logging level.
+	 *
+	 * @param newLevel New logging level.
+	 */
+	public static void setLevel(final Level newLevel) {
+		level = newLevel;
+	}
+
+	/**
+	 * Getter for the current logging level.
+	 *
+	 * @return Current logging level.
+	 */
+	public static Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Indicates if debug messages are logged.
+	 *
+	 * @return true if debug messages are logged, false otherwise.
+	 */
+	public static boolean isDebugEnabled() {
+		return level == Level.DEBUG;
+	}
+
+	/**
+	 * Logs a progress message.
+	 *
+	 * @param source Name of the logging component.
+	 * @param message Message to log.
+	 */
+	public static void info(final String source, final String message) {
+		if (level != Level.QUIET) {
+			System.out.println("[" + source + "] " + message);
+		}
+	}
+
+	/**
+	 * Logs a per element message.
+	 *
+	 * @param source Name of the logging component.
+	 * @param message Message to log.
+	 */
+	public static void debug(final String source, final String message) {
+		if (level == Level.DEBUG) {
+			System.out.println("[" + source + "] " + message);
+		}
+	}
+
+	/**
+	 * Logs an error message and the stack trace of its cause, if any.
+	 *
+	 * @param source Name of the logging component.
+	 * @param message Message to log.
+	 * @param cause Cause of the error, may be null.
+	 */
+	public static void error(final String source, final String message, final Throwable cause) {
+		System.err.println("[" + source + "] " + message);
+		if (cause != null) {
+			cause.printStackTrace();
+		}
+	}
+
+}
@@ -2,83 +2,797 @@ package com.manxiaozhi.javadocmark;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.Diagnostic;
 
 import jdk.javadoc.doclet.Doclet;
 import jdk.javadoc.doclet.Reporter;
 
 /**
  * Class that contains JavadocMark doclet options.
- * 
+ *
  * @author wangzhi
  */
-public final class JavadocMarkOptions implements Doclet.Option {
+public final class JavadocMarkOptions {
 
 	/** Output directory option name. **/
 	private static final String OUTPUT_DIRECTORY = "-d";
 
+	/** Worker thread count option name. **/
+	private static final String THREADS = "-threads";
+
+	/** Incremental generation option name. **/
+	private static final String INCREMENTAL = "-incremental";
+
+	/** Streaming generation option name. **/
+	private static final String STREAMING = "-streaming";
+
+	/** Low memory generation option name. **/
+	private static final String LOW_MEMORY = "-lowmemory";
+
+	/** Unchanged content write mode option name. **/
+	private static final String KEEP_UNCHANGED = "-keepunchanged";
+
+	/** Reproducible output option name. **/
+	private static final String REPRODUCIBLE = "-reproducible";
+
+	/** Environment variable giving the modification time of reproducible output, in seconds since the epoch. **/
+	private static final String SOURCE_DATE_EPOCH = "SOURCE_DATE_EPOCH";
+
+	/** Bundle output option name. **/
+	private static final String BUNDLE = "-bundle";
+
+	/** API index option name. **/
+	private static final String API_INDEX = "-apiindex";
+
+	/** Search index option name. **/
+	private static final String SEARCH_INDEX = "-searchindex";
+
+	/** Embedding chunk export option name. **/
+	private static final String CHUNKS = "-chunks";
+
+	/** Rendering profile option name. **/
+	private static final String PROFILE = "-profile";
+
+	/** Compact profile page token budget option name. **/
+	private static final String PAGE_TOKENS = "-pagetokens";
+
+	/** Compact profile run token budget option name. **/
+	private static final String RUN_TOKENS = "-runtokens";
+
+	/** Type page splitting threshold option name. **/
+	private static final String SPLIT_MEMBERS = "-splitmembers";
+
+	/** Full rendering profile. **/
+	private static final String PROFILE_FULL = "full";
+
+	/** Compact rendering profile. **/
+	private static final String PROFILE_COMPACT = "compact";
+
+	/** External Javadoc root option name. **/
+	private static final String LINK = "-link";
+
+	/** External JavadocMark root option name. **/
+	private static final String LINK_MARKDOWN = "-linkmarkdown";
+
+	/** Aggregated modules directory option name. **/
+	private static final String MODULES = "-modules";
+
+	/** Minimum visibility option name. **/
+	private static final String VISIBILITY = "-visibility";
+
+	/** Included packages option name. **/
+	private static final String INCLUDE_PACKAGES = "-includepackages";
+
+	/** Excluded packages option name. **/
+	private static final String EXCLUDE_PACKAGES = "-excludepackages";
+
+	/** Excluding annotation option name. **/
+	private static final String EXCLUDE_ANNOTATION = "-excludeannotation";
+
+	/** Statistics report option name. **/
+	private static final String STATS = "-stats";
+
+	/** Log level option name. **/
+	private static final String LOG_LEVEL = "-loglevel";
+
 	/** Output directory path. **/
 	private Path outputDirectory;
 
+	/** Number of worker threads used for writing pages, 1 meaning serial generation. **/
+	private int threads;
+
+	/** Indicates if unchanged pages are skipped using the page manifest. **/
+	private boolean incremental;
+
+	/** Indicates if pages are streamed to disk while rendered. **/
+	private boolean streaming;
+
+	/** Indicates if memory held by the doclet is bounded, at the expense of caching. **/
+	private boolean lowMemory;
+
+	/** Indicates if files whose content did not change are left untouched. **/
+	private boolean keepUnchanged;
+
+	/** Indicates if everything depending on the run rather than on the sources is left out of the output. **/
+	private boolean reproducible;
+
+	/** Maximum size of a bundle file in bytes, 0 if pages are not bundled. **/
+	private long bundleSize;
+
+	/** Indicates if the NDJSON API index is written. **/
+	private boolean apiIndex;
+
+	/** Indicates if the binary search index is written. **/
+	private boolean searchIndex;
+
+	/** Maximum number of tokens of an embedding chunk, 0 if chunks are not exported. **/
+	private long chunkTokens;
+
+	/** Indicates if type pages are rendered with the compact profile. **/
+	private boolean compact;
+
+	/** Maximum number of tokens of a compact page, 0 if unlimited. **/
+	private long pageTokens;
+
+	/** Maximum number of tokens of all compact pages of a run, 0 if unlimited. **/
+	private long runTokens;
+
+	/** Maximum number of members of an unsplit type page, 0 if pages are not split. **/
+	private int splitMembers;
+
+	/** External documentation roots undocumented types are linked to. **/
+	private final List<SymbolTable.ExternalRoot> externalRoots;
+
+	/** Directory holding the output directory of each module, null if modules are not aggregated. **/
+	private Path modulesDirectory;
+
+	/** Minimum visibility of the documented types and members. **/
+	private DocumentationFilter.Visibility visibility;
+
+	/** Globs of the included packages, empty to include every package. **/
+	private final List<String> includedPackages;
+
+	/** Globs of the excluded packages. **/
+	private final List<String> excludedPackages;
+
+	/** Names of the annotations excluding the elements they annotate. **/
+	private final List<String> excludedAnnotations;
+
+	/** File the JSON statistics report is written to, null if no report is requested. **/
+	private Path statsFile;
+
 	/** Reporter instance for error handling. **/
 	private final Reporter reporter;
 
+	/** Options supported by the doclet. **/
+	private final Set<Doclet.Option> supportedOptions;
+
 	/**
 	 * Default constructor.
-	 * 
+	 *
 	 * @param reporter Reporter instance for error handling.
 	 */
 	public JavadocMarkOptions(final Reporter reporter) {
 		this.reporter = reporter;
 		this.outputDirectory = Paths.get(".");
+		this.threads = 1;
+		this.externalRoots = new ArrayList<>();
+		this.visibility = DocumentationFilter.Visibility.PRIVATE;
+		this.includedPackages = new ArrayList<>();
+		this.excludedPackages = new ArrayList<>();
+		this.excludedAnnotations = new ArrayList<>();
+		this.supportedOptions = new LinkedHashSet<>();
+		supportedOptions.add(new Option(OUTPUT_DIRECTORY, "<directory>",
+			"Output directory for generated markdown files", this::processOutputDirectory));
+		supportedOptions.add(new Option(THREADS, "<count>",
+			"Number of worker threads used to write pages (default: 1)", this::processThreads));
+		supportedOptions.add(new Option(INCREMENTAL,
+			"Only regenerate pages whose documented elements changed since the previous run", () -> incremental = true));
+		supportedOptions.add(new Option(STREAMING,
+			"Stream pages to disk while they are rendered instead of holding them in memory", () -> streaming = true));
+		supportedOptions.add(new Option(LOW_MEMORY,
+			"Bound memory held by the doclet: process packages one at a time and cap rendered pages waiting to be written",
+			() -> lowMemory = true));
+		supportedOptions.add(new Option(KEEP_UNCHANGED,
+			"Compare rendered pages with existing files and leave identical files untouched", () -> keepUnchanged = true));
+		supportedOptions.add(new Option(REPRODUCIBLE,
+			"Leave run dependent data out of the output and give every file the time of " + SOURCE_DATE_EPOCH + ", or the epoch",
+			() -> reproducible = true));
+		supportedOptions.add(new Option(BUNDLE, "<kilobytes>",
+			"Also write every page into bundle files of at most the given size, with a byte offset index", this::processBundle));
+		supportedOptions.add(new Option(API_INDEX,
+			"Also write an NDJSON index with one record per package, type, field, constructor and method", () -> apiIndex = true));
+		supportedOptions.add(new Option(SEARCH_INDEX,
+			"Also write a memory mappable index of the words and names documented by each page", () -> searchIndex = true));
+		supportedOptions.add(new Option(CHUNKS, "<tokens>",
+			"Also export one embedding chunk per package, type and member, of at most the given tokens, with a delta since the previous run",
+			this::processChunks));
+		supportedOptions.add(new Option(PROFILE, "<full|compact>",
+			"Rendering profile of type pages: full pages, or dense signature lines with summaries (default: full)",
+			this::processProfile));
+		supportedOptions.add(new Option(PAGE_TOKENS, "<count>",
+			"Estimated token budget of a compact page, trimmed to fit", argument -> processTokens(PAGE_TOKENS, argument, false)));
+		supportedOptions.add(new Option(RUN_TOKENS, "<count>",
+			"Estimated token budget of all pages of a compact run", argument -> processTokens(RUN_TOKENS, argument, true)));
+		supportedOptions.add(new Option(SPLIT_MEMBERS, "<count>",
+			"Split full type pages with more fields and methods than the given count into an overview and member pages",
+			this::processSplitMembers));
+		supportedOptions.add(new Option(LINK, "<package>=<url>",
+			"Link types of the given package and its subpackages to the Javadoc at the given URL",
+			argument -> processLink(LINK, argument, false)));
+		supportedOptions.add(new Option(LINK_MARKDOWN, "<package>=<url>",
+			"Link types of the given package and its subpackages to the JavadocMark documentation at the given URL",
+			argument -> processLink(LINK_MARKDOWN, argument, true)));
+		supportedOptions.add(new Option(MODULES, "<directory>",
+			"Export the documented symbols and link the modules documented in the other subdirectories of the given directory",
+			this::processModules));
+		supportedOptions.add(new Option(VISIBILITY, "<public|protected|package|private>",
+			"Minimum visibility of the documented types and members (default: private)", this::processVisibility));
+		supportedOptions.add(new Option(INCLUDE_PACKAGES, "<globs>",
+			"Only document the packages matching one of the given comma separated globs, such as com.example.**",
+			argument -> processPackages(INCLUDE_PACKAGES, argument, includedPackages)));
+		supportedOptions.add(new Option(EXCLUDE_PACKAGES, "<globs>",
+			"Do not document the packages matching one of the given comma separated globs, such as com.example.*.internal",
+			argument -> processPackages(EXCLUDE_PACKAGES, argument, excludedPackages)));
+		supportedOptions.add(new Option(EXCLUDE_ANNOTATION, "<annotation>",
+			"Do not document the packages, types and members annotated with the given annotation, by qualified or simple name",
+			argument -> {
+				excludedAnnotations.add(argument);
+				return true;
+			}));
+		supportedOptions.add(new Option(STATS, "<file>",
+			"Write a JSON report of generation metrics to the given file", this::processStats));
+		supportedOptions.add(new Option(LOG_LEVEL, "<quiet|info|debug>",
+			"Console logging level (default: info)", this::processLogLevel));
 	}
 
 	/**
 	 * Getter for the output directory path.
-	 * 
+	 *
 	 * @return Output directory path.
 	 */
 	public Path getOutputDirectory() {
 		return outputDirectory;
 	}
 
-	@Override
-	public int getArgumentCount() {
-		return 1;
+	/**
+	 * Getter for the number of worker threads.
+	 *
+	 * @return Number of worker threads, 1 meaning serial generation.
+	 */
+	public int getThreads() {
+		return threads;
 	}
 
-	@Override
-	public String getDescription() {
-		return "Output directory for generated markdown files";
+	/**
+	 * Indicates if unchanged pages are skipped using the page manifest.
+	 *
+	 * @return true if generation is incremental, false otherwise.
+	 */
+	public boolean isIncremental() {
+		return incremental;
 	}
 
-	@Override
-	public Kind getKind() {
-		return Kind.STANDARD;
+	/**
+	 * Indicates if pages are streamed to disk while rendered.
+	 *
+	 * @return true if pages are streamed, false otherwise.
+	 */
+	public boolean isStreaming() {
+		return streaming;
 	}
 
-	@Override
-	public List<String> getNames() {
-		List<String> names = new ArrayList<>();
-		names.add(OUTPUT_DIRECTORY);
-		return names;
+	/**
+	 * Indicates if memory held by the doclet is bounded.
+	 *
+	 * @return true if generation runs in low memory mode, false otherwise.
+	 */
+	public boolean isLowMemory() {
+		return lowMemory;
 	}
 
-	@Override
-	public String getParameters() {
-		return "directory";
+	/**
+	 * Indicates if files whose content did not change are left untouched.
+	 *
+	 * @return true if rendered pages are compared with existing files, false otherwise.
+	 */
+	public boolean isKeepUnchanged() {
+		return keepUnchanged;
+	}
+
+	/**
+	 * Indicates if everything depending on the run rather than on the
+	 * sources is left out of the output.
+	 *
+	 * @return true if the output is reproducible, false otherwise.
+	 */
+	public boolean isReproducible() {
+		return reproducible;
+	}
+
+	/**
+	 * Getter for the modification time of every output file: the time
+	 * given by the {@code SOURCE_DATE_EPOCH} environment variable, or
+	 * the epoch if it is not set.
+	 *
+	 * @return Modification time of the output files, or null if the output is not reproducible.
+	 * @throws IllegalArgumentException If the environment variable is not a number of seconds.
+	 */
+	public FileTime getTimestamp() {
+		if (!reproducible) {
+			return null;
+		}
+		final String epoch = System.getenv(SOURCE_DATE_EPOCH);
+		if (epoch == null || epoch.trim().isEmpty()) {
+			return FileTime.fromMillis(0);
+		}
+		try {
+			return FileTime.from(Long.parseLong(epoch.trim()), TimeUnit.SECONDS);
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException(SOURCE_DATE_EPOCH + " must be a number of seconds since the epoch, got: " + epoch, e);
+		}
+	}
+
+	/**
+	 * Getter for the maximum size of a bundle file.
+	 *
+	 * @return Maximum size of a bundle file in bytes, or 0 if pages are not bundled.
+	 */
+	public long getBundleSize() {
+		return bundleSize;
+	}
+
+	/**
+	 * Indicates if the NDJSON API index is written.
+	 *
+	 * @return true if the API index is written, false otherwise.
+	 */
+	public boolean isApiIndex() {
+		return apiIndex;
+	}
+
+	/**
+	 * Indicates if the binary search index is written.
+	 *
+	 * @return true if the search index is written, false otherwise.
+	 */
+	public boolean isSearchIndex() {
+		return searchIndex;
+	}
+
+	/**
+	 * Getter for the maximum number of tokens of an embedding chunk.
+	 *
+	 * @return Maximum number of tokens of a chunk, or 0 if chunks are not exported.
+	 */
+	public long getChunkTokens() {
+		return chunkTokens;
+	}
+
+	/**
+	 * Indicates if type pages are rendered with the compact profile.
+	 *
+	 * @return true for the compact profile, false for the full one.
+	 */
+	public boolean isCompact() {
+		return compact;
+	}
+
+	/**
+	 * Getter for the maximum number of tokens of a compact page.
+	 *
+	 * @return Maximum number of tokens of a page, 0 if unlimited.
+	 */
+	public long getPageTokens() {
+		return pageTokens;
+	}
+
+	/**
+	 * Getter for the maximum number of tokens of a compact run.
+	 *
+	 * @return Maximum number of tokens of the run, 0 if unlimited.
+	 */
+	public long getRunTokens() {
+		return runTokens;
+	}
+
+	/**
+	 * Getter for the maximum number of members of an unsplit type page.
+	 *
+	 * @return Maximum number of fields and methods of a type page, or 0 if pages are not split.
+	 */
+	public int getSplitMembers() {
+		return splitMembers;
+	}
+
+	/**
+	 * Getter for the external documentation roots.
+	 *
+	 * @return External documentation roots, in declaration order.
+	 */
+	public List<SymbolTable.ExternalRoot> getExternalRoots() {
+		return Collections.unmodifiableList(externalRoots);
 	}
 
-	@Override
-	public boolean process(String option, List<String> arguments) {
-		if (OUTPUT_DIRECTORY.equals(option) && !arguments.isEmpty()) {
-			System.out.println("[JavadocMarkOptions] Processing output directory: " + arguments.get(0));
-			outputDirectory = Paths.get(arguments.get(0));
-			System.out.println("[JavadocMarkOptions] Output directory set to: " + outputDirectory);
+	/**
+	 * Creates the filter of the documented elements from the visibility,
+	 * package and annotation options.
+	 *
+	 * @return Filter of the documented elements.
+	 */
+	public DocumentationFilter getFilter() {
+		return new DocumentationFilter(visibility, includedPackages, excludedPackages, excludedAnnotations);
+	}
+
+	/**
+	 * Getter for the directory of the aggregated modules.
+	 *
+	 * @return Directory holding the output directory of each module, or null if modules are not aggregated.
+	 */
+	public Path getModulesDirectory() {
+		return modulesDirectory;
+	}
+
+	/**
+	 * Getter for the statistics report file.
+	 *
+	 * @return Statistics report file, or null if no report is requested.
+	 */
+	public Path getStatsFile() {
+		return statsFile;
+	}
+
+	/**
+	 * Returns the options supported by the doclet.
+	 *
+	 * @return Supported options.
+	 */
+	public Set<Doclet.Option> getSupportedOptions() {
+		return supportedOptions;
+	}
+
+	/**
+	 * Processes the output directory option.
+	 *
+	 * @param argument Option argument.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processOutputDirectory(final String argument) {
+		outputDirectory = Paths.get(argument);
+		JavadocMarkLogger.debug("JavadocMarkOptions", "Output directory set to: " + outputDirectory);
+		return true;
+	}
+
+	/**
+	 * Processes the bundle option.
+	 *
+	 * @param argument Option argument.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processBundle(final String argument) {
+		final int value = parsePositiveInt(BUNDLE, argument);
+		if (value <= 0) {
+			return false;
+		}
+		bundleSize = value * 1024L;
+		return true;
+	}
+
+	/**
+	 * Processes the embedding chunk export option.
+	 *
+	 * @param argument Option argument.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processChunks(final String argument) {
+		final int value = parsePositiveInt(CHUNKS, argument);
+		if (value <= 0) {
+			return false;
+		}
+		chunkTokens = value;
+		return true;
+	}
+
+	/**
+	 * Processes the type page splitting threshold option.
+	 *
+	 * @param argument Option argument.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processSplitMembers(final String argument) {
+		final int value = parsePositiveInt(SPLIT_MEMBERS, argument);
+		if (value <= 0) {
+			return false;
+		}
+		splitMembers = value;
+		return true;
+	}
+
+	/**
+	 * Processes the rendering profile option.
+	 *
+	 * @param argument Option argument.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processProfile(final String argument) {
+		if (PROFILE_FULL.equals(argument) || PROFILE_COMPACT.equals(argument)) {
+			compact = PROFILE_COMPACT.equals(argument);
 			return true;
 		}
+		reporter.print(Diagnostic.Kind.ERROR, PROFILE + " expects full or compact, got: " + argument);
 		return false;
 	}
 
+	/**
+	 * Processes a token budget option.
+	 *
+	 * @param option Option name, used for error reporting.
+	 * @param argument Option argument.
+	 * @param run true for the run budget, false for the page budget.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processTokens(final String option, final String argument, final boolean run) {
+		final int value = parsePositiveInt(option, argument);
+		if (value <= 0) {
+			return false;
+		}
+		if (run) {
+			runTokens = value;
+		} else {
+			pageTokens = value;
+		}
+		return true;
+	}
+
+	/**
+	 * Processes an external documentation root option.
+	 *
+	 * @param option Option name, used for error reporting.
+	 * @param argument Option argument.
+	 * @param markdown true for a JavadocMark root, false for a Javadoc root.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processLink(final String option, final String argument, final boolean markdown) {
+		final int separator = argument.indexOf('=');
+		if (separator <= 0 || separator == argument.length() - 1) {
+			reporter.print(Diagnostic.Kind.ERROR, option + " expects <package>=<url>, got: " + argument);
+			return false;
+		}
+		externalRoots.add(new SymbolTable.ExternalRoot(argument.substring(0, separator), argument.substring(separator + 1), markdown));
+		return true;
+	}
+
+	/**
+	 * Processes the modules option.
+	 *
+	 * @param argument Option argument.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processModules(final String argument) {
+		modulesDirectory = Paths.get(argument);
+		return true;
+	}
+
+	/**
+	 * Processes the minimum visibility option.
+	 *
+	 * @param argument Option argument.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processVisibility(final String argument) {
+		final DocumentationFilter.Visibility value = DocumentationFilter.Visibility.parse(argument);
+		if (value == null) {
+			reporter.print(Diagnostic.Kind.ERROR, VISIBILITY + " expects public, protected, package or private, got: " + argument);
+			return false;
+		}
+		visibility = value;
+		return true;
+	}
+
+	/**
+	 * Processes a package globs option.
+	 *
+	 * @param option Option name, used for error reporting.
+	 * @param argument Option argument.
+	 * @param globs Globs the argument globs are added to.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processPackages(final String option, final String argument, final List<String> globs) {
+		for (final String glob : argument.split(",")) {
+			if (glob.trim().isEmpty()) {
+				reporter.print(Diagnostic.Kind.ERROR, option + " expects comma separated package globs, got: " + argument);
+				return false;
+			}
+			globs.add(glob.trim());
+		}
+		return true;
+	}
+
+	/**
+	 * Processes the statistics report option.
+	 *
+	 * @param argument Option argument.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processStats(final String argument) {
+		statsFile = Paths.get(argument);
+		return true;
+	}
+
+	/**
+	 * Processes the log level option.
+	 *
+	 * @param argument Option argument.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processLogLevel(final String argument) {
+		final JavadocMarkLogger.Level level = JavadocMarkLogger.Level.parse(argument);
+		if (level == null) {
+			reporter.print(Diagnostic.Kind.ERROR, LOG_LEVEL + " expects quiet, info or debug, got: " + argument);
+			return false;
+		}
+		JavadocMarkLogger.setLevel(level);
+		return true;
+	}
+
+	/**
+	 * Processes the worker thread count option.
+	 *
+	 * @param argument Option argument.
+	 * @return true if the argument is valid, false otherwise.
+	 */
+	private boolean processThreads(final String argument) {
+		final int value = parsePositiveInt(THREADS, argument);
+		if (value <= 0) {
+			return false;
+		}
+		threads = value;
+		return true;
+	}
+
+	/**
+	 * Parses the given option argument as a strictly positive integer.
+	 *
+	 * @param option Option name, used for error reporting.
+	 * @param argument Argument to parse.
+	 * @return Parsed value, or -1 if the argument is not valid.
+	 */
+	private int parsePositiveInt(final String option, final String argument) {
+		try {
+			final int value = Integer.parseInt(argument);
+			if (value > 0) {
+				return value;
+			}
+		} catch (final NumberFormatException e) {
+			// Reported below.
+		}
+		reporter.print(Diagnostic.Kind.ERROR, option + " expects a positive integer, got: " + argument);
+		return -1;
+	}
+
+	/**
+	 * Callback invoked with the argument of a single argument option.
+	 */
+	@FunctionalInterface
+	private interface ArgumentProcessor {
+
+		/**
+		 * Processes the given argument.
+		 *
+		 * @param argument Option argument.
+		 * @return true if the argument is valid, false otherwise.
+		 */
+		boolean process(String argument);
+
+	}
+
+	/**
+	 * Callback invoked when a flag option is set.
+	 */
+	@FunctionalInterface
+	private interface FlagProcessor {
+
+		/**
+		 * Processes the flag.
+		 */
+		void process();
+
+	}
+
+	/**
+	 * Doclet option delegating to an {@link ArgumentProcessor}, or to
+	 * a {@link FlagProcessor} for options without argument.
+	 */
+	private static final class Option implements Doclet.Option {
+
+		/** Option name. **/
+		private final String name;
+
+		/** Option parameter label. **/
+		private final String parameters;
+
+		/** Option description. **/
+		private final String description;
+
+		/** Processor invoked with the option argument, null for flags. **/
+		private final ArgumentProcessor processor;
+
+		/** Processor invoked when the flag is set, null for options with argument. **/
+		private final FlagProcessor flagProcessor;
+
+		/**
+		 * Creates an option taking a single argument.
+		 *
+		 * @param name Option name.
+		 * @param parameters Option parameter label.
+		 * @param description Option description.
+		 * @param processor Processor invoked with the option argument.
+		 */
+		Option(final String name, final String parameters, final String description, final ArgumentProcessor processor) {
+			this.name = name;
+			this.parameters = parameters;
+			this.description = description;
+			this.processor = processor;
+			this.flagProcessor = null;
+		}
+
+		/**
+		 * Creates a flag option taking no argument.
+		 *
+		 * @param name Option name.
+		 * @param description Option description.
+		 * @param flagProcessor Processor invoked when the flag is set.
+		 */
+		Option(final String name, final String description, final FlagProcessor flagProcessor) {
+			this.name = name;
+			this.parameters = "";
+			this.description = description;
+			this.processor = null;
+			this.flagProcessor = flagProcessor;
+		}
+
+		@Override
+		public int getArgumentCount() {
+			return processor == null ? 0 : 1;
+		}
+
+		@Override
+		public String getDescription() {
+			return description;
+		}
+
+		@Override
+		public Kind getKind() {
+			return Kind.STANDARD;
+		}
+
+		@Override
+		public List<String> getNames() {
+			return List.of(name);
+		}
+
+		@Override
+		public String getParameters() {
+			return parameters;
+		}
+
+		@Override
+		public boolean process(final String option, final List<String> arguments) {
+			if (processor == null) {
+				flagProcessor.process();
+				return true;
+			}
+			return !arguments.isEmpty() && processor.process(arguments.get(0));
+		}
+
+	}
+
 }
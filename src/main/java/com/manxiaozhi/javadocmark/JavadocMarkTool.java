@@ -0,0 +1,247 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.DocumentationTool;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs javadoc with the JavadocMark doclet in process, without the
+ * Maven javadoc plugin or a forked javadoc process. A tool instance
+ * can run many times, for instance once per module of a build: the
+ * JVM, the compiler classes and the file manager, which caches the
+ * platform classes and class path archives, are shared by the runs.
+ * The class path and source path of the file manager are reset before
+ * each run, so that a run only sees the paths given by its arguments.
+ * Runs are sequential; pages of a run are still written with as many
+ * threads as its {@code -threads} option asks for.
+ * <p>
+ * From the command line, arguments are the javadoc arguments, without
+ * the doclet ones. With {@code -batch <file>}, the file lists one
+ * module per line, as its output directory, its source roots separated
+ * by the path separator and optionally its class path, separated by
+ * spaces; the other arguments then apply to every module. Empty lines
+ * and lines starting with '#' are ignored. When the modules are
+ * aggregated with {@code -modules <directory>}, modules are linked to
+ * the modules documented before them, and a page listing every module
+ * is written to the modules directory once all are documented.
+ *
+ * @author wangzhi
+ */
+public final class JavadocMarkTool implements Closeable {
+
+	/** Batch file option name. **/
+	private static final String BATCH = "-batch";
+
+	/** Aggregated modules directory option name. **/
+	private static final String MODULES = "-modules";
+
+	/** Documentation tool runs are made with. **/
+	private final DocumentationTool tool;
+
+	/** File manager shared by the runs. **/
+	private final StandardJavaFileManager fileManager;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @throws IllegalStateException If the running JDK provides no documentation tool.
+	 */
+	public JavadocMarkTool() {
+		this.tool = ToolProvider.getSystemDocumentationTool();
+		if (tool == null) {
+			throw new IllegalStateException("No documentation tool available, a JDK is required");
+		}
+		this.fileManager = tool.getStandardFileManager(null, null, null);
+	}
+
+	/**
+	 * Entry point of the command line.
+	 *
+	 * @param args Javadoc arguments, or shared arguments and a batch file.
+	 */
+	public static void main(final String[] args) {
+		final List<String> arguments = new ArrayList<>(Arrays.asList(args));
+		final int batchIndex = arguments.indexOf(BATCH);
+		try (JavadocMarkTool tool = new JavadocMarkTool()) {
+			final boolean success;
+			if (batchIndex < 0) {
+				success = tool.run(arguments);
+			} else if (batchIndex == arguments.size() - 1) {
+				JavadocMarkLogger.error("JavadocMarkTool", "Missing file of the " + BATCH + " option", null);
+				success = false;
+			} else {
+				final Path batchFile = Paths.get(arguments.remove(batchIndex + 1));
+				arguments.remove(batchIndex);
+				success = tool.runBatch(batchFile, arguments);
+			}
+			if (!success) {
+				System.exit(1);
+			}
+		} catch (final IOException e) {
+			JavadocMarkLogger.error("JavadocMarkTool", "Error running JavadocMark: " + e.getMessage(), e);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Runs javadoc once with the given arguments.
+	 *
+	 * @param arguments Javadoc and JavadocMark arguments, without the doclet ones.
+	 * @return true if the documentation was generated, false otherwise.
+	 */
+	public boolean run(final List<String> arguments) {
+		return run(arguments, null);
+	}
+
+	/**
+	 * Documents every source file of the given source roots, so that
+	 * packages do not need to be listed.
+	 *
+	 * @param sourceRoots Source roots to document.
+	 * @param outputDirectory Output directory of the pages.
+	 * @param classPath Class path of the sources, null or empty if none.
+	 * @param options Additional javadoc and JavadocMark options.
+	 * @return true if the documentation was generated, false otherwise.
+	 * @throws IOException If any error occurs while listing the sources.
+	 */
+	public boolean document(final List<Path> sourceRoots, final Path outputDirectory, final String classPath,
+			final List<String> options) throws IOException {
+		final List<Path> sources = new ArrayList<>();
+		for (final Path sourceRoot : sourceRoots) {
+			try (Stream<Path> files = Files.walk(sourceRoot)) {
+				files.filter(file -> file.getFileName().toString().endsWith(".java")
+						&& !"module-info.java".equals(file.getFileName().toString()))
+					.forEach(sources::add);
+			}
+		}
+		if (sources.isEmpty()) {
+			JavadocMarkLogger.info("JavadocMarkTool", "No sources in " + sourceRoots + ", nothing to document");
+			return true;
+		}
+		final List<String> arguments = new ArrayList<>(options);
+		arguments.add("-sourcepath");
+		arguments.add(sourceRoots.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator)));
+		if (classPath != null && !classPath.isEmpty()) {
+			arguments.add("-classpath");
+			arguments.add(classPath);
+		}
+		arguments.add("-d");
+		arguments.add(outputDirectory.toString());
+		final List<JavaFileObject> compilationUnits = new ArrayList<>();
+		for (final JavaFileObject source : fileManager.getJavaFileObjectsFromPaths(sources)) {
+			compilationUnits.add(source);
+		}
+		return run(arguments, compilationUnits);
+	}
+
+	/**
+	 * Documents every module listed in the given batch file, one after
+	 * the other, going on after a failed module.
+	 *
+	 * @param batchFile Batch file, see the class documentation for its format.
+	 * @param options Javadoc and JavadocMark options shared by the modules.
+	 * @return true if every module was documented, false otherwise.
+	 * @throws IOException If any error occurs while reading the batch file.
+	 */
+	public boolean runBatch(final Path batchFile, final List<String> options) throws IOException {
+		final long start = System.nanoTime();
+		int modules = 0;
+		int failures = 0;
+		for (final String line : Files.readAllLines(batchFile)) {
+			final String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+				continue;
+			}
+			modules++;
+			final String [] fields = trimmed.split("\\s+");
+			if (fields.length < 2 || fields.length > 3) {
+				JavadocMarkLogger.error("JavadocMarkTool", "Invalid batch line, expected <output> <source roots> [<class path>]: " + line, null);
+				failures++;
+				continue;
+			}
+			final List<Path> sourceRoots = new ArrayList<>();
+			for (final String sourceRoot : fields[1].split(File.pathSeparator)) {
+				sourceRoots.add(Paths.get(sourceRoot));
+			}
+			try {
+				if (!document(sourceRoots, Paths.get(fields[0]), fields.length == 3 ? fields[2] : null, options)) {
+					JavadocMarkLogger.error("JavadocMarkTool", "Documentation of " + fields[1] + " failed", null);
+					failures++;
+				}
+			} catch (final IOException e) {
+				JavadocMarkLogger.error("JavadocMarkTool", "Error listing sources of " + fields[1] + ": " + e.getMessage(), null);
+				failures++;
+			}
+		}
+		final int modulesIndex = options.indexOf(MODULES);
+		if (modulesIndex >= 0 && modulesIndex < options.size() - 1) {
+			aggregate(Paths.get(options.get(modulesIndex + 1)));
+		}
+		JavadocMarkLogger.info("JavadocMarkTool", "Documented " + (modules - failures) + " of " + modules + " modules in "
+			+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+		return failures == 0;
+	}
+
+	/**
+	 * Writes the page listing the modules documented in the given
+	 * directory with {@code -modules}, from their symbol exports.
+	 *
+	 * @param modulesDirectory Directory holding the output directory of each module.
+	 * @return Number of listed modules.
+	 * @throws IOException If any error occurs while reading the exports or writing the page.
+	 */
+	public int aggregate(final Path modulesDirectory) throws IOException {
+		final List<SymbolExport> exports = SymbolExport.openModules(modulesDirectory, modulesDirectory);
+		new ModulesPageBuilder(exports).build(modulesDirectory.resolve(SymbolTable.PACKAGE_PAGE));
+		JavadocMarkLogger.info("JavadocMarkTool", "Modules page written with " + exports.size() + " modules");
+		return exports.size();
+	}
+
+	/**
+	 * Releases the file manager.
+	 *
+	 * @throws IOException If any error occurs while closing the file manager.
+	 */
+	@Override
+	public void close() throws IOException {
+		fileManager.close();
+	}
+
+	/**
+	 * Runs javadoc once.
+	 *
+	 * @param arguments Javadoc and JavadocMark arguments.
+	 * @param compilationUnits Source files to document in addition to the arguments, null if none.
+	 * @return true if the documentation was generated, false otherwise.
+	 */
+	private boolean run(final List<String> arguments, final List<JavaFileObject> compilationUnits) {
+		try {
+			// Paths set by the options of a previous run would otherwise be used by a run without these options.
+			fileManager.setLocation(StandardLocation.CLASS_PATH, null);
+			fileManager.setLocation(StandardLocation.SOURCE_PATH, null);
+			return tool.getTask(null, fileManager, null, JavadocMark.class, arguments, compilationUnits).call();
+		} catch (final IOException e) {
+			JavadocMarkLogger.error("JavadocMarkTool", "Error resetting the paths of the file manager: " + e.getMessage(), null);
+			return false;
+		} catch (final IllegalArgumentException e) {
+			JavadocMarkLogger.error("JavadocMarkTool", "Invalid javadoc arguments: " + e.getMessage(), null);
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,222 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watch mode: runs javadoc with the JavadocMark doclet in process,
+ * then runs it again each time a source file of the source path
+ * changes, until the process is stopped. Runs are incremental, so
+ * only the pages whose inputs changed are rendered and written, and
+ * are made by the same {@link JavadocMarkTool}, so the JVM, the
+ * compiler classes and the file manager stay warm between runs.
+ * Sources are parsed again on each run, as the compiler model cannot
+ * outlive the javadoc run it was built by.
+ * <p>
+ * Arguments are the javadoc arguments, without the doclet ones:
+ * {@code java -cp javadocmark.jar com.manxiaozhi.javadocmark.JavadocMarkWatcher
+ * -d javadoc -sourcepath src/main/java -subpackages com.example}.
+ *
+ * @author wangzhi
+ */
+public final class JavadocMarkWatcher {
+
+	/** Source path option name. **/
+	private static final String SOURCE_PATH = "-sourcepath";
+
+	/** Alternate source path option name. **/
+	private static final String SOURCE_PATH_ALIAS = "--source-path";
+
+	/** Incremental generation option name. **/
+	private static final String INCREMENTAL = "-incremental";
+
+	/** Time without change after which a run starts, in milliseconds. **/
+	private static final long QUIET_PERIOD = 100;
+
+	/** Arguments of each javadoc run. **/
+	private final List<String> arguments;
+
+	/** Root directories of the sources to watch. **/
+	private final List<Path> sourceRoots;
+
+	/** Tool runs are made with. **/
+	private final JavadocMarkTool tool;
+
+	/** Watched directories, by watch key. **/
+	private final Map<WatchKey, Path> directories;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param tool Tool runs are made with.
+	 * @param arguments Javadoc arguments, holding a source path.
+	 * @throws IllegalArgumentException If the arguments hold no source path.
+	 */
+	public JavadocMarkWatcher(final JavadocMarkTool tool, final List<String> arguments) {
+		this.tool = tool;
+		this.arguments = new ArrayList<>(arguments);
+		if (!this.arguments.contains(INCREMENTAL)) {
+			this.arguments.add(INCREMENTAL);
+		}
+		this.sourceRoots = getSourceRoots(arguments);
+		if (sourceRoots.isEmpty()) {
+			throw new IllegalArgumentException("A source path is required to watch sources, use " + SOURCE_PATH);
+		}
+		this.directories = new HashMap<>();
+	}
+
+	/**
+	 * Entry point of the watch mode.
+	 *
+	 * @param args Javadoc arguments, holding a source path.
+	 */
+	public static void main(final String[] args) {
+		try (JavadocMarkTool tool = new JavadocMarkTool()) {
+			new JavadocMarkWatcher(tool, Arrays.asList(args)).watch();
+		} catch (final IllegalArgumentException e) {
+			JavadocMarkLogger.error("JavadocMarkWatcher", e.getMessage(), null);
+			System.exit(2);
+		} catch (final IOException e) {
+			JavadocMarkLogger.error("JavadocMarkWatcher", "Error watching sources: " + e.getMessage(), e);
+			System.exit(1);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Runs javadoc once.
+	 *
+	 * @return true if the documentation was generated, false otherwise.
+	 */
+	public boolean generate() {
+		final long start = System.nanoTime();
+		final boolean success = tool.run(arguments);
+		JavadocMarkLogger.info("JavadocMarkWatcher", (success ? "Documentation refreshed in " : "Documentation generation failed after ")
+			+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+		return success;
+	}
+
+	/**
+	 * Runs javadoc, then runs it again after each change of the
+	 * sources, once no change happened for a short quiet period.
+	 * Never returns normally.
+	 *
+	 * @throws IOException If any error occurs while watching the sources.
+	 * @throws InterruptedException If the thread is interrupted while waiting for changes.
+	 */
+	public void watch() throws IOException, InterruptedException {
+		try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+			for (final Path sourceRoot : sourceRoots) {
+				register(watchService, sourceRoot);
+			}
+			generate();
+			JavadocMarkLogger.info("JavadocMarkWatcher", "Watching " + directories.size() + " source directories");
+			while (true) {
+				boolean changed = poll(watchService, watchService.take());
+				WatchKey key;
+				while ((key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS)) != null) {
+					changed |= poll(watchService, key);
+				}
+				if (changed) {
+					generate();
+				}
+			}
+		} catch (final ClosedWatchServiceException e) {
+			throw new IOException("Watch service closed", e);
+		}
+	}
+
+	/**
+	 * Consumes the events of the given key, registering new
+	 * directories, and indicates if a source file changed.
+	 *
+	 * @param watchService Watch service directories are registered with.
+	 * @param key Signaled key.
+	 * @return true if a source file or directory changed, false otherwise.
+	 * @throws IOException If any error occurs while registering a new directory.
+	 */
+	private boolean poll(final WatchService watchService, final WatchKey key) throws IOException {
+		final Path directory = directories.get(key);
+		boolean changed = false;
+		for (final WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				changed = true;
+				continue;
+			}
+			final Path path = directory.resolve((Path) event.context());
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+				register(watchService, path);
+				changed = true;
+			} else if (path.getFileName().toString().endsWith(".java")) {
+				if (JavadocMarkLogger.isDebugEnabled()) {
+					JavadocMarkLogger.debug("JavadocMarkWatcher", "Source changed: " + path);
+				}
+				changed = true;
+			}
+		}
+		if (!key.reset()) {
+			directories.remove(key);
+		}
+		return changed;
+	}
+
+	/**
+	 * Registers the given directory and its subdirectories with the
+	 * given watch service.
+	 *
+	 * @param watchService Watch service to register directories with.
+	 * @param root Directory to register.
+	 * @throws IOException If any error occurs while registering directories.
+	 */
+	private void register(final WatchService watchService, final Path root) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attributes) throws IOException {
+				directories.put(directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), directory);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Returns the existing directories of the source path arguments.
+	 *
+	 * @param arguments Javadoc arguments.
+	 * @return Source root directories.
+	 */
+	private static List<Path> getSourceRoots(final List<String> arguments) {
+		final List<Path> sourceRoots = new ArrayList<>();
+		for (int i = 0; i < arguments.size() - 1; i++) {
+			if (SOURCE_PATH.equals(arguments.get(i)) || SOURCE_PATH_ALIAS.equals(arguments.get(i))) {
+				for (final String entry : arguments.get(i + 1).split(File.pathSeparator)) {
+					final Path sourceRoot = Paths.get(entry);
+					if (!entry.isEmpty() && Files.isDirectory(sourceRoot)) {
+						sourceRoots.add(sourceRoot);
+					}
+				}
+			}
+		}
+		return sourceRoots;
+	}
+
+}
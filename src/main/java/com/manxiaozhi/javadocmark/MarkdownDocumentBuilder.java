@@ -1,17 +1,16 @@
 package com.manxiaozhi.javadocmark;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
 
 /**
  * This class aims to build Markdown document.
- * It is built in a top of a {@link StringBuffer}
+ * It is built in a top of a {@link StringBuilder}
  * instance which will contains our document
- * content.
+ * content. When streamed, the content is flushed
+ * to the target file as it is rendered so that
+ * only a bounded part of the document is held in
+ * memory.
  * 
  * @author wangzhi
  */
@@ -59,34 +58,368 @@ public class MarkdownDocumentBuilder {
 	/** HTML link closing tag. **/
 	private static final String LINK_CLOSE =  "</a>";
 
-	/** HTML paragraph opening tag. **/
-	private static final String PARAGRAPH_OPEN = "<p>";
-
-	/** HTML paragraph closing tag. **/
-	private static final String PARAGRAPH_CLOSE = "</p>";
+	/**
+	 * Javadoc HTML tags filtered from text, each followed by its Markdown
+	 * replacement. Matching is case sensitive so that upper case type
+	 * variables such as <code>Function&lt;B&gt;</code> are left untouched.
+	 * Paragraph tags are matched apart, whatever their case and attributes.
+	 **/
+	private static final String [] HTML_FILTERS = {
+		"<b>", BOLD,
+		"</b>", BOLD,
+		"<strong>", BOLD,
+		"</strong>", BOLD,
+		"<i>", ITALIC,
+		"</i>", ITALIC,
+		"<em>", ITALIC,
+		"</em>", ITALIC
+	};
+
+	/** HTML code tags turned into code spans, each followed by its closing tag. **/
+	private static final String [] CODE_TAGS = {
+		"<code>", "</code>",
+		"<tt>", "</tt>"
+	};
+
+	/** HTML entities decoded in code spans, each followed by its character. **/
+	private static final String [] CODE_ENTITIES = {
+		"&lt;", "<",
+		"&gt;", ">",
+		"&amp;", "&",
+		"&quot;", "\""
+	};
+
+	/** Number of buffered characters above which a streamed document is flushed. **/
+	private static final int FLUSH_THRESHOLD = 8192;
+
+	/** Writers used to write documents, reused across documents of a thread. **/
+	private static final ThreadLocal<Utf8ChannelWriter> WRITERS = ThreadLocal.withInitial(Utf8ChannelWriter::new);
 
 	/** Buffer in which markdown document is stored. **/
-	private final StringBuffer buffer;
+	private final StringBuilder buffer;
+
+	/** Writer the document is streamed to, null if the document is kept in memory. **/
+	private Utf8ChannelWriter sink;
+
+	/** Number of characters of the current document already flushed to the sink. **/
+	private long flushedLength;
+
+	/** Number of bytes of the last written document. **/
+	private long writtenBytes;
 
 	/**
 	 * Default constructor.
 	 * Initializes internal buffer.
 	 */
 	public MarkdownDocumentBuilder() {
-		this.buffer = new StringBuffer();
+		this.buffer = new StringBuilder();
 	}
 	
 	/**
-	 * Filters and returns the given ``text``
-	 * freed from HTML paragraph.
+	 * Appends the given ``text`` to the buffer in a single pass,
+	 * removing HTML paragraph tags and replacing common HTML
+	 * decorations by their Markdown equivalent. Text without any
+	 * tag is appended as is, and no intermediate string is created.
 	 * 
-	 * @param text Text to remove paragraph tag from.
+	 * @param text Text to filter and append.
+	 */
+	private void appendFiltered(final String text) {
+		appendFiltered(buffer, text);
+	}
+
+	/**
+	 * Appends the given ``text`` to the given builder, filtered as
+	 * the text of documents. Markdown code spans, such as the ones
+	 * of {@code {@code}} tags, are left untouched. HTML code tags
+	 * become code spans, their content being decoded, unless they
+	 * hold other tags or entities: they are then left as inline HTML.
+	 * 
+	 * @param builder Builder to append the filtered text to.
+	 * @param text Text to filter and append.
+	 */
+	static void appendFiltered(final StringBuilder builder, final String text) {
+		int from = 0;
+		int offset = findMarkup(text, 0);
+		while (offset >= 0) {
+			int next = offset + 1;
+			if (text.charAt(offset) == '`') {
+				next = skipCodeSpan(text, offset);
+			} else {
+				final int codeTag = findCodeTag(text, offset);
+				if (codeTag >= 0) {
+					next = appendCodeTag(builder, text, from, offset, codeTag);
+					if (next > offset) {
+						from = next;
+					} else {
+						next = offset + 1;
+					}
+				} else {
+					final int paragraphEnd = findParagraphTagEnd(text, offset);
+					final int filter = paragraphEnd < 0 ? findFilter(text, offset) : -1;
+					if (paragraphEnd >= 0) {
+						builder.append(text, from, offset);
+						next = paragraphEnd;
+						from = next;
+					} else if (filter >= 0) {
+						builder.append(text, from, offset).append(HTML_FILTERS[filter + 1]);
+						next = offset + HTML_FILTERS[filter].length();
+						from = next;
+					}
+				}
+			}
+			offset = findMarkup(text, next);
+		}
+		builder.append(text, from, text.length());
+	}
+
+	/**
+	 * Returns the given ``text`` filtered as the text of documents.
+	 * 
+	 * @param text Text to filter.
 	 * @return Filtered text.
 	 */
-	private final String filterParagraph(final String text) {
-		return text
-				.replaceAll(PARAGRAPH_OPEN, "")
-				.replaceAll(PARAGRAPH_CLOSE, "");
+	static String filter(final String text) {
+		if (text.indexOf('<') < 0) {
+			return text;
+		}
+		final StringBuilder builder = new StringBuilder(text.length());
+		appendFiltered(builder, text);
+		return builder.toString();
+	}
+
+	/**
+	 * Finds the next tag opening character or backtick of the given text.
+	 * 
+	 * @param text Text to look into.
+	 * @param from Offset to start looking from.
+	 * @return Offset of the character, or -1 if none.
+	 */
+	private static int findMarkup(final String text, final int from) {
+		for (int i = from; i < text.length(); i++) {
+			final char character = text.charAt(i);
+			if (character == '<' || character == '`') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the offset following the Markdown code span starting at
+	 * the given offset, that is following the first backtick run of the
+	 * same length as its opening run.
+	 * 
+	 * @param text Text to look into.
+	 * @param offset Offset of the opening backtick run.
+	 * @return Offset following the code span, or following the opening run if it is not closed.
+	 */
+	private static int skipCodeSpan(final String text, final int offset) {
+		final int length = getBacktickRun(text, offset);
+		int close = text.indexOf('`', offset + length);
+		while (close >= 0) {
+			final int run = getBacktickRun(text, close);
+			if (run == length) {
+				return close + run;
+			}
+			close = text.indexOf('`', close + run);
+		}
+		return offset + length;
+	}
+
+	/**
+	 * Returns the length of the backtick run starting at the given offset.
+	 * 
+	 * @param text Text to look into.
+	 * @param offset Offset of the first backtick.
+	 * @return Number of consecutive backticks.
+	 */
+	private static int getBacktickRun(final CharSequence text, final int offset) {
+		int end = offset;
+		while (end < text.length() && text.charAt(end) == '`') {
+			end++;
+		}
+		return end - offset;
+	}
+
+	/**
+	 * Finds the HTML code tag starting at the given offset.
+	 * 
+	 * @param text Text to look into.
+	 * @param offset Offset of the tag opening character.
+	 * @return Index of the matching tag in {@link #CODE_TAGS}, or -1 if none.
+	 */
+	private static int findCodeTag(final String text, final int offset) {
+		for (int i = 0; i < CODE_TAGS.length; i += 2) {
+			if (text.startsWith(CODE_TAGS[i], offset)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Appends the text preceding the HTML code tag starting at the
+	 * given offset, then its content as a code span. Content holding
+	 * other tags or entities is left as inline HTML, along with its
+	 * tags, as a code span would show them literally.
+	 * 
+	 * @param builder Builder to append to.
+	 * @param text Text to look into.
+	 * @param from Offset of the text not appended yet.
+	 * @param offset Offset of the code tag.
+	 * @param codeTag Index of the code tag in {@link #CODE_TAGS}.
+	 * @return Offset following the closing tag, or the given offset if the tag is not closed.
+	 */
+	private static int appendCodeTag(final StringBuilder builder, final String text, final int from, final int offset,
+			final int codeTag) {
+		final int start = offset + CODE_TAGS[codeTag].length();
+		final int close = text.indexOf(CODE_TAGS[codeTag + 1], start);
+		if (close < 0) {
+			return offset;
+		}
+		final int end = close + CODE_TAGS[codeTag + 1].length();
+		final String code = decodeEntities(text.substring(start, close));
+		builder.append(text, from, offset);
+		if (code == null) {
+			builder.append(text, offset, end);
+		} else {
+			appendCode(builder, code);
+		}
+		return end;
+	}
+
+	/**
+	 * Decodes the HTML entities of the given code.
+	 * 
+	 * @param code Content of an HTML code tag.
+	 * @return Decoded code, or null if it holds a tag or an entity which is not decoded.
+	 */
+	private static String decodeEntities(final String code) {
+		if (code.indexOf('<') >= 0) {
+			return null;
+		}
+		int entity = code.indexOf('&');
+		if (entity < 0) {
+			return code;
+		}
+		final StringBuilder builder = new StringBuilder(code.length());
+		int from = 0;
+		while (entity >= 0) {
+			int decoded = -1;
+			for (int i = 0; i < CODE_ENTITIES.length; i += 2) {
+				if (code.startsWith(CODE_ENTITIES[i], entity)) {
+					decoded = i;
+					break;
+				}
+			}
+			if (decoded >= 0) {
+				builder.append(code, from, entity).append(CODE_ENTITIES[decoded + 1]);
+				from = entity + CODE_ENTITIES[decoded].length();
+			} else if (isEntity(code, entity)) {
+				return null;
+			}
+			entity = code.indexOf('&', entity + 1);
+		}
+		return builder.append(code, from, code.length()).toString();
+	}
+
+	/**
+	 * Indicates if an HTML entity starts at the given offset.
+	 * 
+	 * @param text Text to look into.
+	 * @param offset Offset of the ampersand.
+	 * @return true if the ampersand is followed by an entity name or number and a semicolon, false otherwise.
+	 */
+	private static boolean isEntity(final String text, final int offset) {
+		final int end = text.indexOf(';', offset);
+		if (end <= offset + 1) {
+			return false;
+		}
+		for (int i = offset + 1; i < end; i++) {
+			final char character = text.charAt(i);
+			if (!Character.isLetterOrDigit(character) && character != '#') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Appends the given code as a Markdown code span, fenced with a
+	 * backtick run longer than any backtick run of the code.
+	 * 
+	 * @param builder Builder to append to.
+	 * @param code Code to append, as is.
+	 */
+	static void appendCode(final StringBuilder builder, final String code) {
+		if (code.isEmpty()) {
+			return;
+		}
+		int fence = 1;
+		for (int i = code.indexOf('`'); i >= 0; i = code.indexOf('`', i + 1)) {
+			final int run = getBacktickRun(code, i);
+			fence = Math.max(fence, run + 1);
+			i += run;
+		}
+		final boolean padded = code.charAt(0) == '`' || code.charAt(code.length() - 1) == '`';
+		for (int i = 0; i < fence; i++) {
+			builder.append(CODE);
+		}
+		if (padded) {
+			builder.append(' ');
+		}
+		builder.append(code);
+		if (padded) {
+			builder.append(' ');
+		}
+		for (int i = 0; i < fence; i++) {
+			builder.append(CODE);
+		}
+	}
+
+	/**
+	 * Finds the end of the HTML paragraph tag starting at the given
+	 * offset: an opening or closing {@code p} tag in any case, with or
+	 * without attributes, which is removed from text.
+	 * 
+	 * @param text Text to look into.
+	 * @param offset Offset of the tag opening character.
+	 * @return Offset following the tag, or -1 if no paragraph tag starts at the offset.
+	 */
+	private static int findParagraphTagEnd(final String text, final int offset) {
+		int name = offset + 1;
+		if (name < text.length() && text.charAt(name) == '/') {
+			name++;
+		}
+		if (name + 1 >= text.length() || Character.toLowerCase(text.charAt(name)) != 'p') {
+			return -1;
+		}
+		final char next = text.charAt(name + 1);
+		if (next == '>') {
+			return name + 2;
+		}
+		// Other tags starting with a p, such as pre, are not paragraph tags.
+		if (!Character.isWhitespace(next) && next != '/') {
+			return -1;
+		}
+		final int end = text.indexOf('>', name + 1);
+		return end < 0 ? -1 : end + 1;
+	}
+
+	/**
+	 * Finds the HTML filter whose tag starts at the given offset.
+	 * 
+	 * @param text Text to look into.
+	 * @param offset Offset of the tag opening character.
+	 * @return Index of the matching tag in {@link #HTML_FILTERS}, or -1 if none.
+	 */
+	private static int findFilter(final String text, final int offset) {
+		for (int i = 0; i < HTML_FILTERS.length; i += 2) {
+			if (text.startsWith(HTML_FILTERS[i], offset)) {
+				return i;
+			}
+		}
+		return -1;
 	}
 	
 	/**
@@ -94,6 +427,23 @@ public class MarkdownDocumentBuilder {
 	 */
 	public final void newLine() {
 		buffer.append("\n");
+		flushIfNeeded();
+	}
+
+	/**
+	 * Flushes the buffered content to the sink if the
+	 * document is streamed and the buffer is large enough.
+	 */
+	private void flushIfNeeded() {
+		if (sink != null && buffer.length() >= FLUSH_THRESHOLD) {
+			try {
+				sink.write(buffer);
+			} catch (final IOException e) {
+				throw new StreamingException(e);
+			}
+			flushedLength += buffer.length();
+			buffer.setLength(0);
+		}
 	}
 
 	/**
@@ -103,7 +453,8 @@ public class MarkdownDocumentBuilder {
 	 * @param text Text to append to the document.
 	 */
 	public final void text(final String text) {
-		buffer.append(filterParagraph(text));
+		appendFiltered(text);
+		flushIfNeeded();
 	}
 	
 	/**
@@ -134,10 +485,7 @@ public class MarkdownDocumentBuilder {
 	 * @param text code snippet to add to the document
 	 */
 	public final void code(final String text) {
-		buffer
-			.append(CODE)
-			.append(text)
-			.append(CODE);
+		appendCode(buffer, text);
 	}
 	
 	/**
@@ -310,8 +658,46 @@ public class MarkdownDocumentBuilder {
 		endTableRow();
 	}
 
+	/**
+	 * Appends the given documentation comment: its body, followed
+	 * by its deprecation, since and see also tags, if any.
+	 *
+	 * @param comment Comment to append to the document.
+	 */
+	public final void comment(final DocComments.Comment comment) {
+		if (!comment.getBody().isEmpty()) {
+			text(comment.getBody());
+			newLine();
+		}
+		if (comment.getDeprecated() != null) {
+			newLine();
+			bold("Deprecated.");
+			if (!comment.getDeprecated().isEmpty()) {
+				character(' ');
+				text(comment.getDeprecated());
+			}
+			newLine();
+		}
+		if (comment.getSince() != null) {
+			newLine();
+			bold("Since:");
+			character(' ');
+			text(comment.getSince());
+			newLine();
+		}
+		if (!comment.getSee().isEmpty()) {
+			newLine();
+			bold("See also:");
+			character(' ');
+			text(String.join(", ", comment.getSee()));
+			newLine();
+		}
+	}
+
 	/**
 	 * Builds and returns the current document content.
+	 * For a streamed document, only the content which
+	 * has not been flushed yet is returned.
 	 * 
 	 * @return Built document content.
 	 */
@@ -319,6 +705,17 @@ public class MarkdownDocumentBuilder {
 		return buffer.toString();
 	}
 
+	/**
+	 * Renders the document content into the internal buffer.
+	 * Default implementation does nothing, subclasses that
+	 * generate their content from program elements override it.
+	 * 
+	 * @throws IOException If any error occurs while rendering the document.
+	 */
+	public void render() throws IOException {
+		// Do nothing.
+	}
+
 	/**
 	 * Builds and writes the document to the given path.
 	 * 
@@ -326,9 +723,137 @@ public class MarkdownDocumentBuilder {
 	 * @throws IOException If any error occurs while writing the document.
 	 */
 	public void build(final Path path) throws IOException {
-		final String content = build();
-		final InputStream stream = new ByteArrayInputStream(content.getBytes());
-		Files.copy(stream, path, StandardCopyOption.REPLACE_EXISTING);
+		render();
+		write(path);
+	}
+
+	/**
+	 * Writes the current document content to the given path
+	 * without rendering it. This method does not access any
+	 * program element and is therefore safe to call from a
+	 * thread other than the doclet one.
+	 * 
+	 * @param path Path to write the document to.
+	 * @throws IOException If any error occurs while writing the document.
+	 */
+	public void write(final Path path) throws IOException {
+		final Utf8ChannelWriter writer = WRITERS.get();
+		writer.open(path);
+		try {
+			writer.write(buffer);
+		} finally {
+			writer.close();
+		}
+		writtenBytes = writer.getBytesWritten();
+	}
+
+	/**
+	 * Indicates if the given file already holds the current document
+	 * content. Like {@link #write(Path)}, this method does not access
+	 * any program element.
+	 * 
+	 * @param path Path of the file to compare with.
+	 * @return true if the file content is identical, false otherwise.
+	 * @throws IOException If any error occurs while reading the file.
+	 */
+	public boolean isWrittenTo(final Path path) throws IOException {
+		return WRITERS.get().contentEquals(buffer, path);
+	}
+
+	/**
+	 * Returns the current document content without copying it. The
+	 * returned sequence must not be retained, as it changes with the
+	 * document.
+	 * 
+	 * @return Current document content.
+	 */
+	final CharSequence getContent() {
+		return buffer;
+	}
+
+	/**
+	 * Returns the number of characters currently held in memory
+	 * by this builder, that is the rendered content not written
+	 * or flushed yet.
+	 * 
+	 * @return Number of buffered characters.
+	 */
+	public final int getBufferedLength() {
+		return buffer.length();
+	}
+
+	/**
+	 * Returns the number of characters of the document rendered so
+	 * far, including streamed content no longer held in memory.
+	 * 
+	 * @return Number of rendered characters.
+	 */
+	public final long getRenderedLength() {
+		return flushedLength + buffer.length();
+	}
+
+	/**
+	 * Returns the number of bytes of the document last written
+	 * or streamed by this builder.
+	 * 
+	 * @return Number of bytes written.
+	 */
+	public final long getWrittenBytes() {
+		return writtenBytes;
+	}
+
+	/**
+	 * Renders the document while streaming its content to the given
+	 * path through the given writer. Content is encoded and written
+	 * as it is rendered, so that memory used by large documents stays
+	 * bounded. The written file is identical to the one produced by
+	 * {@link #build(Path)}.
+	 * 
+	 * @param path Path to write the document to.
+	 * @param writer Writer to stream the document with, reused across documents.
+	 * @throws IOException If any error occurs while rendering or writing the document.
+	 */
+	public void stream(final Path path, final Utf8ChannelWriter writer) throws IOException {
+		writer.open(path);
+		sink = writer;
+		flushedLength = 0;
+		try {
+			render();
+			writer.write(buffer);
+			flushedLength += buffer.length();
+			buffer.setLength(0);
+		} catch (final StreamingException e) {
+			throw e.getCause();
+		} finally {
+			sink = null;
+			writer.close();
+		}
+		writtenBytes = writer.getBytesWritten();
+	}
+
+	/**
+	 * Unchecked wrapper of errors occurring while flushing a
+	 * streamed document from methods which cannot throw them.
+	 */
+	private static final class StreamingException extends RuntimeException {
+
+		/** Serial version UID. **/
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Default constructor.
+		 * 
+		 * @param cause Wrapped error.
+		 */
+		StreamingException(final IOException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized IOException getCause() {
+			return (IOException) super.getCause();
+		}
+
 	}
 
 }
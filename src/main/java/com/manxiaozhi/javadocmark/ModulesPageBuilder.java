@@ -0,0 +1,50 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Builder that creates the top level page of aggregated modules: one
+ * table row per module, with its number of types and links to its
+ * packages. The page is built from the symbol exports of the modules
+ * only, without any program element.
+ *
+ * @author wangzhi
+ */
+public final class ModulesPageBuilder extends MarkdownDocumentBuilder {
+
+	/** Symbol exports of the modules, linked from the modules directory. **/
+	private final List<SymbolExport> modules;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param modules Symbol exports of the modules, linked from the modules directory.
+	 */
+	public ModulesPageBuilder(final List<SymbolExport> modules) {
+		this.modules = modules;
+	}
+
+	/** {@inheritDoc} **/
+	@Override
+	public void render() throws IOException {
+		header(1, "Modules");
+		text("| Module | Types | Packages |");
+		newLine();
+		text("|--------|-------|----------|");
+		newLine();
+		for (final SymbolExport module : modules) {
+			final StringBuilder packages = new StringBuilder();
+			for (final String packageName : module.getPackages()) {
+				if (packages.length() > 0) {
+					packages.append(", ");
+				}
+				packages.append('[').append(packageName).append("](")
+					.append(module.getUrl()).append('/').append(module.getPackagePath(packageName)).append(')');
+			}
+			text("| " + module.getName() + " | " + module.getTypeCount() + " | " + packages + " |");
+			newLine();
+		}
+	}
+
+}
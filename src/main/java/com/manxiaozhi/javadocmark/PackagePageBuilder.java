@@ -3,10 +3,7 @@ package com.manxiaozhi.javadocmark;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
-import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
@@ -26,8 +23,8 @@ public final class PackagePageBuilder extends MarkdownDocumentBuilder {
 	/** Target package element this builder is working on. **/
 	private final PackageElement packageElement;
 
-	/** Doclet environment instance for accessing documentation utilities. **/
-	private final DocletEnvironment environment;
+	/** Index of the documented elements. **/
+	private final ElementIndex index;
 
 	/** Cached list of classes in the package. **/
 	private final List<TypeElement> classes;
@@ -35,32 +32,33 @@ public final class PackagePageBuilder extends MarkdownDocumentBuilder {
 	/** Utility for accessing element documentation. **/
 	private final Elements elementUtils;
 
+	/** Rendered documentation comments. **/
+	private final DocComments comments;
+
+	/** Symbol table types are linked with. **/
+	private final SymbolTable symbols;
+
+	/** Directory of the page, relative to the output directory. **/
+	private final String directory;
+
 	/**
 	 * Creates a new package page builder.
 	 * 
 	 * @param packageElement Package to build documentation for
 	 * @param environment Doclet environment instance
+	 * @param index Index of the documented elements
+	 * @param comments Rendered documentation comments
+	 * @param symbols Symbol table types are linked with
 	 */
-	public PackagePageBuilder(final PackageElement packageElement, final DocletEnvironment environment) {
+	public PackagePageBuilder(final PackageElement packageElement, final DocletEnvironment environment, final ElementIndex index,
+			final DocComments comments, final SymbolTable symbols) {
 		this.packageElement = packageElement;
-		this.environment = environment;
+		this.index = index;
 		this.elementUtils = environment.getElementUtils();
-		this.classes = initializeClassList();
-	}
-
-	/**
-	 * Initializes the list of classes in the package.
-	 * 
-	 * @return List of TypeElements representing classes in the package
-	 */
-	private List<TypeElement> initializeClassList() {
-		return environment.getIncludedElements().stream()
-			.filter(element -> element.getKind() == ElementKind.CLASS || 
-							 element.getKind() == ElementKind.INTERFACE || 
-							 element.getKind() == ElementKind.ENUM)
-			.map(element -> (TypeElement) element)
-			.filter(element -> element.getEnclosingElement().equals(packageElement))
-			.collect(Collectors.toList());
+		this.comments = comments;
+		this.symbols = symbols;
+		this.directory = ElementIndex.getPackageDirectory(packageElement);
+		this.classes = index.getTopLevelTypes(packageElement);
 	}
 
 	/**
@@ -69,40 +67,26 @@ public final class PackagePageBuilder extends MarkdownDocumentBuilder {
 	 * @throws IOException If any error occurs while writing header
 	 */
 	private void buildPackageHeader() throws IOException {
-		System.out.println("[PackagePageBuilder] Building package header");
+		JavadocMarkLogger.debug("PackagePageBuilder", "Building package header");
 		header(1, packageElement.getQualifiedName().toString());
-		String comment = elementUtils.getDocComment(packageElement);
-		if (comment != null) {
-			System.out.println("[PackagePageBuilder] Found package comment");
-			text(comment);
-			newLine();
+		DocComments.Comment comment = comments.get(packageElement);
+		if (!comment.getBody().isEmpty()) {
+			JavadocMarkLogger.debug("PackagePageBuilder", "Found package comment");
 		} else {
-			System.out.println("[PackagePageBuilder] No package comment found");
+			JavadocMarkLogger.debug("PackagePageBuilder", "No package comment found");
 		}
+		comment(comment);
 	}
 
 	/**
-	 * Extracts the first sentence from the given documentation comment.
+	 * Returns the given description as a single table cell, escaping
+	 * the cell separators it may contain.
 	 * 
-	 * @param comment Documentation comment to extract from.
-	 * @return First sentence of the comment, or empty string if none.
+	 * @param description Description to put in a table cell.
+	 * @return Table cell content.
 	 */
-	private String getFirstSentence(final String comment) {
-		if (comment == null || comment.isEmpty()) {
-			return "";
-		}
-		// 去掉所有回车和换行符
-		String text = comment.replaceAll("[\r\n]+", " ");
-		// 找到第一个句号、问号或感叹号
-		int endIndex = -1;
-		for (int i = 0; i < text.length(); i++) {
-			char c = text.charAt(i);
-			if (c == '.' || c == '?' || c == '!') {
-				endIndex = i + 1;
-				break;
-			}
-		}
-		return endIndex > 0 ? text.substring(0, endIndex).trim() : text.trim();
+	private static String toCell(final String description) {
+		return description.replace("|", "\\|");
 	}
 
 	/**
@@ -111,7 +95,9 @@ public final class PackagePageBuilder extends MarkdownDocumentBuilder {
 	 * @throws IOException If any error occurs while writing class table
 	 */
 	private void buildClassTable() throws IOException {
-		System.out.println("[PackagePageBuilder] Building class table with " + classes.size() + " types");
+		if (JavadocMarkLogger.isDebugEnabled()) {
+			JavadocMarkLogger.debug("PackagePageBuilder", "Building class table with " + classes.size() + " types");
+		}
 		if (!classes.isEmpty()) {
 			header(2, "Types");
 			text("| Name | Kind | Description |");
@@ -121,56 +107,79 @@ public final class PackagePageBuilder extends MarkdownDocumentBuilder {
 			for (TypeElement classElement : classes) {
 				String className = classElement.getSimpleName().toString();
 				String kind = classElement.getKind().toString().toLowerCase();
-				String description = getFirstSentence(elementUtils.getDocComment(classElement));
-				String fileName = getTypeFileName(classElement);
-				System.out.println("[PackagePageBuilder] Processing " + kind + ": " + className);
-				text(String.format("| [%s](%s.md) | %s | %s |", 
-					className, fileName, kind, description));
+				String description = toCell(comments.get(classElement).getFirstSentence());
+				String link = symbols.getLink(directory, classElement);
+				if (JavadocMarkLogger.isDebugEnabled()) {
+					JavadocMarkLogger.debug("PackagePageBuilder", "Processing " + kind + ": " + className);
+				}
+				text(String.format("| [%s](%s) | %s | %s |", 
+					className, link, kind, description));
 				newLine();
 			}
 		} else {
-			System.out.println("[PackagePageBuilder] No types found in package");
+			JavadocMarkLogger.debug("PackagePageBuilder", "No types found in package");
 		}
 	}
 
 	private String getTypeFileName(TypeElement element) {
-		String fileName = element.getSimpleName().toString();
-		if (element.getNestingKind().isNested()) {
-			// 获取外部类
-			TypeElement enclosingElement = (TypeElement) element.getEnclosingElement();
-			while (enclosingElement != null && enclosingElement.getNestingKind().isNested()) {
-				fileName = enclosingElement.getSimpleName() + "." + fileName;
-				enclosingElement = (TypeElement) enclosingElement.getEnclosingElement();
-			}
-			if (enclosingElement != null) {
-				fileName = enclosingElement.getSimpleName() + "." + fileName;
-			}
+		return index.getFileName(element);
+	}
+
+	/**
+	 * Computes a hash of every input this page is rendered from: the
+	 * package comment, and the name, kind and comment of each type.
+	 * Two runs producing the same hash render the same page.
+	 * 
+	 * @return Hash of the page inputs.
+	 */
+	public String getInputHash() {
+		final PageManifest.Hasher hasher = new PageManifest.Hasher()
+			.add(packageElement.getQualifiedName())
+			.add(symbols.getDigest())
+			.add(elementUtils.getDocComment(packageElement));
+		for (TypeElement classElement : classes) {
+			hasher.add(getTypeFileName(classElement))
+				.add(classElement.getKind())
+				.add(elementUtils.getDocComment(classElement));
 		}
-		return fileName;
+		return hasher.digest();
 	}
 
 	/** 
-	 * Builds the complete package documentation file.
+	 * Renders the complete package documentation.
 	 *
-	 * @param output Path where the documentation file should be written
 	 * @throws IOException If any error occurs while building the documentation
 	 */
 	@Override
-	public void build(final Path output) throws IOException {
-		System.out.println("[PackagePageBuilder] Building documentation for package: " + packageElement.getQualifiedName());
+	public void render() throws IOException {
+		if (JavadocMarkLogger.isDebugEnabled()) {
+			JavadocMarkLogger.debug("PackagePageBuilder", "Building documentation for package: " + packageElement.getQualifiedName());
+		}
 		try {
 			buildPackageHeader();
-			System.out.println("[PackagePageBuilder] Package header built successfully");
+			JavadocMarkLogger.debug("PackagePageBuilder", "Package header built successfully");
 			
 			buildClassTable();
-			System.out.println("[PackagePageBuilder] Class table built successfully");
-			
-			super.build(output);
-			System.out.println("[PackagePageBuilder] Documentation written to: " + output);
+			JavadocMarkLogger.debug("PackagePageBuilder", "Class table built successfully");
 		} catch (IOException e) {
-			System.err.println("[PackagePageBuilder] Error building documentation: " + e.getMessage());
+			JavadocMarkLogger.error("PackagePageBuilder", "Error building documentation: " + e.getMessage(), null);
 			throw e;
 		}
 	}
 
+	/** 
+	 * Writes the package documentation file.
+	 *
+	 * @param output Path where the documentation file should be written
+	 * @throws IOException If any error occurs while writing the documentation
+	 */
+	@Override
+	public void write(final Path output) throws IOException {
+		super.write(output);
+		if (JavadocMarkLogger.isDebugEnabled()) {
+			JavadocMarkLogger.debug("PackagePageBuilder", "Documentation written to: " + output);
+		}
+	}
+
+
 }
@@ -0,0 +1,267 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent manifest stored in the output directory which maps
+ * each generated page to a hash of the inputs it was rendered from.
+ * It allows incremental runs to skip pages whose inputs did not
+ * change and to prune pages of elements that no longer exist.
+ *
+ * @author wangzhi
+ */
+public final class PageManifest {
+
+	/** Name of the manifest file within the output directory. **/
+	public static final String MANIFEST_FILE = ".javadocmark-manifest";
+
+	/**
+	 * Version of the manifest format and of the rendering. Bumping it
+	 * invalidates every page generated by a previous version.
+	 **/
+	private static final String VERSION = "10";
+
+	/** Header line prefix. **/
+	private static final String HEADER = "# javadocmark-manifest ";
+
+	/** Separator between manifest entry fields. **/
+	private static final char SEPARATOR = '\t';
+
+	/** Path of the manifest file. **/
+	private final Path file;
+
+	/** Output directory pages are relative to. **/
+	private final Path outputDirectory;
+
+	/** Entries loaded from the previous run, by element key. **/
+	private final Map<String, Entry> previous;
+
+	/** Entries recorded during the current run, by element key. **/
+	private final Map<String, Entry> current;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param outputDirectory Output directory the manifest is stored in.
+	 */
+	private PageManifest(final Path outputDirectory) {
+		this.outputDirectory = outputDirectory;
+		this.file = outputDirectory.resolve(MANIFEST_FILE);
+		this.previous = new HashMap<>();
+		this.current = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Loads the manifest of the given output directory. A missing
+	 * manifest, or one written by another version, results in an
+	 * empty manifest so that every page is regenerated.
+	 *
+	 * @param outputDirectory Output directory the manifest is stored in.
+	 * @return Loaded manifest.
+	 * @throws IOException If any error occurs while reading the manifest.
+	 */
+	public static PageManifest load(final Path outputDirectory) throws IOException {
+		final PageManifest manifest = new PageManifest(outputDirectory);
+		if (!Files.exists(manifest.file)) {
+			return manifest;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(manifest.file, StandardCharsets.UTF_8)) {
+			final String header = reader.readLine();
+			if (header == null || !header.equals(HEADER + VERSION)) {
+				return manifest;
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final int first = line.indexOf(SEPARATOR);
+				final int second = line.indexOf(SEPARATOR, first + 1);
+				if (first > 0 && second > first) {
+					final String key = line.substring(0, first);
+					final String hash = line.substring(first + 1, second);
+					final String page = line.substring(second + 1);
+					manifest.previous.put(key, new Entry(hash, page));
+				}
+			}
+		}
+		return manifest;
+	}
+
+	/**
+	 * Indicates if the page of the given element is up to date, that is
+	 * the previous run rendered it from the same inputs to the same file
+	 * and this file still exists.
+	 *
+	 * @param key Key of the documented element.
+	 * @param hash Hash of the page inputs.
+	 * @param page Path of the page file.
+	 * @return true if the page can be skipped, false otherwise.
+	 */
+	public boolean isUpToDate(final String key, final String hash, final Path page) {
+		final Entry entry = previous.get(key);
+		return entry != null
+			&& entry.hash.equals(hash)
+			&& entry.page.equals(relativize(page))
+			&& Files.exists(page);
+	}
+
+	/**
+	 * Records the page generated, or skipped, for the given element
+	 * during the current run.
+	 *
+	 * @param key Key of the documented element.
+	 * @param hash Hash of the page inputs.
+	 * @param page Path of the page file.
+	 */
+	public void record(final String key, final String hash, final Path page) {
+		current.put(key, new Entry(hash, relativize(page)));
+	}
+
+	/**
+	 * Deletes pages of the previous run which have not been
+	 * recorded during the current run.
+	 *
+	 * @return Paths of the deleted pages.
+	 * @throws IOException If any error occurs while deleting a page.
+	 */
+	public List<Path> prune() throws IOException {
+		final Set<String> recordedPages = new HashSet<>();
+		for (final Entry entry : current.values()) {
+			recordedPages.add(entry.page);
+		}
+		final List<Path> deleted = new ArrayList<>();
+		for (final Entry entry : previous.values()) {
+			if (!recordedPages.contains(entry.page)) {
+				final Path path = outputDirectory.resolve(entry.page);
+				if (Files.deleteIfExists(path)) {
+					deleted.add(path);
+				}
+			}
+		}
+		return deleted;
+	}
+
+	/**
+	 * Writes the entries recorded during the current run to the manifest file.
+	 *
+	 * @throws IOException If any error occurs while writing the manifest.
+	 */
+	public void save() throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write(HEADER + VERSION);
+			writer.write('\n');
+			for (final Map.Entry<String, Entry> entry : current.entrySet()) {
+				writer.write(entry.getKey());
+				writer.write(SEPARATOR);
+				writer.write(entry.getValue().hash);
+				writer.write(SEPARATOR);
+				writer.write(entry.getValue().page);
+				writer.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * Returns the given page path relative to the output directory,
+	 * using '/' as separator so the manifest is portable.
+	 *
+	 * @param page Page path to relativize.
+	 * @return Relative page path.
+	 */
+	private String relativize(final Path page) {
+		return outputDirectory.relativize(page).toString().replace('\\', '/');
+	}
+
+	/**
+	 * Manifest entry of a single page.
+	 */
+	private static final class Entry {
+
+		/** Hash of the page inputs. **/
+		private final String hash;
+
+		/** Page path relative to the output directory. **/
+		private final String page;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param hash Hash of the page inputs.
+		 * @param page Page path relative to the output directory.
+		 */
+		Entry(final String hash, final String page) {
+			this.hash = hash;
+			this.page = page;
+		}
+
+	}
+
+	/**
+	 * Incremental SHA-256 hasher of page inputs. Each added value
+	 * is terminated by a separator so that consecutive values
+	 * cannot collide by concatenation.
+	 */
+	public static final class Hasher {
+
+		/** Underlying message digest. **/
+		private final MessageDigest digest;
+
+		/**
+		 * Default constructor.
+		 */
+		public Hasher() {
+			try {
+				this.digest = MessageDigest.getInstance("SHA-256");
+			} catch (final NoSuchAlgorithmException e) {
+				throw new IllegalStateException("SHA-256 is not available", e);
+			}
+			add(VERSION);
+		}
+
+		/**
+		 * Adds the given value to the hash, null values being
+		 * distinguished from empty ones.
+		 *
+		 * @param value Value to add.
+		 * @return This hasher.
+		 */
+		public Hasher add(final Object value) {
+			if (value == null) {
+				digest.update((byte) 0);
+			} else {
+				digest.update(value.toString().getBytes(StandardCharsets.UTF_8));
+			}
+			digest.update((byte) 0x1f);
+			return this;
+		}
+
+		/**
+		 * Completes the hash and returns it as an hexadecimal string.
+		 *
+		 * @return Hexadecimal hash.
+		 */
+		public String digest() {
+			final byte[] bytes = digest.digest();
+			final StringBuilder builder = new StringBuilder(bytes.length * 2);
+			for (final byte b : bytes) {
+				builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+				builder.append(Character.forDigit(b & 0xf, 16));
+			}
+			return builder.toString();
+		}
+
+	}
+
+}
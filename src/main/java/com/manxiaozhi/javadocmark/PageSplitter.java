@@ -0,0 +1,325 @@
+package com.manxiaozhi.javadocmark;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Layout of the type pages split into an overview and member pages.
+ * A type with more documented fields and methods than the threshold
+ * is split: its page keeps the header and a table of the member pages,
+ * and its fields then its methods, sorted by name, are documented in
+ * pages of about threshold members at most, balanced by kind, named
+ * after the type page with a {@code .fields-N} or {@code .methods-N}
+ * suffix. Overloads are never split across pages, so that a member
+ * name is found in a single page. Layouts are computed on first access
+ * and kept for the run.
+ * Instances are used from the doclet thread only.
+ *
+ * @author wangzhi
+ */
+public final class PageSplitter {
+
+	/** Splitter which never splits a page. **/
+	public static final PageSplitter NONE = new PageSplitter(null, 0);
+
+	/** Index of the documented elements. **/
+	private final ElementIndex index;
+
+	/** Maximum number of members of an unsplit page, 0 to never split. **/
+	private final int threshold;
+
+	/** Member pages of each type, empty for types which are not split. **/
+	private final Map<TypeElement, List<Shard>> layouts;
+
+	/** Member page of each member of a split type. **/
+	private final Map<Element, Shard> shards;
+
+	/** Digest of the layouts, computed on first access. **/
+	private String digest;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param index Index of the documented elements.
+	 * @param threshold Maximum number of members of an unsplit page, 0 to never split.
+	 */
+	public PageSplitter(final ElementIndex index, final int threshold) {
+		this.index = index;
+		this.threshold = threshold;
+		this.layouts = new HashMap<>();
+		this.shards = new HashMap<>();
+	}
+
+	/**
+	 * Indicates if the page of the given type is split.
+	 *
+	 * @param typeElement Documented type.
+	 * @return true if the type page is an overview of member pages, false otherwise.
+	 */
+	public boolean isSplit(final TypeElement typeElement) {
+		return !getShards(typeElement).isEmpty();
+	}
+
+	/**
+	 * Returns the member pages of the given type: its field pages then
+	 * its method pages.
+	 *
+	 * @param typeElement Documented type.
+	 * @return Member pages, empty if the type page is not split.
+	 */
+	public List<Shard> getShards(final TypeElement typeElement) {
+		if (threshold <= 0) {
+			return Collections.emptyList();
+		}
+		List<Shard> layout = layouts.get(typeElement);
+		if (layout == null) {
+			layout = split(typeElement);
+			layouts.put(typeElement, layout);
+			for (final Shard shard : layout) {
+				for (final Element member : shard.members) {
+					shards.put(member, shard);
+				}
+			}
+		}
+		return layout;
+	}
+
+	/**
+	 * Computes the member pages of the given type.
+	 *
+	 * @param typeElement Documented type.
+	 * @return Member pages, empty if the type has no more members than the threshold.
+	 */
+	private List<Shard> split(final TypeElement typeElement) {
+		final List<Element> fields = new ArrayList<>();
+		final List<Element> methods = new ArrayList<>();
+		for (final Element member : index.getMembers(typeElement)) {
+			if (member.getKind() == ElementKind.FIELD) {
+				fields.add(member);
+			} else if (member.getKind() == ElementKind.METHOD) {
+				methods.add(member);
+			}
+		}
+		if (fields.size() + methods.size() <= threshold) {
+			return Collections.emptyList();
+		}
+		final List<Shard> layout = new ArrayList<>();
+		split(fields, Shard.FIELDS, layout);
+		split(methods, Shard.METHODS, layout);
+		return Collections.unmodifiableList(layout);
+	}
+
+	/**
+	 * Sorts the given members by name and appends their pages to the
+	 * given layout.
+	 *
+	 * @param members Members of a single kind.
+	 * @param kind Kind of the pages, {@link Shard#FIELDS} or {@link Shard#METHODS}.
+	 * @param layout Layout to append pages to.
+	 */
+	private void split(final List<Element> members, final String kind, final List<Shard> layout) {
+		members.sort(Comparator.comparing(member -> member.getSimpleName().toString()));
+		// Pages of a kind hold about as many members each, rather than a last page of a few members.
+		final int count = (members.size() + threshold - 1) / threshold;
+		final int size = count == 0 ? threshold : (members.size() + count - 1) / count;
+		final List<Shard> pages = new ArrayList<>();
+		int start = 0;
+		while (start < members.size()) {
+			int end = Math.min(start + size, members.size());
+			while (end < members.size() && members.get(end).getSimpleName().contentEquals(members.get(end - 1).getSimpleName())) {
+				end++;
+			}
+			pages.add(new Shard(kind, pages.size() + 1, members.subList(start, end)));
+			start = end;
+		}
+		for (final Shard page : pages) {
+			page.total = pages.size();
+		}
+		layout.addAll(pages);
+	}
+
+	/**
+	 * Returns the member page documenting the given member.
+	 *
+	 * @param member Documented member.
+	 * @return Member page, or null if the member is documented in the page of its type.
+	 */
+	public Shard getShard(final Element member) {
+		if (threshold <= 0 || !(member.getEnclosingElement() instanceof TypeElement)) {
+			return null;
+		}
+		getShards((TypeElement) member.getEnclosingElement());
+		return shards.get(member);
+	}
+
+	/**
+	 * Returns the name of the page documenting the given member.
+	 *
+	 * @param typePage Name or path of the page of its type, ending with the page extension.
+	 * @param member Documented member.
+	 * @return Name or path of the member page, the type page if it is not split.
+	 */
+	public String getPage(final String typePage, final Element member) {
+		final Shard shard = getShard(member);
+		return shard == null ? typePage : shard.getPage(typePage);
+	}
+
+	/**
+	 * Returns the path of the page documenting the given member.
+	 *
+	 * @param typePage Path of the page of its type.
+	 * @param member Documented member.
+	 * @return Path of the member page, the type page if it is not split.
+	 */
+	public Path getPage(final Path typePage, final Element member) {
+		final Shard shard = getShard(member);
+		return shard == null ? typePage : typePage.resolveSibling(shard.getPage(typePage.getFileName().toString()));
+	}
+
+	/**
+	 * Returns a digest of the threshold and of the member pages of
+	 * every split type. Links to members depend on the layouts, so
+	 * the digest is part of the symbols of incremental generation.
+	 *
+	 * @return Digest of the layouts.
+	 */
+	public String getDigest() {
+		if (digest == null) {
+			final PageManifest.Hasher hasher = new PageManifest.Hasher().add(threshold);
+			if (threshold > 0) {
+				for (final PackageElement packageElement : index.getPackages()) {
+					for (final TypeElement typeElement : index.getTypes(packageElement)) {
+						for (final Shard shard : getShards(typeElement)) {
+							hasher.add(typeElement.getQualifiedName()).add(shard.getSuffix()).add(shard.getFirst()).add(shard.getLast());
+						}
+					}
+				}
+			}
+			digest = hasher.digest();
+		}
+		return digest;
+	}
+
+	/**
+	 * Page documenting a range of the fields or methods of a split type.
+	 */
+	public static final class Shard {
+
+		/** Kind of the pages documenting fields. **/
+		public static final String FIELDS = "fields";
+
+		/** Kind of the pages documenting methods. **/
+		public static final String METHODS = "methods";
+
+		/** Kind of the page, {@link #FIELDS} or {@link #METHODS}. **/
+		private final String kind;
+
+		/** Number of the page among the pages of its kind, from 1. **/
+		private final int number;
+
+		/** Documented members, sorted by name. **/
+		private final List<Element> members;
+
+		/** Number of pages of its kind. **/
+		private int total;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param kind Kind of the page, {@link #FIELDS} or {@link #METHODS}.
+		 * @param number Number of the page among the pages of its kind, from 1.
+		 * @param members Documented members, sorted by name.
+		 */
+		private Shard(final String kind, final int number, final List<Element> members) {
+			this.kind = kind;
+			this.number = number;
+			this.members = Collections.unmodifiableList(members);
+		}
+
+		/**
+		 * Returns the kind of the page.
+		 *
+		 * @return {@link #FIELDS} or {@link #METHODS}.
+		 */
+		public String getKind() {
+			return kind;
+		}
+
+		/**
+		 * Returns the number of the page among the pages of its kind.
+		 *
+		 * @return Page number, from 1.
+		 */
+		public int getNumber() {
+			return number;
+		}
+
+		/**
+		 * Returns the number of pages of its kind.
+		 *
+		 * @return Number of pages.
+		 */
+		public int getTotal() {
+			return total;
+		}
+
+		/**
+		 * Returns the documented members.
+		 *
+		 * @return Members, sorted by name.
+		 */
+		public List<Element> getMembers() {
+			return members;
+		}
+
+		/**
+		 * Returns the name of the first documented member.
+		 *
+		 * @return First member name.
+		 */
+		public String getFirst() {
+			return members.get(0).getSimpleName().toString();
+		}
+
+		/**
+		 * Returns the name of the last documented member.
+		 *
+		 * @return Last member name.
+		 */
+		public String getLast() {
+			return members.get(members.size() - 1).getSimpleName().toString();
+		}
+
+		/**
+		 * Returns the suffix of the page name, also used as a suffix of
+		 * the manifest key of the type page.
+		 *
+		 * @return Suffix such as {@code .methods-2}.
+		 */
+		public String getSuffix() {
+			return "." + kind + "-" + number;
+		}
+
+		/**
+		 * Returns the name of this page from the name of the type page.
+		 *
+		 * @param typePage Name or path of the type page, ending with the page extension.
+		 * @return Name or path of this page.
+		 */
+		public String getPage(final String typePage) {
+			return typePage.substring(0, typePage.length() - SymbolTable.PAGE_EXTENSION.length()) + getSuffix() + SymbolTable.PAGE_EXTENSION;
+		}
+
+	}
+
+}
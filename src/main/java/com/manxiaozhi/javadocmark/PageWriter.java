@@ -0,0 +1,450 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Output stage of the doclet. Pages are written to a temporary file
+ * next to their target and renamed over it once complete, so that a
+ * failed or interrupted run never leaves truncated pages behind.
+ * Directories known to exist are cached, so that each one is checked
+ * or created only once per run. Optionally, pages identical to their
+ * existing file are not written at all, so that the file is left
+ * untouched for file watchers and indexers. In reproducible runs,
+ * every file is given the same modification time, so that archives
+ * and caches of the output only depend on its content.
+ * <p>
+ * With more than one thread, rendered pages are handed to a bounded
+ * queue drained in batches by background writer threads. Submission
+ * blocks when the queue is full or when too many rendered characters
+ * wait to be written. {@link #await()} is the barrier after which
+ * every page is either on disk or reported as failed.
+ *
+ * @author wangzhi
+ */
+public final class PageWriter {
+
+	/** Suffix of temporary files pages are written to. **/
+	public static final String TEMPORARY_SUFFIX = ".tmp";
+
+	/** Maximum number of pages waiting in the queue. **/
+	private static final int QUEUE_CAPACITY = 256;
+
+	/** Maximum number of pages a writer thread takes from the queue at once. **/
+	private static final int BATCH_SIZE = 16;
+
+	/** Marker ending the queue, put back by each writer thread taking it. **/
+	private static final PendingPage END = new PendingPage(null, null, null, 0, 0);
+
+	/** Directories known to exist. **/
+	private final Set<Path> directories;
+
+	/** Metrics of the current run. **/
+	private final GenerationStats stats;
+
+	/** Indicates if files whose content did not change are left untouched. **/
+	private final boolean keepUnchanged;
+
+	/** Modification time of every output file, null to keep the time of writing. **/
+	private final FileTime timestamp;
+
+	/** Pages waiting to be written, null in serial mode. **/
+	private final BlockingQueue<PendingPage> queue;
+
+	/** Background writer threads, empty in serial mode. **/
+	private final List<Thread> threads;
+
+	/** Permits for rendered characters waiting to be written, null in serial mode. **/
+	private final Semaphore inFlight;
+
+	/** Maximum number of rendered characters waiting to be written. **/
+	private final int inFlightLimit;
+
+	/** Indicates if a page failed to be written. **/
+	private volatile boolean failed;
+
+	/** Indicates if atomic moves are supported by the output file system. **/
+	private volatile boolean atomicMoves;
+
+	/**
+	 * Default constructor. Background threads are started right away
+	 * when more than one thread is requested.
+	 *
+	 * @param threads Number of writer threads, 1 meaning pages are written by the caller.
+	 * @param inFlightLimit Maximum number of rendered characters waiting to be written.
+	 * @param stats Metrics of the current run.
+	 * @param keepUnchanged Indicates if files whose content did not change are left untouched.
+	 * @param timestamp Modification time of every output file, null to keep the time of writing.
+	 */
+	public PageWriter(final int threads, final int inFlightLimit, final GenerationStats stats, final boolean keepUnchanged,
+			final FileTime timestamp) {
+		this.directories = ConcurrentHashMap.newKeySet();
+		this.stats = stats;
+		this.keepUnchanged = keepUnchanged;
+		this.timestamp = timestamp;
+		this.inFlightLimit = inFlightLimit;
+		this.atomicMoves = true;
+		this.threads = new ArrayList<>();
+		if (threads > 1) {
+			this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+			this.inFlight = new Semaphore(inFlightLimit);
+			for (int i = 1; i <= threads; i++) {
+				final Thread thread = new Thread(this::drain, "javadocmark-writer-" + i);
+				thread.setDaemon(true);
+				thread.start();
+				this.threads.add(thread);
+			}
+		} else {
+			this.queue = null;
+			this.inFlight = null;
+		}
+	}
+
+	/**
+	 * Creates the given directory and its parents unless it is
+	 * already known to exist.
+	 *
+	 * @param directory Directory to create.
+	 * @throws IOException If any error occurs while creating the directory.
+	 */
+	public void createDirectories(final Path directory) throws IOException {
+		if (!directories.contains(directory)) {
+			Files.createDirectories(directory);
+			directories.add(directory);
+		}
+	}
+
+	/**
+	 * Writes the rendered content of the given builder to the given
+	 * output, either directly or through the writer threads. The
+	 * builder must not be used by the caller afterwards.
+	 *
+	 * @param builder Builder holding the rendered page.
+	 * @param output Path of the page file.
+	 * @param typeName Qualified name of the documented type, null for package pages.
+	 * @param renderNanos Time spent rendering the page, in nanoseconds.
+	 * @throws IOException If any error occurs while writing the page in serial mode,
+	 *         or if interrupted while waiting for the queue.
+	 */
+	public void write(final MarkdownDocumentBuilder builder, final Path output, final String typeName, final long renderNanos)
+			throws IOException {
+		createDirectories(output.getParent());
+		if (queue == null) {
+			writeRendered(builder, output, typeName, renderNanos);
+			return;
+		}
+		final int permits = Math.min(builder.getBufferedLength(), inFlightLimit);
+		try {
+			inFlight.acquire(permits);
+			queue.put(new PendingPage(builder, output, typeName, renderNanos, permits));
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for pending writes");
+		}
+	}
+
+	/**
+	 * Renders the given builder while streaming it to the given output
+	 * through the given writer. Streaming always happens on the caller
+	 * thread.
+	 *
+	 * @param builder Builder of the page to stream.
+	 * @param output Path of the page file.
+	 * @param typeName Qualified name of the documented type, null for package pages.
+	 * @param writer Writer to stream the page with.
+	 * @throws IOException If any error occurs while rendering or writing the page.
+	 */
+	public void stream(final MarkdownDocumentBuilder builder, final Path output, final String typeName,
+			final Utf8ChannelWriter writer) throws IOException {
+		createDirectories(output.getParent());
+		final long start = System.nanoTime();
+		final Path temporary = getTemporaryFile(output);
+		builder.stream(temporary, writer);
+		if (keepUnchanged) {
+			final long streamNanos = System.nanoTime() - start;
+			if (contentEquals(temporary, output)) {
+				Files.delete(temporary);
+				stamp(output);
+				stats.recordUnchanged(streamNanos, System.nanoTime() - start - streamNanos);
+				return;
+			}
+		}
+		commit(temporary, output);
+		stats.recordPage(typeName, System.nanoTime() - start, 0, builder.getWrittenBytes());
+	}
+
+	/**
+	 * Writes the rendered content of the given builder to the given
+	 * output, unless the output already holds it and unchanged files
+	 * are kept.
+	 *
+	 * @param builder Builder holding the rendered page.
+	 * @param output Path of the page file.
+	 * @param typeName Qualified name of the documented type, null for package pages.
+	 * @param renderNanos Time spent rendering the page, in nanoseconds.
+	 * @throws IOException If any error occurs while comparing or writing the page.
+	 */
+	private void writeRendered(final MarkdownDocumentBuilder builder, final Path output, final String typeName,
+			final long renderNanos) throws IOException {
+		final FlightEvents.WriteEvent event = new FlightEvents.WriteEvent();
+		event.begin();
+		final long start = System.nanoTime();
+		if (keepUnchanged && builder.isWrittenTo(output)) {
+			if (JavadocMarkLogger.isDebugEnabled()) {
+				JavadocMarkLogger.debug("JavadocMark", "Keeping unchanged file: " + output);
+			}
+			stamp(output);
+			stats.recordUnchanged(renderNanos, System.nanoTime() - start);
+			event.end();
+			if (event.shouldCommit()) {
+				event.path = output.toString();
+				event.unchanged = true;
+				event.commit();
+			}
+			return;
+		}
+		final Path temporary = getTemporaryFile(output);
+		builder.write(temporary);
+		commit(temporary, output);
+		stats.recordPage(typeName, renderNanos, System.nanoTime() - start, builder.getWrittenBytes());
+		event.end();
+		if (event.shouldCommit()) {
+			event.path = output.toString();
+			event.bytes = builder.getWrittenBytes();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Waits until every submitted page is written and stops the writer
+	 * threads. Failures are logged as they occur.
+	 *
+	 * @return true if every page was written, false otherwise.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	public boolean await() throws InterruptedException {
+		if (queue != null && !threads.isEmpty()) {
+			queue.put(END);
+			for (final Thread thread : threads) {
+				thread.join();
+			}
+			threads.clear();
+		}
+		return !failed;
+	}
+
+	/**
+	 * Stops the writer threads without waiting for pending pages.
+	 * Does nothing once {@link #await()} returned.
+	 */
+	public void close() {
+		for (final Thread thread : threads) {
+			thread.interrupt();
+		}
+		threads.clear();
+	}
+
+	/**
+	 * Loop of the writer threads, taking pages from the queue in
+	 * batches until the end marker is reached.
+	 */
+	private void drain() {
+		final List<PendingPage> batch = new ArrayList<>(BATCH_SIZE);
+		try {
+			while (true) {
+				batch.add(queue.take());
+				queue.drainTo(batch, BATCH_SIZE - 1);
+				for (final PendingPage page : batch) {
+					if (page == END) {
+						// Nothing is queued after the marker, hand it to the next thread.
+						queue.put(END);
+						return;
+					}
+					writePending(page);
+				}
+				batch.clear();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes a page taken from the queue, recording any failure.
+	 *
+	 * @param page Page to write.
+	 */
+	private void writePending(final PendingPage page) {
+		try {
+			writeRendered(page.builder, page.output, page.typeName, page.renderNanos);
+		} catch (final IOException | RuntimeException e) {
+			failed = true;
+			JavadocMarkLogger.error("JavadocMark", "Error writing page " + page.output + ": " + e.getMessage(), e);
+		} finally {
+			inFlight.release(page.permits);
+		}
+	}
+
+	/**
+	 * Replaces the given target with the given temporary file, with an
+	 * atomic rename whenever the file system supports it.
+	 *
+	 * @param temporary Completely written temporary file.
+	 * @param target File to replace.
+	 * @throws IOException If any error occurs while renaming the file.
+	 */
+	void commit(final Path temporary, final Path target) throws IOException {
+		try {
+			move(temporary, target);
+		} catch (final IOException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+		stamp(target);
+	}
+
+	/**
+	 * Moves the given temporary file over the given target.
+	 *
+	 * @param temporary Completely written temporary file.
+	 * @param target File to replace.
+	 * @throws IOException If any error occurs while renaming the file.
+	 */
+	private void move(final Path temporary, final Path target) throws IOException {
+		if (atomicMoves) {
+			try {
+				Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+				return;
+			} catch (final AtomicMoveNotSupportedException e) {
+				JavadocMarkLogger.debug("JavadocMark", "Atomic moves not supported, falling back to plain moves");
+				atomicMoves = false;
+			}
+		}
+		Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Sets the modification time of the given output file to the
+	 * reproducible timestamp, if any.
+	 *
+	 * @param file Output file, written or left untouched by the run.
+	 * @throws IOException If any error occurs while setting the time.
+	 */
+	void stamp(final Path file) throws IOException {
+		if (timestamp != null) {
+			Files.setLastModifiedTime(file, timestamp);
+		}
+	}
+
+	/**
+	 * Sets the modification time of every output directory, and of its
+	 * parents up to the given root, to the reproducible timestamp, if
+	 * any. It is called once every file is written, as writing a file
+	 * changes the time of its directory.
+	 *
+	 * @param root Output directory.
+	 * @throws IOException If any error occurs while setting the times.
+	 */
+	public void stampDirectories(final Path root) throws IOException {
+		if (timestamp == null) {
+			return;
+		}
+		final Set<Path> stamped = new HashSet<>();
+		for (final Path directory : directories) {
+			for (Path current = directory; current != null && current.startsWith(root) && stamped.add(current);
+					current = current.getParent()) {
+				Files.setLastModifiedTime(current, timestamp);
+			}
+		}
+	}
+
+	/**
+	 * Indicates if the two given files have the same content, sizes
+	 * being compared first, then memory mapped contents.
+	 *
+	 * @param file File to compare.
+	 * @param other File to compare with, which may not exist.
+	 * @return true if both files exist and have the same content, false otherwise.
+	 * @throws IOException If any error occurs while reading the files.
+	 */
+	static boolean contentEquals(final Path file, final Path other) throws IOException {
+		if (!Files.isRegularFile(other) || Files.size(file) != Files.size(other)) {
+			return false;
+		}
+		try (FileChannel first = FileChannel.open(file, StandardOpenOption.READ);
+				FileChannel second = FileChannel.open(other, StandardOpenOption.READ)) {
+			final MappedByteBuffer firstContent = first.map(FileChannel.MapMode.READ_ONLY, 0, first.size());
+			final MappedByteBuffer secondContent = second.map(FileChannel.MapMode.READ_ONLY, 0, second.size());
+			return firstContent.mismatch(secondContent) < 0;
+		}
+	}
+
+	/**
+	 * Returns the temporary file the given target is written to before
+	 * being renamed. It is hidden and lies in the same directory, hence
+	 * on the same file system, as the target.
+	 *
+	 * @param target File to write.
+	 * @return Temporary file path.
+	 */
+	static Path getTemporaryFile(final Path target) {
+		return target.resolveSibling("." + target.getFileName() + TEMPORARY_SUFFIX);
+	}
+
+	/**
+	 * Page waiting in the queue to be written.
+	 */
+	private static final class PendingPage {
+
+		/** Builder holding the rendered page. **/
+		private final MarkdownDocumentBuilder builder;
+
+		/** Path of the page file. **/
+		private final Path output;
+
+		/** Qualified name of the documented type, null for package pages. **/
+		private final String typeName;
+
+		/** Time spent rendering the page, in nanoseconds. **/
+		private final long renderNanos;
+
+		/** In flight permits held by the page. **/
+		private final int permits;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param builder Builder holding the rendered page.
+		 * @param output Path of the page file.
+		 * @param typeName Qualified name of the documented type, null for package pages.
+		 * @param renderNanos Time spent rendering the page, in nanoseconds.
+		 * @param permits In flight permits held by the page.
+		 */
+		PendingPage(final MarkdownDocumentBuilder builder, final Path output, final String typeName, final long renderNanos,
+				final int permits) {
+			this.builder = builder;
+			this.output = output;
+			this.typeName = typeName;
+			this.renderNanos = renderNanos;
+			this.permits = permits;
+		}
+
+	}
+
+}
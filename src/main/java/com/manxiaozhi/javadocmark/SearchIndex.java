@@ -0,0 +1,396 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Read only view of the search index written by {@link SearchIndexBuilder},
+ * answering which pages document or mention a term. The index file is
+ * memory mapped and terms are found by binary search in the sorted
+ * term table, so a lookup reads a handful of entries without loading
+ * the index into the heap.
+ * <p>
+ * Layout, big endian: a header of {@link #HEADER_SIZE} bytes made of
+ * the magic number, the format version, the number of terms, postings
+ * and pages, then the term table, one {@link #TERM_ENTRY_SIZE} bytes
+ * entry per term sorted by UTF-8 bytes, the postings, one
+ * {@link #POSTING_SIZE} bytes entry per page and anchor, the page table,
+ * one string offset per page, and finally the string pool, each string
+ * being stored as an unsigned short length followed by its UTF-8 bytes.
+ * Instances are thread safe.
+ *
+ * @author wangzhi
+ */
+public final class SearchIndex {
+
+	/** Name of the index file within the output directory. **/
+	public static final String INDEX_FILE = "search-index.bin";
+
+	/** Magic number starting the index file. **/
+	static final int MAGIC = 0x4A444D53;
+
+	/** Version of the index format. **/
+	static final int VERSION = 1;
+
+	/** Size of the header in bytes. **/
+	static final int HEADER_SIZE = 20;
+
+	/** Size of a term table entry: term string offset, first posting, posting count. **/
+	static final int TERM_ENTRY_SIZE = 12;
+
+	/** Size of a posting: page number, anchor string offset, kind. **/
+	static final int POSTING_SIZE = 12;
+
+	/** Anchor string offset of postings without anchor. **/
+	static final int NO_ANCHOR = -1;
+
+	/** Kind of postings of a page documenting a package or type of the term name. **/
+	static final int DEFINITION = 0;
+
+	/** Kind of postings of a page documenting a member of the term name. **/
+	static final int MEMBER_DEFINITION = 1;
+
+	/** Kind of postings of a page mentioning the term. **/
+	static final int MENTION = 2;
+
+	/** Index content. **/
+	private final ByteBuffer buffer;
+
+	/** Number of terms. **/
+	private final int termCount;
+
+	/** Number of pages. **/
+	private final int pageCount;
+
+	/** Offset of the postings. **/
+	private final int postingsStart;
+
+	/** Offset of the page table. **/
+	private final int pagesStart;
+
+	/** Offset of the string pool. **/
+	private final int stringsStart;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param buffer Index content.
+	 * @throws IOException If the content is not a search index of the supported version.
+	 */
+	private SearchIndex(final ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Not a JavadocMark search index of version " + VERSION);
+		}
+		this.termCount = buffer.getInt(8);
+		final int postingCount = buffer.getInt(12);
+		this.pageCount = buffer.getInt(16);
+		this.postingsStart = HEADER_SIZE + termCount * TERM_ENTRY_SIZE;
+		this.pagesStart = postingsStart + postingCount * POSTING_SIZE;
+		this.stringsStart = pagesStart + pageCount * 4;
+	}
+
+	/**
+	 * Opens the given index file by memory mapping it.
+	 *
+	 * @param file Index file to open.
+	 * @return Opened index.
+	 * @throws IOException If any error occurs while mapping the file, or if it is not a search index.
+	 */
+	public static SearchIndex open(final Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new SearchIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Reads the given index file into the heap, so that the file can
+	 * be replaced while the index is in use.
+	 *
+	 * @param file Index file to read.
+	 * @return Read index.
+	 * @throws IOException If any error occurs while reading the file, or if it is not a search index.
+	 */
+	static SearchIndex read(final Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				// Read until full.
+			}
+			buffer.flip();
+			return new SearchIndex(buffer);
+		}
+	}
+
+	/**
+	 * Returns the pages documenting or mentioning the given term, which
+	 * is matched case insensitively. Terms are words of the pages and
+	 * names of the documented elements, qualified or not. Pages defining
+	 * the term come first, packages and types before members.
+	 *
+	 * @param term Term to find.
+	 * @return Matching pages, empty if the term is unknown.
+	 */
+	public List<Hit> find(final String term) {
+		final int entry = findTerm(normalize(term).getBytes(StandardCharsets.UTF_8));
+		if (entry < 0) {
+			return Collections.emptyList();
+		}
+		final int first = buffer.getInt(entry + 4);
+		final int count = buffer.getInt(entry + 8);
+		final List<Hit> hits = new ArrayList<>(count);
+		for (int i = first; i < first + count; i++) {
+			hits.add(getHit(postingsStart + i * POSTING_SIZE));
+		}
+		return hits;
+	}
+
+	/**
+	 * Returns the page documenting the given symbol, that is the first
+	 * page defining it, a package or type being preferred to a member.
+	 *
+	 * @param symbol Name of the symbol, simple or qualified.
+	 * @return Defining page with its anchor, or null if no page defines the symbol.
+	 */
+	public Hit findDefinition(final String symbol) {
+		final int entry = findTerm(normalize(symbol).getBytes(StandardCharsets.UTF_8));
+		if (entry < 0) {
+			return null;
+		}
+		final int posting = postingsStart + buffer.getInt(entry + 4) * POSTING_SIZE;
+		return buffer.getInt(posting + 8) == MENTION ? null : getHit(posting);
+	}
+
+	/**
+	 * Getter for the number of terms.
+	 *
+	 * @return Number of terms.
+	 */
+	public int getTermCount() {
+		return termCount;
+	}
+
+	/**
+	 * Getter for the number of pages.
+	 *
+	 * @return Number of pages.
+	 */
+	public int getPageCount() {
+		return pageCount;
+	}
+
+	/**
+	 * Passes every posting of the index to the given consumer, in term
+	 * order.
+	 *
+	 * @param consumer Consumer of the postings.
+	 */
+	void forEach(final PostingConsumer consumer) {
+		for (int i = 0; i < termCount; i++) {
+			final int entry = HEADER_SIZE + i * TERM_ENTRY_SIZE;
+			final String term = getString(buffer.getInt(entry));
+			final int first = buffer.getInt(entry + 4);
+			final int count = buffer.getInt(entry + 8);
+			for (int j = first; j < first + count; j++) {
+				final int posting = postingsStart + j * POSTING_SIZE;
+				final int anchor = buffer.getInt(posting + 4);
+				consumer.accept(term, getPage(buffer.getInt(posting)), anchor == NO_ANCHOR ? null : getString(anchor),
+					buffer.getInt(posting + 8));
+			}
+		}
+	}
+
+	/**
+	 * Normalizes the given term as stored in the index.
+	 *
+	 * @param term Term to normalize.
+	 * @return Normalized term.
+	 */
+	static String normalize(final String term) {
+		return term.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Finds the term table entry of the given term.
+	 *
+	 * @param term UTF-8 bytes of the normalized term.
+	 * @return Offset of the entry, or -1 if the term is unknown.
+	 */
+	private int findTerm(final byte [] term) {
+		int low = 0;
+		int high = termCount - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int entry = HEADER_SIZE + middle * TERM_ENTRY_SIZE;
+			final int comparison = compare(buffer, stringsStart + buffer.getInt(entry), term);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return entry;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares the string stored at the given position with the given
+	 * bytes, as unsigned bytes. Strings are stored as an unsigned short
+	 * length followed by their UTF-8 bytes.
+	 *
+	 * @param buffer Buffer holding the string.
+	 * @param start Position of the string in the buffer.
+	 * @param bytes Bytes to compare with.
+	 * @return Negative, zero or positive as the stored string is lower than, equal to or greater than the bytes.
+	 */
+	static int compare(final ByteBuffer buffer, final int start, final byte [] bytes) {
+		final int length = Short.toUnsignedInt(buffer.getShort(start));
+		final int common = Math.min(length, bytes.length);
+		for (int i = 0; i < common; i++) {
+			final int comparison = Byte.compareUnsigned(buffer.get(start + 2 + i), bytes[i]);
+			if (comparison != 0) {
+				return comparison;
+			}
+		}
+		return length - bytes.length;
+	}
+
+	/**
+	 * Returns the hit of the posting at the given offset.
+	 *
+	 * @param posting Offset of the posting.
+	 * @return Hit of the posting.
+	 */
+	private Hit getHit(final int posting) {
+		final int anchor = buffer.getInt(posting + 4);
+		return new Hit(getPage(buffer.getInt(posting)), anchor == NO_ANCHOR ? null : getString(anchor),
+			buffer.getInt(posting + 8) != MENTION);
+	}
+
+	/**
+	 * Returns the path of the page of the given number.
+	 *
+	 * @param page Page number.
+	 * @return Page path, relative to the output directory.
+	 */
+	private String getPage(final int page) {
+		return getString(buffer.getInt(pagesStart + page * 4));
+	}
+
+	/**
+	 * Returns the pooled string at the given offset.
+	 *
+	 * @param offset Offset of the string in the pool.
+	 * @return Pooled string.
+	 */
+	private String getString(final int offset) {
+		return getString(buffer, stringsStart + offset);
+	}
+
+	/**
+	 * Returns the string stored at the given position.
+	 *
+	 * @param buffer Buffer holding the string.
+	 * @param start Position of the string in the buffer.
+	 * @return Stored string.
+	 */
+	static String getString(final ByteBuffer buffer, final int start) {
+		final byte [] bytes = new byte[Short.toUnsignedInt(buffer.getShort(start))];
+		buffer.get(start + 2, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Consumer of the postings of an index.
+	 */
+	@FunctionalInterface
+	interface PostingConsumer {
+
+		/**
+		 * Accepts a posting.
+		 *
+		 * @param term Normalized term.
+		 * @param page Page path.
+		 * @param anchor Anchor within the page, null if none.
+		 * @param kind {@link #DEFINITION}, {@link #MEMBER_DEFINITION} or {@link #MENTION}.
+		 */
+		void accept(String term, String page, String anchor, int kind);
+
+	}
+
+	/**
+	 * Page matching a term.
+	 */
+	public static final class Hit {
+
+		/** Page path, relative to the output directory. **/
+		private final String page;
+
+		/** Anchor within the page, null if none. **/
+		private final String anchor;
+
+		/** Indicates if the page defines the term. **/
+		private final boolean definition;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param page Page path, relative to the output directory.
+		 * @param anchor Anchor within the page, null if none.
+		 * @param definition Indicates if the page defines the term.
+		 */
+		Hit(final String page, final String anchor, final boolean definition) {
+			this.page = page;
+			this.anchor = anchor;
+			this.definition = definition;
+		}
+
+		/**
+		 * Getter for the page path.
+		 *
+		 * @return Page path, relative to the output directory.
+		 */
+		public String getPage() {
+			return page;
+		}
+
+		/**
+		 * Getter for the anchor within the page.
+		 *
+		 * @return Anchor, null if none.
+		 */
+		public String getAnchor() {
+			return anchor;
+		}
+
+		/**
+		 * Indicates if the page defines the term, rather than mentions it.
+		 *
+		 * @return true for a definition, false for a mention.
+		 */
+		public boolean isDefinition() {
+			return definition;
+		}
+
+		/**
+		 * Returns the link to the page and anchor.
+		 *
+		 * @return Page path followed by the anchor, if any.
+		 */
+		@Override
+		public String toString() {
+			return anchor == null ? page : page + "#" + anchor;
+		}
+
+	}
+
+}
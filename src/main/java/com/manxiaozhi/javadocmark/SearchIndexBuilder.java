@@ -0,0 +1,357 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builder of the search index, fed with the pages generated during the
+ * run. Words of the pages are indexed as mentions, names of the
+ * documented elements as definitions with their anchor. In incremental
+ * runs, words of pages skipped as up to date are taken from the
+ * previous index, so that only regenerated pages are re-read, and
+ * only pages missing from the previous index are read back. See
+ * {@link SearchIndex} for the file layout. Instances are used from the
+ * doclet thread only.
+ *
+ * @author wangzhi
+ */
+public final class SearchIndexBuilder {
+
+	/** Minimum length of an indexed word. **/
+	private static final int MIN_TERM_LENGTH = 2;
+
+	/** Maximum length of an indexed word, longer words being ignored. **/
+	private static final int MAX_TERM_LENGTH = 64;
+
+	/** Mask of the page and anchor numbers packed in postings. **/
+	private static final long MAX_NUMBER = (1 << 30) - 1;
+
+	/** Words of the Markdown and HTML markup, which are not indexed. **/
+	private static final Set<String> IGNORED_TERMS = Set.of("md", "lt", "gt", "amp", "quot", "nbsp");
+
+	/** Postings, by normalized term. **/
+	private final Map<String, Postings> terms;
+
+	/** Number of each page, by path. **/
+	private final Map<String, Integer> pageNumbers;
+
+	/** Page paths, by number. **/
+	private final List<String> pages;
+
+	/** Number of each anchor, by anchor. **/
+	private final Map<String, Integer> anchorNumbers;
+
+	/** Anchors, by number. **/
+	private final List<String> anchors;
+
+	/** Pages whose words are kept from the previous index. **/
+	private final Set<String> keptPages;
+
+	/** Reusable buffer of the word being read. **/
+	private final StringBuilder word;
+
+	/**
+	 * Default constructor.
+	 */
+	public SearchIndexBuilder() {
+		this.terms = new HashMap<>();
+		this.pageNumbers = new HashMap<>();
+		this.pages = new ArrayList<>();
+		this.anchorNumbers = new HashMap<>();
+		this.anchors = new ArrayList<>();
+		this.keptPages = new HashSet<>();
+		this.word = new StringBuilder();
+	}
+
+	/**
+	 * Indexes the words of the given page content as mentions.
+	 *
+	 * @param page Page path, relative to the output directory.
+	 * @param content Page content.
+	 */
+	public void addText(final String page, final CharSequence content) {
+		final int pageNumber = getPageNumber(page);
+		final Set<String> seen = new HashSet<>();
+		word.setLength(0);
+		for (int i = 0; i <= content.length(); i++) {
+			final char c = i < content.length() ? content.charAt(i) : ' ';
+			if (Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+				word.append(Character.toLowerCase(c));
+			} else if (word.length() > 0) {
+				if (word.length() >= MIN_TERM_LENGTH && word.length() <= MAX_TERM_LENGTH) {
+					final String term = word.toString();
+					if (!IGNORED_TERMS.contains(term) && seen.add(term)) {
+						getPostings(term).add(pageNumber, SearchIndex.NO_ANCHOR, SearchIndex.MENTION);
+					}
+				}
+				word.setLength(0);
+			}
+		}
+	}
+
+	/**
+	 * Indexes the given package or type name as defined by the given
+	 * page.
+	 *
+	 * @param page Page path, relative to the output directory.
+	 * @param name Defined name, simple or qualified.
+	 */
+	public void addDefinition(final String page, final String name) {
+		getPostings(SearchIndex.normalize(name)).add(getPageNumber(page), SearchIndex.NO_ANCHOR, SearchIndex.DEFINITION);
+	}
+
+	/**
+	 * Indexes the given member name as defined by the given page.
+	 *
+	 * @param page Page path, relative to the output directory.
+	 * @param name Simple name of the member.
+	 * @param anchor Anchor of the member within the page, null if none.
+	 */
+	public void addMemberDefinition(final String page, final String name, final String anchor) {
+		getPostings(SearchIndex.normalize(name)).add(getPageNumber(page),
+			anchor == null ? SearchIndex.NO_ANCHOR : getAnchorNumber(anchor), SearchIndex.MEMBER_DEFINITION);
+	}
+
+	/**
+	 * Keeps the words of the given page from the previous index, the
+	 * page being up to date. Definitions of the page are still to be
+	 * added.
+	 *
+	 * @param page Page path, relative to the output directory.
+	 */
+	public void keepPage(final String page) {
+		keptPages.add(page);
+	}
+
+	/**
+	 * Writes the index to the given file, in the output directory,
+	 * merging the words of kept pages from the previous version of the
+	 * file. Kept pages missing from the previous index are read back.
+	 *
+	 * @param file Index file.
+	 * @param pageWriter Output stage the index is committed through.
+	 * @throws IOException If any error occurs while reading the previous index or kept pages, or writing the index.
+	 */
+	public void write(final Path file, final PageWriter pageWriter) throws IOException {
+		if (!keptPages.isEmpty() && Files.exists(file)) {
+			final Set<String> merged = new HashSet<>();
+			try {
+				SearchIndex.read(file).forEach((term, page, anchor, kind) -> {
+					if (kind == SearchIndex.MENTION && keptPages.contains(page)) {
+						getPostings(term).add(getPageNumber(page), SearchIndex.NO_ANCHOR, kind);
+						merged.add(page);
+					}
+				});
+				keptPages.removeAll(merged);
+			} catch (final IOException e) {
+				JavadocMarkLogger.info("JavadocMark", "Previous search index ignored: " + e.getMessage());
+			}
+		}
+		for (final String page : keptPages) {
+			addText(page, Files.readString(file.resolveSibling(page)));
+		}
+
+		final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+		final DataOutputStream stringOutput = new DataOutputStream(strings);
+		final List<String> sortedPages = new ArrayList<>(pages);
+		Collections.sort(sortedPages);
+		final int [] pageOrder = new int[pages.size()];
+		final int [] pageOffsets = new int[pages.size()];
+		for (int i = 0; i < sortedPages.size(); i++) {
+			final int number = pageNumbers.get(sortedPages.get(i));
+			pageOrder[number] = i;
+			pageOffsets[i] = pool(stringOutput, sortedPages.get(i).getBytes(StandardCharsets.UTF_8));
+		}
+		final int [] anchorOffsets = new int[anchors.size()];
+		for (int i = 0; i < anchors.size(); i++) {
+			anchorOffsets[i] = pool(stringOutput, anchors.get(i).getBytes(StandardCharsets.UTF_8));
+		}
+		final List<byte []> sortedTerms = new ArrayList<>(terms.size());
+		for (final String term : terms.keySet()) {
+			sortedTerms.add(term.getBytes(StandardCharsets.UTF_8));
+		}
+		sortedTerms.sort(Arrays::compareUnsigned);
+
+		final Path temporary = PageWriter.getTemporaryFile(file);
+		long postingCount = 0;
+		for (final Postings postings : terms.values()) {
+			postings.sort(pageOrder);
+			postingCount += postings.size;
+		}
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			output.writeInt(SearchIndex.MAGIC);
+			output.writeInt(SearchIndex.VERSION);
+			output.writeInt(sortedTerms.size());
+			output.writeInt(Math.toIntExact(postingCount));
+			output.writeInt(pages.size());
+			int firstPosting = 0;
+			for (final byte [] term : sortedTerms) {
+				final Postings postings = terms.get(new String(term, StandardCharsets.UTF_8));
+				output.writeInt(pool(stringOutput, term));
+				output.writeInt(firstPosting);
+				output.writeInt(postings.size);
+				firstPosting += postings.size;
+			}
+			for (final byte [] term : sortedTerms) {
+				final Postings postings = terms.get(new String(term, StandardCharsets.UTF_8));
+				for (int i = 0; i < postings.size; i++) {
+					final long posting = postings.data[i];
+					final int anchor = (int) (posting & MAX_NUMBER) - 1;
+					output.writeInt((int) (posting >>> 30 & MAX_NUMBER));
+					output.writeInt(anchor == SearchIndex.NO_ANCHOR ? SearchIndex.NO_ANCHOR : anchorOffsets[anchor]);
+					output.writeInt((int) (posting >>> 60));
+				}
+			}
+			for (final int offset : pageOffsets) {
+				output.writeInt(offset);
+			}
+			strings.writeTo(output);
+		} catch (final IOException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+		pageWriter.commit(temporary, file);
+		JavadocMarkLogger.info("JavadocMark", "Search index written with " + sortedTerms.size() + " terms over " + pages.size() + " pages");
+	}
+
+	/**
+	 * Returns the anchor of the given Markdown heading, as generated by
+	 * GitHub: lower case, punctuation removed and spaces replaced by
+	 * hyphens.
+	 *
+	 * @param heading Heading text.
+	 * @return Anchor of the heading.
+	 */
+	public static String getAnchor(final String heading) {
+		final StringBuilder anchor = new StringBuilder(heading.length());
+		for (int i = 0; i < heading.length(); i++) {
+			final char c = heading.charAt(i);
+			if (Character.isLetterOrDigit(c) || c == '_' || c == '-') {
+				anchor.append(Character.toLowerCase(c));
+			} else if (c == ' ') {
+				anchor.append('-');
+			}
+		}
+		return anchor.toString();
+	}
+
+	/**
+	 * Appends the given string to the pool.
+	 *
+	 * @param pool Pool to append string to.
+	 * @param bytes UTF-8 bytes of the string, at most 65535.
+	 * @return Offset of the string in the pool.
+	 * @throws IOException If any error occurs while appending the string.
+	 */
+	static int pool(final DataOutputStream pool, final byte [] bytes) throws IOException {
+		final int offset = pool.size();
+		pool.writeShort(bytes.length);
+		pool.write(bytes);
+		return offset;
+	}
+
+	/**
+	 * Returns the postings of the given term, created if needed.
+	 *
+	 * @param term Normalized term.
+	 * @return Postings of the term.
+	 */
+	private Postings getPostings(final String term) {
+		return terms.computeIfAbsent(term, key -> new Postings());
+	}
+
+	/**
+	 * Returns the number of the given page, assigned if needed.
+	 *
+	 * @param page Page path.
+	 * @return Page number.
+	 */
+	private int getPageNumber(final String page) {
+		return pageNumbers.computeIfAbsent(page, key -> {
+			pages.add(key);
+			return pages.size() - 1;
+		});
+	}
+
+	/**
+	 * Returns the number of the given anchor, assigned if needed.
+	 *
+	 * @param anchor Anchor.
+	 * @return Anchor number.
+	 */
+	private int getAnchorNumber(final String anchor) {
+		return anchorNumbers.computeIfAbsent(anchor, key -> {
+			anchors.add(key);
+			return anchors.size() - 1;
+		});
+	}
+
+	/**
+	 * Postings of a term, each packed in a positive long: the kind in
+	 * the highest bits, then the page number, then the anchor number
+	 * plus one, on 30 bits each, definitions therefore sorting first.
+	 */
+	private static final class Postings {
+
+		/** Packed postings. **/
+		private long [] data = new long[2];
+
+		/** Number of postings. **/
+		private int size;
+
+		/**
+		 * Adds a posting, unless it repeats the last one.
+		 *
+		 * @param page Page number.
+		 * @param anchor Anchor number, {@link SearchIndex#NO_ANCHOR} if none.
+		 * @param kind {@link SearchIndex#DEFINITION}, {@link SearchIndex#MEMBER_DEFINITION} or {@link SearchIndex#MENTION}.
+		 */
+		void add(final int page, final int anchor, final int kind) {
+			final long posting = (long) kind << 60 | (long) page << 30 | anchor + 1;
+			if (size > 0 && data[size - 1] == posting) {
+				return;
+			}
+			if (size == data.length) {
+				data = Arrays.copyOf(data, size * 2);
+			}
+			data[size++] = posting;
+		}
+
+		/**
+		 * Renumbers the pages of the postings to their rank in the sorted
+		 * pages, then sorts the postings, definitions first, then by page,
+		 * and removes duplicates.
+		 *
+		 * @param pageOrder Rank of each page number in the sorted pages.
+		 */
+		void sort(final int [] pageOrder) {
+			for (int i = 0; i < size; i++) {
+				final int page = (int) (data[i] >>> 30 & MAX_NUMBER);
+				data[i] = data[i] & ~(MAX_NUMBER << 30) | (long) pageOrder[page] << 30;
+			}
+			Arrays.sort(data, 0, size);
+			int distinct = 0;
+			for (int i = 0; i < size; i++) {
+				if (distinct == 0 || data[distinct - 1] != data[i]) {
+					data[distinct++] = data[i];
+				}
+			}
+			size = distinct;
+		}
+
+	}
+
+}
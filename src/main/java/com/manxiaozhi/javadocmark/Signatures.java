@@ -0,0 +1,237 @@
+package com.manxiaozhi.javadocmark;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+/**
+ * Renders plain text Java signatures of types and members, without
+ * links, types being named by their simple names qualified by their
+ * enclosing types only. Modifiers implied by the declaration, such as
+ * {@code abstract} on interface methods, are left out. Used by the
+ * compact profile and the API index.
+ *
+ * @author wangzhi
+ */
+public final class Signatures {
+
+	/** Qualified name of the implicit bound and superclass. **/
+	private static final String OBJECT = "java.lang.Object";
+
+	/** Symbol table types are named with. **/
+	private final SymbolTable symbols;
+
+	/** Index of the documented elements. **/
+	private final ElementIndex index;
+
+	/** Type utilities of the environment. **/
+	private final Types typeUtils;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param symbols Symbol table types are named with.
+	 * @param index Index of the documented elements.
+	 * @param typeUtils Type utilities of the environment.
+	 */
+	public Signatures(final SymbolTable symbols, final ElementIndex index, final Types typeUtils) {
+		this.symbols = symbols;
+		this.index = index;
+		this.typeUtils = typeUtils;
+	}
+
+	/**
+	 * Builds the signature of the given type.
+	 *
+	 * @param typeElement Type to build signature of.
+	 * @return Type signature.
+	 */
+	public String getTypeSignature(final TypeElement typeElement) {
+		final StringBuilder builder = new StringBuilder();
+		appendModifiers(builder, typeElement);
+		switch (typeElement.getKind()) {
+			case INTERFACE:
+				builder.append("interface ");
+				break;
+			case ANNOTATION_TYPE:
+				builder.append("@interface ");
+				break;
+			case ENUM:
+				builder.append("enum ");
+				break;
+			case RECORD:
+				builder.append("record ");
+				break;
+			default:
+				builder.append("class ");
+		}
+		builder.append(index.getFileName(typeElement));
+		appendTypeParameters(builder, typeElement.getTypeParameters());
+		final TypeMirror superclass = typeElement.getSuperclass();
+		if (typeElement.getKind() == ElementKind.CLASS && superclass.getKind() == TypeKind.DECLARED
+				&& !OBJECT.contentEquals(((TypeElement) typeUtils.asElement(superclass)).getQualifiedName())) {
+			builder.append(" extends ").append(symbols.getTypeName(superclass));
+		}
+		final List<? extends TypeMirror> interfaces = typeElement.getInterfaces();
+		if (!interfaces.isEmpty()) {
+			builder.append(typeElement.getKind() == ElementKind.INTERFACE ? " extends " : " implements ");
+			appendTypes(builder, interfaces, ", ");
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Builds the signature of the given field or enum constant.
+	 *
+	 * @param field Field to build signature of.
+	 * @return Field signature.
+	 */
+	public String getFieldSignature(final VariableElement field) {
+		final StringBuilder builder = new StringBuilder();
+		appendModifiers(builder, field);
+		return builder.append(symbols.getTypeName(field.asType())).append(' ').append(field.getSimpleName()).toString();
+	}
+
+	/**
+	 * Builds the signature of the given method or constructor.
+	 *
+	 * @param method Method to build signature of.
+	 * @return Method signature.
+	 */
+	public String getMethodSignature(final ExecutableElement method) {
+		final StringBuilder builder = new StringBuilder();
+		appendModifiers(builder, method);
+		if (!method.getTypeParameters().isEmpty()) {
+			appendTypeParameters(builder, method.getTypeParameters());
+			builder.append(' ');
+		}
+		if (method.getKind() == ElementKind.CONSTRUCTOR) {
+			builder.append(method.getEnclosingElement().getSimpleName());
+		} else {
+			builder.append(symbols.getTypeName(method.getReturnType())).append(' ').append(method.getSimpleName());
+		}
+		builder.append('(');
+		final List<? extends VariableElement> parameters = method.getParameters();
+		for (int i = 0; i < parameters.size(); i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			final VariableElement param = parameters.get(i);
+			if (method.isVarArgs() && i == parameters.size() - 1) {
+				builder.append(symbols.getTypeName(((ArrayType) param.asType()).getComponentType())).append("...");
+			} else {
+				builder.append(symbols.getTypeName(param.asType()));
+			}
+			builder.append(' ').append(param.getSimpleName());
+		}
+		builder.append(')');
+		if (!method.getThrownTypes().isEmpty()) {
+			builder.append(" throws ");
+			appendTypes(builder, method.getThrownTypes(), ", ");
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Appends the modifiers of the given element, each followed by a
+	 * space, but the ones implied by its declaration: {@code abstract}
+	 * on interfaces, {@code final} on enums and records, {@code static}
+	 * on member interfaces, enums and records, {@code public static final}
+	 * on enum constants, and on members of interfaces {@code public} and
+	 * {@code abstract} on methods, {@code public static final} on fields
+	 * and {@code public static} on types.
+	 *
+	 * @param builder Builder to append modifiers to.
+	 * @param element Element to append modifiers of.
+	 */
+	private static void appendModifiers(final StringBuilder builder, final Element element) {
+		final Set<Modifier> implied = EnumSet.noneOf(Modifier.class);
+		final ElementKind kind = element.getKind();
+		final boolean memberType = element.getEnclosingElement() instanceof TypeElement;
+		if (kind.isInterface()) {
+			implied.add(Modifier.ABSTRACT);
+		}
+		if (kind == ElementKind.ENUM || kind == ElementKind.RECORD) {
+			implied.add(Modifier.FINAL);
+		}
+		if (memberType && (kind.isInterface() || kind == ElementKind.ENUM || kind == ElementKind.RECORD)) {
+			implied.add(Modifier.STATIC);
+		}
+		if (kind == ElementKind.ENUM_CONSTANT) {
+			implied.add(Modifier.PUBLIC);
+			implied.add(Modifier.STATIC);
+			implied.add(Modifier.FINAL);
+		}
+		if (memberType && element.getEnclosingElement().getKind().isInterface()) {
+			implied.add(Modifier.PUBLIC);
+			if (kind == ElementKind.METHOD) {
+				implied.add(Modifier.ABSTRACT);
+			} else if (kind == ElementKind.FIELD) {
+				implied.add(Modifier.STATIC);
+				implied.add(Modifier.FINAL);
+			} else if (kind.isClass() || kind.isInterface()) {
+				implied.add(Modifier.STATIC);
+			}
+		}
+		for (final Modifier modifier : element.getModifiers()) {
+			if (!implied.contains(modifier)) {
+				builder.append(modifier).append(' ');
+			}
+		}
+	}
+
+	/**
+	 * Appends the given types, separated by the given separator.
+	 *
+	 * @param builder Builder to append types to.
+	 * @param types Types to append.
+	 * @param separator Separator appended between types.
+	 */
+	private void appendTypes(final StringBuilder builder, final List<? extends TypeMirror> types, final String separator) {
+		for (int i = 0; i < types.size(); i++) {
+			if (i > 0) {
+				builder.append(separator);
+			}
+			builder.append(symbols.getTypeName(types.get(i)));
+		}
+	}
+
+	/**
+	 * Appends the given type parameters, if any, between angle brackets.
+	 *
+	 * @param builder Builder to append type parameters to.
+	 * @param parameters Type parameters to append.
+	 */
+	private void appendTypeParameters(final StringBuilder builder, final List<? extends TypeParameterElement> parameters) {
+		if (parameters.isEmpty()) {
+			return;
+		}
+		builder.append('<');
+		for (int i = 0; i < parameters.size(); i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			final TypeParameterElement parameter = parameters.get(i);
+			builder.append(parameter.getSimpleName());
+			final List<? extends TypeMirror> bounds = parameter.getBounds();
+			if (bounds.size() > 1 || bounds.size() == 1 && !OBJECT.equals(bounds.get(0).toString())) {
+				builder.append(" extends ");
+				appendTypes(builder, bounds, " & ");
+			}
+		}
+		builder.append('>');
+	}
+
+}
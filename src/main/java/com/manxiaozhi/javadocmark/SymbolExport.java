@@ -0,0 +1,287 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Symbol export of a module: the page path of each type and package
+ * documented by a run, written next to the pages so that the runs of
+ * other modules can link to them without parsing the module sources.
+ * Exports are memory mapped and looked up by binary search, so that
+ * loading the exports of many modules costs little more than the
+ * lookups themselves.
+ * <p>
+ * Layout, big endian: a header of {@link #HEADER_SIZE} bytes made of
+ * the magic number, the format version, the number of types and of
+ * packages, then the type entries and the package entries, each made
+ * of the string offsets of the qualified name and of the page path and
+ * sorted by UTF-8 bytes of the name, and finally the string pool,
+ * starting with the digest of the symbols. Strings are stored as in
+ * the {@link SearchIndex}. Instances are thread safe.
+ *
+ * @author wangzhi
+ */
+public final class SymbolExport {
+
+	/** Name of the export file within the output directory. **/
+	public static final String EXPORT_FILE = "symbols.bin";
+
+	/** Magic number starting the export file. **/
+	static final int MAGIC = 0x4A444D58;
+
+	/** Version of the export format. **/
+	static final int VERSION = 1;
+
+	/** Size of the header in bytes. **/
+	static final int HEADER_SIZE = 16;
+
+	/** Size of an entry: name string offset, path string offset. **/
+	static final int ENTRY_SIZE = 8;
+
+	/** Export content. **/
+	private final ByteBuffer buffer;
+
+	/** Name of the module, that is the name of its output directory. **/
+	private final String name;
+
+	/** Path of the module output directory, relative to the linking output directory. **/
+	private final String url;
+
+	/** Number of types. **/
+	private final int typeCount;
+
+	/** Number of packages. **/
+	private final int packageCount;
+
+	/** Offset of the string pool. **/
+	private final int stringsStart;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param buffer Export content.
+	 * @param name Name of the module.
+	 * @param url Path of the module output directory, relative to the linking output directory.
+	 * @throws IOException If the content is not a symbol export of the supported version.
+	 */
+	private SymbolExport(final ByteBuffer buffer, final String name, final String url) throws IOException {
+		this.buffer = buffer;
+		this.name = name;
+		this.url = url;
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Not a JavadocMark symbol export of version " + VERSION);
+		}
+		this.typeCount = buffer.getInt(8);
+		this.packageCount = buffer.getInt(12);
+		this.stringsStart = HEADER_SIZE + (typeCount + packageCount) * ENTRY_SIZE;
+	}
+
+	/**
+	 * Opens the given export file by memory mapping it.
+	 *
+	 * @param file Export file to open.
+	 * @param name Name of the module.
+	 * @param url Path of the module output directory, relative to the linking output directory.
+	 * @return Opened export.
+	 * @throws IOException If any error occurs while mapping the file, or if it is not a symbol export.
+	 */
+	public static SymbolExport open(final Path file, final String name, final String url) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new SymbolExport(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), name, url);
+		}
+	}
+
+	/**
+	 * Opens the exports of the modules documented in the subdirectories
+	 * of the given directory, in name order, except the given output
+	 * directory. Unreadable exports are skipped.
+	 *
+	 * @param modulesDirectory Directory holding one output directory per module.
+	 * @param outputDirectory Output directory links are made from, which may be one of the modules.
+	 * @return Opened exports.
+	 * @throws IOException If any error occurs while listing the modules.
+	 */
+	public static List<SymbolExport> openModules(final Path modulesDirectory, final Path outputDirectory) throws IOException {
+		final List<SymbolExport> exports = new ArrayList<>();
+		if (!Files.isDirectory(modulesDirectory)) {
+			return exports;
+		}
+		final Path from = outputDirectory.toAbsolutePath().normalize();
+		final List<Path> moduleDirectories = new ArrayList<>();
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(modulesDirectory, Files::isDirectory)) {
+			for (final Path entry : entries) {
+				moduleDirectories.add(entry.toAbsolutePath().normalize());
+			}
+		}
+		Collections.sort(moduleDirectories);
+		for (final Path moduleDirectory : moduleDirectories) {
+			final Path file = moduleDirectory.resolve(EXPORT_FILE);
+			if (moduleDirectory.equals(from) || !Files.isRegularFile(file)) {
+				continue;
+			}
+			final String url = from.relativize(moduleDirectory).toString().replace('\\', '/');
+			try {
+				exports.add(open(file, moduleDirectory.getFileName().toString(), url));
+			} catch (final IOException e) {
+				JavadocMarkLogger.info("JavadocMark", "Symbol export ignored: " + file + ": " + e.getMessage());
+			}
+		}
+		return exports;
+	}
+
+	/**
+	 * Writes the export of the given symbols.
+	 *
+	 * @param file Export file.
+	 * @param typePaths Page path of each type, by qualified name.
+	 * @param packagePaths Page path of each package, by qualified name.
+	 * @param digest Digest of the symbols.
+	 * @param pageWriter Output stage the export is committed through.
+	 * @throws IOException If any error occurs while writing the export.
+	 */
+	static void write(final Path file, final Map<String, String> typePaths, final Map<String, String> packagePaths, final String digest,
+			final PageWriter pageWriter) throws IOException {
+		final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+		final DataOutputStream stringOutput = new DataOutputStream(strings);
+		SearchIndexBuilder.pool(stringOutput, digest.getBytes(StandardCharsets.UTF_8));
+		final Path temporary = PageWriter.getTemporaryFile(file);
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(typePaths.size());
+			output.writeInt(packagePaths.size());
+			for (final Map<String, String> paths : List.of(typePaths, packagePaths)) {
+				final List<byte []> names = new ArrayList<>(paths.size());
+				for (final String symbol : paths.keySet()) {
+					names.add(symbol.getBytes(StandardCharsets.UTF_8));
+				}
+				names.sort(Arrays::compareUnsigned);
+				for (final byte [] symbol : names) {
+					output.writeInt(SearchIndexBuilder.pool(stringOutput, symbol));
+					output.writeInt(SearchIndexBuilder.pool(stringOutput,
+						paths.get(new String(symbol, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8)));
+				}
+			}
+			strings.writeTo(output);
+		} catch (final IOException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+		pageWriter.commit(temporary, file);
+		JavadocMarkLogger.info("JavadocMark", "Symbol export written with " + typePaths.size() + " types and "
+			+ packagePaths.size() + " packages");
+	}
+
+	/**
+	 * Returns the page path of the given type.
+	 *
+	 * @param qualifiedName Qualified name of the type.
+	 * @return Page path, relative to the module output directory, or null if the module does not document the type.
+	 */
+	public String getTypePath(final String qualifiedName) {
+		return find(HEADER_SIZE, typeCount, qualifiedName);
+	}
+
+	/**
+	 * Returns the page path of the given package.
+	 *
+	 * @param qualifiedName Qualified name of the package.
+	 * @return Page path, relative to the module output directory, or null if the module does not document the package.
+	 */
+	public String getPackagePath(final String qualifiedName) {
+		return find(HEADER_SIZE + typeCount * ENTRY_SIZE, packageCount, qualifiedName);
+	}
+
+	/**
+	 * Returns the qualified names of the packages of the module.
+	 *
+	 * @return Package names, sorted.
+	 */
+	public List<String> getPackages() {
+		final List<String> packages = new ArrayList<>(packageCount);
+		final int start = HEADER_SIZE + typeCount * ENTRY_SIZE;
+		for (int i = 0; i < packageCount; i++) {
+			packages.add(SearchIndex.getString(buffer, stringsStart + buffer.getInt(start + i * ENTRY_SIZE)));
+		}
+		return packages;
+	}
+
+	/**
+	 * Getter for the number of types.
+	 *
+	 * @return Number of types.
+	 */
+	public int getTypeCount() {
+		return typeCount;
+	}
+
+	/**
+	 * Getter for the digest of the symbols, which changes whenever a
+	 * symbol or page path changes.
+	 *
+	 * @return Digest of the symbols.
+	 */
+	public String getDigest() {
+		return SearchIndex.getString(buffer, stringsStart);
+	}
+
+	/**
+	 * Getter for the name of the module.
+	 *
+	 * @return Name of the module output directory.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Getter for the path of the module output directory.
+	 *
+	 * @return Path relative to the linking output directory, using '/' as separator.
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * Finds the page path of the given name among the given entries.
+	 *
+	 * @param start Offset of the first entry.
+	 * @param count Number of entries.
+	 * @param qualifiedName Qualified name to find.
+	 * @return Page path, or null if the name is not found.
+	 */
+	private String find(final int start, final int count, final String qualifiedName) {
+		final byte [] bytes = qualifiedName.getBytes(StandardCharsets.UTF_8);
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int entry = start + middle * ENTRY_SIZE;
+			final int comparison = SearchIndex.compare(buffer, stringsStart + buffer.getInt(entry), bytes);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return SearchIndex.getString(buffer, stringsStart + buffer.getInt(entry + 4));
+			}
+		}
+		return null;
+	}
+
+}
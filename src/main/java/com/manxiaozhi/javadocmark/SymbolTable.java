@@ -0,0 +1,520 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.IntersectionType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.UnionType;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+
+/**
+ * Symbol table mapping each documented type and package to the path
+ * of its page, relative to the output directory. It is built once per
+ * run and resolves every link between pages, so that links only target
+ * pages which are generated. Types which are not documented link to
+ * the page of the first module export documenting them, then to the
+ * first matching external root, if any, or are left as plain text.
+ * Symbols are stored by qualified name, without reference to program
+ * elements, and resolved links are cached by source directory.
+ *
+ * @author wangzhi
+ */
+public final class SymbolTable {
+
+	/** Extension of generated pages. **/
+	public static final String PAGE_EXTENSION = ".md";
+
+	/** File name of package pages. **/
+	public static final String PACKAGE_PAGE = "README.md";
+
+	/** Cached value of symbols which cannot be linked. **/
+	private static final String NO_LINK = "";
+
+	/** Page path of each documented type, by qualified name. **/
+	private final Map<String, String> typePaths;
+
+	/** Page path of each documented package, by qualified name. **/
+	private final Map<String, String> packagePaths;
+
+	/** Elements utility, used to find the package of elements. **/
+	private final Elements elements;
+
+	/** Symbol exports of the other modules, in lookup order. **/
+	private final List<SymbolExport> moduleExports;
+
+	/** External documentation roots, the most specific ones first. **/
+	private final List<ExternalRoot> externalRoots;
+
+	/** Layout of the split type pages, members link to. **/
+	private final PageSplitter splitter;
+
+	/** Resolved links, by source directory then by qualified name. **/
+	private final Map<String, Map<String, String>> links;
+
+	/** Digest of the symbols, computed on first access. **/
+	private String digest;
+
+	/**
+	 * Builds the symbol table of the given index.
+	 *
+	 * @param index Index of the documented elements.
+	 * @param elements Elements utility of the environment.
+	 * @param externalRoots External documentation roots.
+	 */
+	public SymbolTable(final ElementIndex index, final Elements elements, final List<ExternalRoot> externalRoots) {
+		this(index, elements, Collections.emptyList(), externalRoots);
+	}
+
+	/**
+	 * Builds the symbol table of the given index, linking the types
+	 * and packages of other modules through their symbol exports.
+	 *
+	 * @param index Index of the documented elements.
+	 * @param elements Elements utility of the environment.
+	 * @param moduleExports Symbol exports of the other modules, in lookup order.
+	 * @param externalRoots External documentation roots.
+	 */
+	public SymbolTable(final ElementIndex index, final Elements elements, final List<SymbolExport> moduleExports,
+			final List<ExternalRoot> externalRoots) {
+		this(index, elements, moduleExports, externalRoots, PageSplitter.NONE);
+	}
+
+	/**
+	 * Builds the symbol table of the given index, linking the types
+	 * and packages of other modules through their symbol exports, and
+	 * the members of split types to their member page.
+	 *
+	 * @param index Index of the documented elements.
+	 * @param elements Elements utility of the environment.
+	 * @param moduleExports Symbol exports of the other modules, in lookup order.
+	 * @param externalRoots External documentation roots.
+	 * @param splitter Layout of the split type pages.
+	 */
+	public SymbolTable(final ElementIndex index, final Elements elements, final List<SymbolExport> moduleExports,
+			final List<ExternalRoot> externalRoots, final PageSplitter splitter) {
+		this.elements = elements;
+		this.splitter = splitter;
+		this.moduleExports = new ArrayList<>(moduleExports);
+		this.typePaths = new HashMap<>();
+		this.packagePaths = new HashMap<>();
+		for (final PackageElement packageElement : index.getPackages()) {
+			final String directory = ElementIndex.getPackageDirectory(packageElement);
+			packagePaths.put(packageElement.getQualifiedName().toString(), resolve(directory, PACKAGE_PAGE));
+			for (final TypeElement typeElement : index.getTypes(packageElement)) {
+				typePaths.put(typeElement.getQualifiedName().toString(),
+					resolve(directory, index.getFileName(typeElement) + PAGE_EXTENSION));
+			}
+		}
+		this.externalRoots = new ArrayList<>(externalRoots);
+		this.externalRoots.sort(Comparator.comparingInt((ExternalRoot root) -> root.packagePrefix.length()).reversed());
+		this.links = new HashMap<>();
+	}
+
+	/**
+	 * Returns the page path of the given documented type.
+	 *
+	 * @param qualifiedName Qualified name of the type.
+	 * @return Page path relative to the output directory, or null if the type is not documented.
+	 */
+	public String getPath(final String qualifiedName) {
+		return typePaths.get(qualifiedName);
+	}
+
+	/**
+	 * Returns a digest of every symbol, module export, external root
+	 * and split page layout. Links of a page depend on the symbols it references, so
+	 * the digest is part of the page inputs in incremental generation.
+	 *
+	 * @return Digest of the symbol table.
+	 */
+	public String getDigest() {
+		if (digest == null) {
+			final PageManifest.Hasher hasher = new PageManifest.Hasher().add(getModuleDigest());
+			for (final SymbolExport moduleExport : moduleExports) {
+				hasher.add(moduleExport.getUrl()).add(moduleExport.getDigest());
+			}
+			for (final ExternalRoot root : externalRoots) {
+				hasher.add(root.packagePrefix).add(root.url).add(root.extension);
+			}
+			hasher.add(splitter.getDigest());
+			digest = hasher.digest();
+		}
+		return digest;
+	}
+
+	/**
+	 * Returns a digest of the symbols documented by the run only. It
+	 * is the digest of the module export, which must not depend on
+	 * the exports of other modules, as modules may link each other.
+	 *
+	 * @return Digest of the documented symbols.
+	 */
+	private String getModuleDigest() {
+		final PageManifest.Hasher hasher = new PageManifest.Hasher();
+		for (final Map<String, String> paths : List.of(typePaths, packagePaths)) {
+			final List<String> names = new ArrayList<>(paths.keySet());
+			Collections.sort(names);
+			for (final String name : names) {
+				hasher.add(name).add(paths.get(name));
+			}
+		}
+		return hasher.digest();
+	}
+
+	/**
+	 * Returns the link to the page of the given type from a page
+	 * of the given directory.
+	 *
+	 * @param fromDirectory Directory of the linking page, relative to the output directory.
+	 * @param typeElement Type to link to.
+	 * @return Link to the type page, or null if the type cannot be linked.
+	 */
+	public String getLink(final String fromDirectory, final TypeElement typeElement) {
+		final String qualifiedName = typeElement.getQualifiedName().toString();
+		final Map<String, String> directoryLinks = links.computeIfAbsent(fromDirectory, key -> new HashMap<>());
+		String link = directoryLinks.get(qualifiedName);
+		if (link == null) {
+			final String path = typePaths.get(qualifiedName);
+			if (path != null) {
+				link = relativize(fromDirectory, path);
+			} else {
+				link = getModuleLink(fromDirectory, qualifiedName, false);
+				if (link == null) {
+					link = getExternalLink(fromDirectory, elements.getPackageOf(typeElement).getQualifiedName().toString(), qualifiedName);
+				}
+			}
+			directoryLinks.put(qualifiedName, link);
+		}
+		return link.isEmpty() ? null : link;
+	}
+
+	/**
+	 * Returns the link to the section of the given member from a page
+	 * of the given directory: the heading of the member in the page of
+	 * its type, or in its member page if the type page is split. Members
+	 * of types documented elsewhere, and constructors, which have no
+	 * section, link to the page of their type.
+	 *
+	 * @param fromDirectory Directory of the linking page, relative to the output directory.
+	 * @param member Member to link to.
+	 * @return Link to the member, or null if its type cannot be linked.
+	 */
+	public String getMemberLink(final String fromDirectory, final Element member) {
+		final TypeElement typeElement = (TypeElement) member.getEnclosingElement();
+		final String link = getLink(fromDirectory, typeElement);
+		if (link == null || typePaths.get(typeElement.getQualifiedName().toString()) == null
+				|| member.getKind() == ElementKind.CONSTRUCTOR) {
+			return link;
+		}
+		return splitter.getPage(link, member) + "#" + member.getSimpleName().toString().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Returns the link to the page of the given package from a page
+	 * of the given directory.
+	 *
+	 * @param fromDirectory Directory of the linking page, relative to the output directory.
+	 * @param packageElement Package to link to.
+	 * @return Link to the package page, or null if the package is not documented.
+	 */
+	public String getLink(final String fromDirectory, final PackageElement packageElement) {
+		final String qualifiedName = packageElement.getQualifiedName().toString();
+		final String path = packagePaths.get(qualifiedName);
+		return path == null ? getModuleLink(fromDirectory, qualifiedName, true) : relativize(fromDirectory, path);
+	}
+
+	/**
+	 * Writes the symbols of this table as the symbol export of the
+	 * module.
+	 *
+	 * @param file Export file.
+	 * @param pageWriter Output stage the export is committed through.
+	 * @throws IOException If any error occurs while writing the export.
+	 */
+	public void export(final Path file, final PageWriter pageWriter) throws IOException {
+		SymbolExport.write(file, typePaths, packagePaths, getModuleDigest(), pageWriter);
+	}
+
+	/**
+	 * Returns the link to the page of the given type or package in the
+	 * first module export documenting it.
+	 *
+	 * @param fromDirectory Directory of the linking page, relative to the output directory.
+	 * @param qualifiedName Qualified name of the type or package.
+	 * @param isPackage true for a package, false for a type.
+	 * @return Link to the page, or null if no module documents the symbol.
+	 */
+	private String getModuleLink(final String fromDirectory, final String qualifiedName, final boolean isPackage) {
+		for (final SymbolExport moduleExport : moduleExports) {
+			final String path = isPackage ? moduleExport.getPackagePath(qualifiedName) : moduleExport.getTypePath(qualifiedName);
+			if (path != null) {
+				return relativize(fromDirectory, resolve(moduleExport.getUrl(), path));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the link to the given type in the most specific external
+	 * root documenting its package, from a page of the given directory.
+	 * Roots given as relative URLs are relative to the output directory.
+	 *
+	 * @param fromDirectory Directory of the linking page, relative to the output directory.
+	 * @param packageName Package of the type.
+	 * @param qualifiedName Qualified name of the type.
+	 * @return External link, or {@link #NO_LINK} if no root documents the package.
+	 */
+	private String getExternalLink(final String fromDirectory, final String packageName, final String qualifiedName) {
+		for (final ExternalRoot root : externalRoots) {
+			if (root.documents(packageName)) {
+				final String typeName = packageName.isEmpty() ? qualifiedName : qualifiedName.substring(packageName.length() + 1);
+				final String link = resolve(root.url, resolve(packageName.replace('.', '/'), typeName + root.extension));
+				return root.isAbsolute() ? link : relativize(fromDirectory, link);
+			}
+		}
+		return NO_LINK;
+	}
+
+	/**
+	 * Renders the given type as Markdown from a page of the given
+	 * directory. Documented and externally documented types are
+	 * linked, type arguments, arrays and wildcards are rendered
+	 * recursively, and angle brackets are escaped so that they
+	 * are not taken for HTML tags.
+	 *
+	 * @param type Type to render.
+	 * @param fromDirectory Directory of the rendering page, relative to the output directory.
+	 * @return Rendered type.
+	 */
+	public String linkType(final TypeMirror type, final String fromDirectory) {
+		final StringBuilder builder = new StringBuilder();
+		appendType(builder, type, fromDirectory);
+		return builder.toString();
+	}
+
+	/**
+	 * Renders the given type as plain text, without links, using
+	 * simple names qualified by their enclosing types only. Used for
+	 * compact signatures.
+	 *
+	 * @param type Type to render.
+	 * @return Rendered type.
+	 */
+	public String getTypeName(final TypeMirror type) {
+		final StringBuilder builder = new StringBuilder();
+		appendType(builder, type, null);
+		return builder.toString();
+	}
+
+	/**
+	 * Renders the given type as Markdown to the given builder.
+	 *
+	 * @param builder Builder to render type to.
+	 * @param type Type to render.
+	 * @param fromDirectory Directory of the rendering page, relative to the output directory,
+	 *        null to render plain names without links.
+	 */
+	private void appendType(final StringBuilder builder, final TypeMirror type, final String fromDirectory) {
+		switch (type.getKind()) {
+			case DECLARED:
+				final DeclaredType declaredType = (DeclaredType) type;
+				final TypeElement typeElement = (TypeElement) declaredType.asElement();
+				if (fromDirectory == null) {
+					builder.append(getNestedName(typeElement));
+				} else {
+					final String link = getLink(fromDirectory, typeElement);
+					if (link != null) {
+						builder.append('[').append(getNestedName(typeElement)).append("](").append(link).append(')');
+					} else {
+						builder.append(typeElement.getQualifiedName());
+					}
+				}
+				final List<? extends TypeMirror> arguments = declaredType.getTypeArguments();
+				if (!arguments.isEmpty()) {
+					builder.append(fromDirectory == null ? "<" : "&lt;");
+					appendTypes(builder, arguments, ", ", fromDirectory);
+					builder.append(fromDirectory == null ? ">" : "&gt;");
+				}
+				break;
+			case ARRAY:
+				appendType(builder, ((ArrayType) type).getComponentType(), fromDirectory);
+				builder.append("[]");
+				break;
+			case TYPEVAR:
+				builder.append(((TypeVariable) type).asElement().getSimpleName());
+				break;
+			case WILDCARD:
+				final WildcardType wildcard = (WildcardType) type;
+				builder.append('?');
+				if (wildcard.getExtendsBound() != null) {
+					builder.append(" extends ");
+					appendType(builder, wildcard.getExtendsBound(), fromDirectory);
+				} else if (wildcard.getSuperBound() != null) {
+					builder.append(" super ");
+					appendType(builder, wildcard.getSuperBound(), fromDirectory);
+				}
+				break;
+			case INTERSECTION:
+				appendTypes(builder, ((IntersectionType) type).getBounds(), " & ", fromDirectory);
+				break;
+			case UNION:
+				appendTypes(builder, ((UnionType) type).getAlternatives(), " | ", fromDirectory);
+				break;
+			default:
+				builder.append(type);
+		}
+	}
+
+	/**
+	 * Renders the given types as Markdown to the given builder.
+	 *
+	 * @param builder Builder to render types to.
+	 * @param types Types to render.
+	 * @param separator Separator appended between types.
+	 * @param fromDirectory Directory of the rendering page, relative to the output directory.
+	 */
+	private void appendTypes(final StringBuilder builder, final List<? extends TypeMirror> types, final String separator, final String fromDirectory) {
+		for (int i = 0; i < types.size(); i++) {
+			if (i > 0) {
+				builder.append(separator);
+			}
+			appendType(builder, types.get(i), fromDirectory);
+		}
+	}
+
+	/**
+	 * Returns the name of the given type within its package, such as
+	 * <code>Outer.Inner</code> for nested types.
+	 *
+	 * @param typeElement Type to get name of.
+	 * @return Name of the type within its package.
+	 */
+	private String getNestedName(final TypeElement typeElement) {
+		final String qualifiedName = typeElement.getQualifiedName().toString();
+		final PackageElement packageElement = elements.getPackageOf(typeElement);
+		return packageElement.isUnnamed() ? qualifiedName : qualifiedName.substring(packageElement.getQualifiedName().length() + 1);
+	}
+
+	/**
+	 * Returns the directory of the page documenting the given element,
+	 * relative to the output directory.
+	 *
+	 * @param element Documented element.
+	 * @return Directory of the element page.
+	 */
+	public String getDirectory(final Element element) {
+		return ElementIndex.getPackageDirectory(elements.getPackageOf(element));
+	}
+
+	/**
+	 * Resolves the given path against the given directory.
+	 *
+	 * @param directory Directory to resolve against, may be empty.
+	 * @param path Path to resolve.
+	 * @return Resolved path.
+	 */
+	private static String resolve(final String directory, final String path) {
+		if (directory.isEmpty()) {
+			return path;
+		}
+		return directory.endsWith("/") ? directory + path : directory + "/" + path;
+	}
+
+	/**
+	 * Returns the given path relative to the given directory, both
+	 * being relative to the output directory.
+	 *
+	 * @param fromDirectory Directory to relativize from.
+	 * @param path Path to relativize.
+	 * @return Relative path.
+	 */
+	static String relativize(final String fromDirectory, final String path) {
+		final String [] from = fromDirectory.isEmpty() ? new String[0] : fromDirectory.split("/");
+		final String [] to = path.split("/");
+		int common = 0;
+		while (common < from.length && common < to.length - 1 && from[common].equals(to[common])) {
+			common++;
+		}
+		final StringBuilder builder = new StringBuilder();
+		for (int i = common; i < from.length; i++) {
+			builder.append("../");
+		}
+		for (int i = common; i < to.length; i++) {
+			builder.append(to[i]);
+			if (i < to.length - 1) {
+				builder.append('/');
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Root of an external documentation, either generated by the
+	 * standard doclet or by JavadocMark, for a package prefix.
+	 */
+	public static final class ExternalRoot {
+
+		/** Documented package, subpackages included. **/
+		private final String packagePrefix;
+
+		/** URL of the documentation root. **/
+		private final String url;
+
+		/** Extension of the documentation pages. **/
+		private final String extension;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param packagePrefix Documented package, subpackages included.
+		 * @param url URL of the documentation root.
+		 * @param markdown true for a JavadocMark root, false for a standard Javadoc root.
+		 */
+		public ExternalRoot(final String packagePrefix, final String url, final boolean markdown) {
+			this.packagePrefix = packagePrefix;
+			this.url = url;
+			this.extension = markdown ? PAGE_EXTENSION : ".html";
+		}
+
+		/**
+		 * Indicates if this root documents the given package.
+		 *
+		 * @param packageName Name of the package.
+		 * @return true if the package or one of its parents is the documented package, false otherwise.
+		 */
+		boolean documents(final String packageName) {
+			return packageName.equals(packagePrefix) || packageName.startsWith(packagePrefix + ".");
+		}
+
+		/**
+		 * Indicates if the URL of this root is absolute, that is has a
+		 * scheme or starts with a slash, rather than being relative to
+		 * the output directory.
+		 *
+		 * @return true if the URL is absolute, false otherwise.
+		 */
+		boolean isAbsolute() {
+			final int slash = url.indexOf('/');
+			final int scheme = url.indexOf(':');
+			return slash == 0 || scheme > 0 && (slash < 0 || scheme < slash);
+		}
+
+	}
+
+}
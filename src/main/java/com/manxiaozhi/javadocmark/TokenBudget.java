@@ -0,0 +1,89 @@
+package com.manxiaozhi.javadocmark;
+
+/**
+ * Token budget of the compact profile, per page and per run. Token
+ * counts are estimated from character counts, which is close enough
+ * for English text and Java signatures with common tokenizers. The
+ * budget is only used from the doclet thread, pages consuming it in
+ * generation order.
+ *
+ * @author wangzhi
+ */
+public final class TokenBudget {
+
+	/** Average number of characters per token. **/
+	public static final int CHARACTERS_PER_TOKEN = 4;
+
+	/** Maximum number of tokens of a page, 0 if unlimited. **/
+	private final long pageTokens;
+
+	/** Maximum number of tokens of the whole run, 0 if unlimited. **/
+	private final long runTokens;
+
+	/** Number of tokens used so far by the run. **/
+	private long usedTokens;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param pageTokens Maximum number of tokens of a page, 0 if unlimited.
+	 * @param runTokens Maximum number of tokens of the whole run, 0 if unlimited.
+	 */
+	public TokenBudget(final long pageTokens, final long runTokens) {
+		this.pageTokens = pageTokens;
+		this.runTokens = runTokens;
+	}
+
+	/**
+	 * Estimates the number of tokens of the given number of characters.
+	 *
+	 * @param characters Number of characters.
+	 * @return Estimated number of tokens.
+	 */
+	public static long estimate(final long characters) {
+		return (characters + CHARACTERS_PER_TOKEN - 1) / CHARACTERS_PER_TOKEN;
+	}
+
+	/**
+	 * Returns the number of tokens the next page may use, that is
+	 * the page budget bounded by what remains of the run budget.
+	 *
+	 * @return Maximum number of tokens of the next page, {@link Long#MAX_VALUE} if unlimited.
+	 */
+	public long getPageLimit() {
+		long limit = pageTokens > 0 ? pageTokens : Long.MAX_VALUE;
+		if (runTokens > 0) {
+			limit = Math.min(limit, Math.max(0, runTokens - usedTokens));
+		}
+		return limit;
+	}
+
+	/**
+	 * Records tokens used by a generated page.
+	 *
+	 * @param tokens Number of tokens used.
+	 */
+	public void consume(final long tokens) {
+		usedTokens += tokens;
+	}
+
+	/**
+	 * Indicates if the run has a budget, in which case pages depend
+	 * on the pages generated before them.
+	 *
+	 * @return true if the run is limited, false otherwise.
+	 */
+	public boolean isRunLimited() {
+		return runTokens > 0;
+	}
+
+	/**
+	 * Getter for the maximum number of tokens of a page.
+	 *
+	 * @return Maximum number of tokens of a page, 0 if unlimited.
+	 */
+	public long getPageTokens() {
+		return pageTokens;
+	}
+
+}
@@ -0,0 +1,362 @@
+package com.manxiaozhi.javadocmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.Name;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Supertypes, inherited members and overridden methods of the
+ * documented types. Each is computed once per type or method for the
+ * whole run, and the members of a type are computed from the memoized
+ * members of its direct supertypes, so that a deep hierarchy shared by
+ * many types, such as every type extending one abstract base class, is
+ * walked only once. As it accesses the compiler model, this hierarchy
+ * must only be used from the doclet thread.
+ *
+ * @author wangzhi
+ */
+public final class TypeHierarchy {
+
+	/** Element utilities of the environment. **/
+	private final Elements elements;
+
+	/** Type utilities of the environment. **/
+	private final Types types;
+
+	/** All supertypes, superclasses first then interfaces, by type. **/
+	private final Map<TypeElement, List<TypeElement>> supertypes;
+
+	/** Member methods, declared then inherited, by type. **/
+	private final Map<TypeElement, List<ExecutableElement>> methods;
+
+	/** Member fields, declared then inherited, by type. **/
+	private final Map<TypeElement, List<Element>> fields;
+
+	/** Overridden method, by overriding method, null values for methods overriding none. **/
+	private final Map<ExecutableElement, ExecutableElement> overridden;
+
+	/** Digest of the supertypes, by type. **/
+	private final Map<TypeElement, String> digests;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param elements Element utilities of the environment.
+	 * @param types Type utilities of the environment.
+	 */
+	public TypeHierarchy(final Elements elements, final Types types) {
+		this.elements = elements;
+		this.types = types;
+		this.supertypes = new HashMap<>();
+		this.methods = new HashMap<>();
+		this.fields = new HashMap<>();
+		this.overridden = new HashMap<>();
+		this.digests = new HashMap<>();
+	}
+
+	/**
+	 * Returns the direct supertypes of the given type: its superclass,
+	 * if any, then its interfaces.
+	 *
+	 * @param typeElement Type to get direct supertypes of.
+	 * @return Direct supertypes.
+	 */
+	private static List<TypeElement> getDirectSupertypes(final TypeElement typeElement) {
+		final List<TypeElement> directSupertypes = new ArrayList<>();
+		final TypeMirror superclass = typeElement.getSuperclass();
+		if (superclass.getKind() == TypeKind.DECLARED) {
+			directSupertypes.add((TypeElement) ((DeclaredType) superclass).asElement());
+		}
+		for (final TypeMirror superinterface : typeElement.getInterfaces()) {
+			if (superinterface.getKind() == TypeKind.DECLARED) {
+				directSupertypes.add((TypeElement) ((DeclaredType) superinterface).asElement());
+			}
+		}
+		return directSupertypes;
+	}
+
+	/**
+	 * Returns every supertype of the given type, each once: its
+	 * superclasses from the nearest to {@code java.lang.Object}, then
+	 * its interfaces, nearest first.
+	 *
+	 * @param typeElement Type to get supertypes of.
+	 * @return Supertypes, empty for {@code java.lang.Object}.
+	 */
+	public List<TypeElement> getSupertypes(final TypeElement typeElement) {
+		List<TypeElement> all = supertypes.get(typeElement);
+		if (all == null) {
+			final Set<TypeElement> superclasses = new LinkedHashSet<>();
+			final Set<TypeElement> interfaces = new LinkedHashSet<>();
+			for (final TypeElement directSupertype : getDirectSupertypes(typeElement)) {
+				(directSupertype.getKind().isInterface() ? interfaces : superclasses).add(directSupertype);
+			}
+			for (final TypeElement directSupertype : getDirectSupertypes(typeElement)) {
+				for (final TypeElement supertype : getSupertypes(directSupertype)) {
+					(supertype.getKind().isInterface() ? interfaces : superclasses).add(supertype);
+				}
+			}
+			all = new ArrayList<>(superclasses.size() + interfaces.size());
+			all.addAll(superclasses);
+			all.addAll(interfaces);
+			all = Collections.unmodifiableList(all);
+			supertypes.put(typeElement, all);
+		}
+		return all;
+	}
+
+	/**
+	 * Returns every interface the given type implements or, for an
+	 * interface, extends, directly or not.
+	 *
+	 * @param typeElement Type to get interfaces of.
+	 * @return Interfaces, nearest first.
+	 */
+	public List<TypeElement> getInterfaces(final TypeElement typeElement) {
+		final List<TypeElement> interfaces = new ArrayList<>();
+		for (final TypeElement supertype : getSupertypes(typeElement)) {
+			if (supertype.getKind().isInterface()) {
+				interfaces.add(supertype);
+			}
+		}
+		return interfaces;
+	}
+
+	/**
+	 * Returns the methods the given type inherits from its supertypes
+	 * without overriding them, grouped by declaring type.
+	 *
+	 * @param typeElement Type to get inherited methods of.
+	 * @return Inherited methods, by declaring type in supertype order.
+	 */
+	public Map<TypeElement, List<ExecutableElement>> getInheritedMethods(final TypeElement typeElement) {
+		return groupInherited(typeElement, getMethods(typeElement));
+	}
+
+	/**
+	 * Returns the fields the given type inherits from its supertypes
+	 * without hiding them, grouped by declaring type.
+	 *
+	 * @param typeElement Type to get inherited fields of.
+	 * @return Inherited fields, by declaring type in supertype order.
+	 */
+	public Map<TypeElement, List<Element>> getInheritedFields(final TypeElement typeElement) {
+		return groupInherited(typeElement, getFields(typeElement));
+	}
+
+	/**
+	 * Groups the given members which are not declared by the given type
+	 * by declaring type, in supertype order.
+	 *
+	 * @param <E> Type of the members.
+	 * @param typeElement Type members are grouped for.
+	 * @param members Member of the type, declared and inherited.
+	 * @return Inherited members, by declaring type.
+	 */
+	private <E extends Element> Map<TypeElement, List<E>> groupInherited(final TypeElement typeElement, final List<E> members) {
+		final Map<TypeElement, List<E>> inherited = new LinkedHashMap<>();
+		for (final TypeElement supertype : getSupertypes(typeElement)) {
+			inherited.put(supertype, new ArrayList<>());
+		}
+		for (final E member : members) {
+			final List<E> declared = inherited.get(member.getEnclosingElement());
+			if (declared != null) {
+				declared.add(member);
+			}
+		}
+		inherited.values().removeIf(List::isEmpty);
+		return inherited;
+	}
+
+	/**
+	 * Returns the method the given method overrides or implements: the
+	 * first one found in the supertypes of its declaring type, in
+	 * supertype order.
+	 *
+	 * @param method Method to get overridden method of.
+	 * @return Overridden method, null if the method overrides none.
+	 */
+	public ExecutableElement getOverridden(final ExecutableElement method) {
+		if (overridden.containsKey(method)) {
+			return overridden.get(method);
+		}
+		ExecutableElement result = null;
+		if (method.getKind() == ElementKind.METHOD && !method.getModifiers().contains(Modifier.STATIC)
+				&& method.getEnclosingElement() instanceof TypeElement) {
+			final TypeElement typeElement = (TypeElement) method.getEnclosingElement();
+			for (final TypeElement directSupertype : getDirectSupertypes(typeElement)) {
+				for (final ExecutableElement candidate : getMethods(directSupertype)) {
+					if (candidate.getSimpleName().equals(method.getSimpleName()) && elements.overrides(method, candidate, typeElement)) {
+						result = candidate;
+						break;
+					}
+				}
+				if (result != null) {
+					break;
+				}
+			}
+		}
+		overridden.put(method, result);
+		return result;
+	}
+
+	/**
+	 * Returns a digest of the supertypes of the given type and of their
+	 * members, which changes whenever a member the type inherits, or
+	 * the comment of one of them, changes.
+	 *
+	 * @param typeElement Type to get supertypes digest of.
+	 * @return Digest of the supertypes.
+	 */
+	public String getDigest(final TypeElement typeElement) {
+		String digest = digests.get(typeElement);
+		if (digest == null) {
+			final PageManifest.Hasher hasher = new PageManifest.Hasher();
+			for (final TypeElement directSupertype : getDirectSupertypes(typeElement)) {
+				hasher.add(directSupertype.getQualifiedName()).add(getDigest(directSupertype));
+				for (final Element member : directSupertype.getEnclosedElements()) {
+					hasher.add(member.getKind())
+						.add(member.getSimpleName())
+						.add(member.getModifiers())
+						.add(member.asType())
+						.add(elements.getDocComment(member));
+				}
+			}
+			digest = hasher.digest();
+			digests.put(typeElement, digest);
+		}
+		return digest;
+	}
+
+	/**
+	 * Returns the methods which are members of the given type: its
+	 * declared methods, then the methods of its direct supertypes it
+	 * inherits without overriding them.
+	 *
+	 * @param typeElement Type to get member methods of.
+	 * @return Member methods.
+	 */
+	private List<ExecutableElement> getMethods(final TypeElement typeElement) {
+		List<ExecutableElement> members = methods.get(typeElement);
+		if (members == null) {
+			members = new ArrayList<>();
+			final Map<Name, List<ExecutableElement>> byName = new HashMap<>();
+			for (final Element element : typeElement.getEnclosedElements()) {
+				if (element.getKind() == ElementKind.METHOD) {
+					members.add((ExecutableElement) element);
+					byName.computeIfAbsent(element.getSimpleName(), key -> new ArrayList<>()).add((ExecutableElement) element);
+				}
+			}
+			final DeclaredType declaredType = (DeclaredType) typeElement.asType();
+			for (final TypeElement directSupertype : getDirectSupertypes(typeElement)) {
+				for (final ExecutableElement method : getMethods(directSupertype)) {
+					if (!isInherited(method, typeElement)
+							|| (method.getModifiers().contains(Modifier.STATIC) && method.getEnclosingElement().getKind().isInterface())) {
+						continue;
+					}
+					final List<ExecutableElement> sameName = byName.computeIfAbsent(method.getSimpleName(), key -> new ArrayList<>());
+					if (!isOverridden(method, sameName, declaredType)) {
+						members.add(method);
+						sameName.add(method);
+					}
+				}
+			}
+			methods.put(typeElement, members);
+		}
+		return members;
+	}
+
+	/**
+	 * Indicates if the given method is overridden or hidden by one of
+	 * the given methods, as members of the given type.
+	 *
+	 * @param method Method to check.
+	 * @param candidates Methods of the same name which may override it.
+	 * @param declaredType Type the methods are members of.
+	 * @return true if one of the candidates has a subsignature of the method, false otherwise.
+	 */
+	private boolean isOverridden(final ExecutableElement method, final List<ExecutableElement> candidates, final DeclaredType declaredType) {
+		if (candidates.isEmpty()) {
+			return false;
+		}
+		final ExecutableType methodType = (ExecutableType) types.asMemberOf(declaredType, method);
+		for (final ExecutableElement candidate : candidates) {
+			if (types.isSubsignature((ExecutableType) types.asMemberOf(declaredType, candidate), methodType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the fields which are members of the given type: its
+	 * declared fields, then the fields of its direct supertypes it
+	 * inherits without hiding them.
+	 *
+	 * @param typeElement Type to get member fields of.
+	 * @return Member fields.
+	 */
+	private List<Element> getFields(final TypeElement typeElement) {
+		List<Element> members = fields.get(typeElement);
+		if (members == null) {
+			members = new ArrayList<>();
+			final Set<Name> declaredNames = new HashSet<>();
+			for (final Element element : typeElement.getEnclosedElements()) {
+				if (element.getKind() == ElementKind.FIELD || element.getKind() == ElementKind.ENUM_CONSTANT) {
+					members.add(element);
+					declaredNames.add(element.getSimpleName());
+				}
+			}
+			for (final TypeElement directSupertype : getDirectSupertypes(typeElement)) {
+				for (final Element field : getFields(directSupertype)) {
+					// A field inherited through several interfaces is still a single member.
+					if (isInherited(field, typeElement) && !declaredNames.contains(field.getSimpleName()) && !members.contains(field)) {
+						members.add(field);
+					}
+				}
+			}
+			fields.put(typeElement, members);
+		}
+		return members;
+	}
+
+	/**
+	 * Indicates if the given member of a supertype is accessible from,
+	 * and therefore inherited by, the given type.
+	 *
+	 * @param member Member of a supertype.
+	 * @param typeElement Inheriting type.
+	 * @return true if the member is inherited, false otherwise.
+	 */
+	private boolean isInherited(final Element member, final TypeElement typeElement) {
+		final Set<Modifier> modifiers = member.getModifiers();
+		if (modifiers.contains(Modifier.PRIVATE)) {
+			return false;
+		}
+		if (modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.PROTECTED)
+				|| member.getEnclosingElement().getKind().isInterface()) {
+			return true;
+		}
+		return elements.getPackageOf(member).equals(elements.getPackageOf(typeElement));
+	}
+
+}
@@ -0,0 +1,309 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writer that encodes characters to UTF-8 into a reusable direct
+ * buffer and flushes it to a file channel whenever it is full. A
+ * single instance can write several files one after the other,
+ * the buffer and the encoder being reused across files. Instances
+ * are not thread safe.
+ *
+ * @author wangzhi
+ */
+public final class Utf8ChannelWriter implements Closeable {
+
+	/** Default size of the byte buffer. **/
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/** Reusable buffer encoded bytes are written into. **/
+	private final ByteBuffer buffer;
+
+	/** Reusable UTF-8 encoder. **/
+	private final CharsetEncoder encoder;
+
+	/** Channel of the file being written, null if no file is open. **/
+	private FileChannel channel;
+
+	/** High surrogate ending the previous write, waiting for its low surrogate. **/
+	private final CharBuffer pending;
+
+	/** Number of bytes written to the current, or last, file. **/
+	private long bytesWritten;
+
+	/**
+	 * Default constructor, using a buffer of {@link #DEFAULT_BUFFER_SIZE} bytes.
+	 */
+	public Utf8ChannelWriter() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a writer using a buffer of the given size.
+	 *
+	 * @param bufferSize Size of the byte buffer.
+	 */
+	public Utf8ChannelWriter(final int bufferSize) {
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.pending = CharBuffer.allocate(2);
+	}
+
+	/**
+	 * Opens the given file for writing, truncating it if it already
+	 * exists. The previously opened file, if any, is closed first.
+	 *
+	 * @param path Path of the file to write.
+	 * @throws IOException If any error occurs while opening the file.
+	 */
+	public void open(final Path path) throws IOException {
+		close();
+		channel = FileChannel.open(path,
+			StandardOpenOption.CREATE,
+			StandardOpenOption.TRUNCATE_EXISTING,
+			StandardOpenOption.WRITE);
+		encoder.reset();
+		buffer.clear();
+		pending.clear();
+		bytesWritten = 0;
+	}
+
+	/**
+	 * Returns the number of bytes written to the current file, or
+	 * to the last one once it has been closed.
+	 *
+	 * @return Number of bytes written.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Returns the position in the current file at which the next
+	 * character will be written, that is the number of bytes encoded
+	 * so far, including those not flushed yet.
+	 *
+	 * @return Position in the current file, in bytes.
+	 */
+	public long getPosition() {
+		return bytesWritten + buffer.position();
+	}
+
+	/**
+	 * Appends the content of the given file to the current file.
+	 * Previously written characters are flushed first, so characters
+	 * written before must end on a complete code point.
+	 *
+	 * @param path Path of the file to append.
+	 * @throws IOException If any error occurs while reading the file or writing.
+	 */
+	public void append(final Path path) throws IOException {
+		drain();
+		try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = source.size();
+			long position = 0;
+			while (position < size) {
+				position += source.transferTo(position, size - position, channel);
+			}
+			bytesWritten += size;
+		}
+	}
+
+	/**
+	 * Encodes and writes the given characters. A surrogate pair may be
+	 * split across two consecutive calls.
+	 *
+	 * @param characters Characters to write.
+	 * @throws IOException If any error occurs while writing.
+	 */
+	public void write(final CharSequence characters) throws IOException {
+		int start = 0;
+		if (pending.position() > 0 && characters.length() > 0) {
+			pending.put(characters.charAt(0));
+			pending.flip();
+			encode(pending, false);
+			// A remaining character is a new high surrogate, encoded again below.
+			start = 1 - pending.remaining();
+			pending.clear();
+		}
+		final CharBuffer input = CharBuffer.wrap(characters, start, characters.length());
+		encode(input, false);
+		if (input.hasRemaining()) {
+			pending.put(input.get());
+		}
+	}
+
+	/**
+	 * Indicates if the given file holds exactly the UTF-8 encoding of
+	 * the given characters. Sizes are compared first, then encoded
+	 * bytes are compared with the memory mapped file one buffer at a
+	 * time, without writing anything. The current file, if any, is
+	 * closed first.
+	 *
+	 * @param characters Characters to compare.
+	 * @param path Path of the file to compare with.
+	 * @return true if the file content is identical, false otherwise or if the file does not exist.
+	 * @throws IOException If any error occurs while reading the file.
+	 */
+	public boolean contentEquals(final CharSequence characters, final Path path) throws IOException {
+		close();
+		final FileChannel file;
+		try {
+			file = FileChannel.open(path, StandardOpenOption.READ);
+		} catch (final NoSuchFileException e) {
+			return false;
+		}
+		try {
+			final long size = file.size();
+			if (size != encodedLength(characters)) {
+				return false;
+			}
+			final MappedByteBuffer mapped = file.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			encoder.reset();
+			buffer.clear();
+			final CharBuffer input = CharBuffer.wrap(characters);
+			CoderResult result;
+			do {
+				result = encoder.encode(input, buffer, true);
+				if (result.isError()) {
+					result.throwException();
+				}
+				if (!compare(mapped)) {
+					return false;
+				}
+			} while (result.isOverflow());
+			do {
+				result = encoder.flush(buffer);
+				if (!compare(mapped)) {
+					return false;
+				}
+			} while (result.isOverflow());
+			return !mapped.hasRemaining();
+		} finally {
+			buffer.clear();
+			file.close();
+		}
+	}
+
+	/**
+	 * Compares the bytes held in the buffer with the next bytes of
+	 * the given mapped file, then clears the buffer.
+	 *
+	 * @param mapped Mapped file, positioned after the bytes already compared.
+	 * @return true if the bytes are identical, false otherwise.
+	 */
+	private boolean compare(final MappedByteBuffer mapped) {
+		buffer.flip();
+		final int length = buffer.remaining();
+		if (length > mapped.remaining()
+				|| buffer.mismatch(mapped.slice(mapped.position(), length)) >= 0) {
+			return false;
+		}
+		mapped.position(mapped.position() + length);
+		buffer.clear();
+		return true;
+	}
+
+	/**
+	 * Returns the number of bytes of the UTF-8 encoding of the given
+	 * characters, unpaired surrogates being replaced by a single byte
+	 * as done when writing.
+	 *
+	 * @param characters Characters to measure.
+	 * @return Encoded length in bytes.
+	 */
+	public static long encodedLength(final CharSequence characters) {
+		long length = 0;
+		final int count = characters.length();
+		for (int i = 0; i < count; i++) {
+			final char c = characters.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(characters.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				length++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Encodes the given input into the buffer, draining it to the
+	 * channel whenever it is full.
+	 *
+	 * @param input Characters to encode.
+	 * @param endOfInput Indicates if no more characters will be written.
+	 * @throws IOException If any error occurs while writing.
+	 */
+	private void encode(final CharBuffer input, final boolean endOfInput) throws IOException {
+		while (true) {
+			final CoderResult result = encoder.encode(input, buffer, endOfInput);
+			if (result.isOverflow()) {
+				drain();
+			} else if (result.isError()) {
+				result.throwException();
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes the bytes held in the buffer to the channel.
+	 *
+	 * @throws IOException If any error occurs while writing.
+	 */
+	private void drain() throws IOException {
+		buffer.flip();
+		bytesWritten += buffer.remaining();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Flushes remaining bytes and closes the current file, if any.
+	 *
+	 * @throws IOException If any error occurs while writing or closing the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel == null) {
+			return;
+		}
+		try {
+			pending.flip();
+			encode(pending, true);
+			pending.clear();
+			while (encoder.flush(buffer).isOverflow()) {
+				drain();
+			}
+			drain();
+		} finally {
+			channel.close();
+			channel = null;
+		}
+	}
+
+}
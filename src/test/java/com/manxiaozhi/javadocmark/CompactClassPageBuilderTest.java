@@ -0,0 +1,50 @@
+package com.manxiaozhi.javadocmark;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of the pages of the compact profile.
+ *
+ * @author wangzhi
+ */
+class CompactClassPageBuilderTest {
+
+	/** Source root of the test sources. **/
+	@TempDir
+	Path sourceRoot;
+
+	/** Output directory of the pages. **/
+	@TempDir
+	Path outputDirectory;
+
+	/**
+	 * The deprecation mark of a type without summary is followed by a
+	 * line break, so that the next heading starts its own line.
+	 *
+	 * @throws IOException If any error occurs while writing sources or reading pages.
+	 */
+	@Test
+	void breaksLineAfterDeprecationWithoutSummary() throws IOException {
+		TestProjects.writeSource(sourceRoot, "Legacy",
+			"/** @deprecated Use something else. */",
+			"@Deprecated",
+			"public class Legacy {",
+			"	/** The size. */",
+			"	public int size;",
+			"}");
+		try (JavadocMarkTool tool = new JavadocMarkTool()) {
+			assertTrue(tool.run(TestProjects.arguments(sourceRoot, outputDirectory, "-profile", "compact")));
+		}
+		final String page = TestProjects.readPage(outputDirectory, "Legacy");
+		assertTrue(page.contains("*Deprecated.* \n## Fields\n"), page);
+		assertFalse(page.contains("*Deprecated.* ## Fields"), page);
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.manxiaozhi.javadocmark;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of incremental generation: a page is regenerated whenever an
+ * input it shows changes, even when its comments do not.
+ *
+ * @author wangzhi
+ */
+class IncrementalGenerationTest {
+
+	/** Source root of the test sources. **/
+	@TempDir
+	Path sourceRoot;
+
+	/** Output directory of the pages. **/
+	@TempDir
+	Path outputDirectory;
+
+	/** Tool the documentation is generated with. **/
+	private JavadocMarkTool tool;
+
+	/**
+	 * Creates the tool.
+	 */
+	@BeforeEach
+	void createTool() {
+		tool = new JavadocMarkTool();
+	}
+
+	/**
+	 * Closes the tool.
+	 *
+	 * @throws IOException If any error occurs while closing the tool.
+	 */
+	@AfterEach
+	void closeTool() throws IOException {
+		tool.close();
+	}
+
+	/**
+	 * Adding a throws clause to a method regenerates the page of its type.
+	 *
+	 * @throws IOException If any error occurs while writing sources or reading pages.
+	 */
+	@Test
+	void regeneratesPageWhenThrowsClauseChanges() throws IOException {
+		writeLoader("");
+		assertTrue(tool.run(TestProjects.arguments(sourceRoot, outputDirectory, "-incremental")));
+		assertFalse(TestProjects.readPage(outputDirectory, "Loader").contains("IOException"));
+
+		writeLoader(" throws java.io.IOException");
+		assertTrue(tool.run(TestProjects.arguments(sourceRoot, outputDirectory, "-incremental")));
+		assertTrue(TestProjects.readPage(outputDirectory, "Loader").contains("IOException"));
+	}
+
+	/**
+	 * Changing the modifiers of a method regenerates the compact page of its type.
+	 *
+	 * @throws IOException If any error occurs while writing sources or reading pages.
+	 */
+	@Test
+	void regeneratesCompactPageWhenModifiersChange() throws IOException {
+		TestProjects.writeSource(sourceRoot, "Task",
+			"/** A task. */",
+			"public class Task {",
+			"	/** Runs the task. */",
+			"	public void run() { }",
+			"}");
+		assertTrue(tool.run(TestProjects.arguments(sourceRoot, outputDirectory, "-incremental", "-profile", "compact")));
+		assertFalse(TestProjects.readPage(outputDirectory, "Task").contains("synchronized"));
+
+		TestProjects.writeSource(sourceRoot, "Task",
+			"/** A task. */",
+			"public class Task {",
+			"	/** Runs the task. */",
+			"	public final synchronized void run() { }",
+			"}");
+		assertTrue(tool.run(TestProjects.arguments(sourceRoot, outputDirectory, "-incremental", "-profile", "compact")));
+		assertTrue(TestProjects.readPage(outputDirectory, "Task").contains("final synchronized void run()"));
+	}
+
+	/**
+	 * Writes a loader type whose documented method has the given throws clause.
+	 *
+	 * @param throwsClause Throws clause of the method, empty if none.
+	 * @throws IOException If any error occurs while writing the source.
+	 */
+	private void writeLoader(final String throwsClause) throws IOException {
+		TestProjects.writeSource(sourceRoot, "Loader",
+			"/** A loader. */",
+			"public class Loader {",
+			"	/** Loads the content. */",
+			"	public void load()" + throwsClause + " { }",
+			"}");
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.manxiaozhi.javadocmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of the in process runs of the tool.
+ *
+ * @author wangzhi
+ */
+class JavadocMarkToolTest {
+
+	/** Working directory of the test. **/
+	@TempDir
+	Path directory;
+
+	/**
+	 * A module without class path does not see the class path of the
+	 * module documented before it in the same batch.
+	 *
+	 * @throws IOException If any error occurs while writing sources or the batch file.
+	 */
+	@Test
+	void doesNotLeakClassPathBetweenBatchModules() throws IOException {
+		final Path library = TestProjects.write(directory.resolve("lib/q/Q.java"), "package q;", "public class Q { }");
+		final Path classes = Files.createDirectories(directory.resolve("classes"));
+		assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.toString(), library.toString()));
+
+		final Path m1 = directory.resolve("m1");
+		final Path m2 = directory.resolve("m2");
+		TestProjects.writeSource(m1, "First", "/** First. */", "public class First {", "	/** The q. */", "	public q.Q q;", "}");
+		TestProjects.writeSource(m2, "Second", "/** Second. */", "public class Second {", "	/** The q. */", "	public q.Q q;", "}");
+		final Path out = directory.resolve("out");
+		final Path batchFile = TestProjects.write(directory.resolve("modules.txt"),
+			out.resolve("m1") + " " + m1 + " " + classes,
+			out.resolve("m2") + " " + m2);
+
+		try (JavadocMarkTool tool = new JavadocMarkTool()) {
+			assertFalse(tool.runBatch(batchFile, List.of("-quiet")));
+		}
+		assertTrue(Files.exists(out.resolve("m1").resolve(TestProjects.PACKAGE).resolve("First" + SymbolTable.PAGE_EXTENSION)));
+		assertFalse(Files.exists(out.resolve("m2").resolve(TestProjects.PACKAGE).resolve("Second" + SymbolTable.PAGE_EXTENSION)));
+	}
+
+	/**
+	 * Modules of a batch each documented with their own class path all succeed.
+	 *
+	 * @throws IOException If any error occurs while writing sources or the batch file.
+	 */
+	@Test
+	void documentsEveryBatchModule() throws IOException {
+		final Path m1 = directory.resolve("m1");
+		final Path m2 = directory.resolve("m2");
+		TestProjects.writeSource(m1, "First", "/** First. */", "public class First { }");
+		TestProjects.writeSource(m2, "Second", "/** Second. */", "public class Second { }");
+		final Path out = directory.resolve("out");
+		final Path batchFile = TestProjects.write(directory.resolve("modules.txt"),
+			"# Two modules",
+			out.resolve("m1") + " " + m1,
+			out.resolve("m2") + " " + m2);
+
+		try (JavadocMarkTool tool = new JavadocMarkTool()) {
+			assertTrue(tool.runBatch(batchFile, List.of("-quiet")));
+		}
+		assertTrue(Files.exists(out.resolve("m1").resolve(TestProjects.PACKAGE).resolve("First" + SymbolTable.PAGE_EXTENSION)));
+		assertTrue(Files.exists(out.resolve("m2").resolve(TestProjects.PACKAGE).resolve("Second" + SymbolTable.PAGE_EXTENSION)));
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.manxiaozhi.javadocmark;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of the refreshes of the watch mode.
+ *
+ * @author wangzhi
+ */
+class JavadocMarkWatcherTest {
+
+	/** Source root of the test sources. **/
+	@TempDir
+	Path sourceRoot;
+
+	/** Output directory of the pages. **/
+	@TempDir
+	Path outputDirectory;
+
+	/**
+	 * A refresh after an edit of the signature of a method, and not of
+	 * its comment, updates the page of its type.
+	 *
+	 * @throws IOException If any error occurs while writing sources or reading pages.
+	 */
+	@Test
+	void refreshesPageWhenOnlySignatureChanges() throws IOException {
+		writeParser("public String parse(String text)");
+		try (JavadocMarkTool tool = new JavadocMarkTool()) {
+			final JavadocMarkWatcher watcher = new JavadocMarkWatcher(tool, TestProjects.arguments(sourceRoot, outputDirectory));
+			assertTrue(watcher.generate());
+			assertFalse(TestProjects.readPage(outputDirectory, "Parser").contains("ParseException"));
+
+			writeParser("public final String parse(String text) throws java.text.ParseException");
+			assertTrue(watcher.generate());
+			assertTrue(TestProjects.readPage(outputDirectory, "Parser").contains("ParseException"));
+		}
+	}
+
+	/**
+	 * Writes a parser type whose documented method has the given declaration.
+	 *
+	 * @param declaration Declaration of the method, without its body.
+	 * @throws IOException If any error occurs while writing the source.
+	 */
+	private void writeParser(final String declaration) throws IOException {
+		TestProjects.writeSource(sourceRoot, "Parser",
+			"/** A parser. */",
+			"public class Parser {",
+			"	/**",
+			"	 * Parses the given text.",
+			"	 * @param text Text to parse.",
+			"	 * @return Parsed text.",
+			"	 */",
+			"	" + declaration + " { return text; }",
+			"}");
+	}
+
+}
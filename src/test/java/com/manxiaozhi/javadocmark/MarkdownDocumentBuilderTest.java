@@ -0,0 +1,60 @@
+package com.manxiaozhi.javadocmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the HTML filter of {@link MarkdownDocumentBuilder#text(String)}.
+ *
+ * @author wangzhi
+ */
+class MarkdownDocumentBuilderTest {
+
+	/**
+	 * Paragraph tags with attributes are removed.
+	 */
+	@Test
+	void removesParagraphTagsWithAttributes() {
+		assertEquals("First.\nSecond.", filter("First.\n<p class=\"note\">Second.</p>"));
+		assertEquals("First.Second.", filter("First.<p id='x'/>Second."));
+	}
+
+	/**
+	 * Paragraph tags are removed whatever their case.
+	 */
+	@Test
+	void removesUpperCaseParagraphTags() {
+		assertEquals("First.\nSecond.", filter("First.\n<P>Second.</P>"));
+		assertEquals("First.\nSecond.", filter("First.\n<P ALIGN=\"left\">Second.</P >"));
+	}
+
+	/**
+	 * Other tags starting with a p are left untouched.
+	 */
+	@Test
+	void keepsOtherTagsStartingWithP() {
+		assertEquals("<pre>code</pre> **bold**", filter("<pre>code</pre> <b>bold</b>"));
+	}
+
+	/**
+	 * Code tags become code spans with their entities decoded.
+	 */
+	@Test
+	void decodesEntitiesOfCodeTags() {
+		assertEquals("`Map<K,V>`", filter("<code>Map&lt;K,V&gt;</code>"));
+	}
+
+	/**
+	 * Filters the given text through a document builder.
+	 *
+	 * @param text Text to filter.
+	 * @return Filtered text.
+	 */
+	private static String filter(final String text) {
+		final MarkdownDocumentBuilder builder = new MarkdownDocumentBuilder();
+		builder.text(text);
+		return builder.build();
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.manxiaozhi.javadocmark;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of the signatures of the API index, which leave out the
+ * modifiers implied by the declarations.
+ *
+ * @author wangzhi
+ */
+class SignaturesTest {
+
+	/** Source root of the test sources. **/
+	@TempDir
+	Path sourceRoot;
+
+	/** Output directory of the pages. **/
+	@TempDir
+	Path outputDirectory;
+
+	/**
+	 * Interfaces and their members have no implied modifier.
+	 *
+	 * @throws IOException If any error occurs while writing sources or reading the index.
+	 */
+	@Test
+	void leavesOutImpliedInterfaceModifiers() throws IOException {
+		TestProjects.writeSource(sourceRoot, "Shape",
+			"/** A shape. */",
+			"public interface Shape {",
+			"	/** The sides. */",
+			"	int SIDES = 4;",
+			"	/** @return the area */",
+			"	double area();",
+			"}");
+		final String index = generateIndex();
+		assertTrue(index.contains("\"signature\":\"public interface Shape\""), index);
+		assertTrue(index.contains("\"signature\":\"int SIDES\""), index);
+		assertTrue(index.contains("\"signature\":\"double area()\""), index);
+	}
+
+	/**
+	 * Enums and their constants have no implied modifier.
+	 *
+	 * @throws IOException If any error occurs while writing sources or reading the index.
+	 */
+	@Test
+	void leavesOutImpliedEnumModifiers() throws IOException {
+		TestProjects.writeSource(sourceRoot, "Color",
+			"/** A color. */",
+			"public enum Color {",
+			"	/** Red. */",
+			"	RED",
+			"}");
+		final String index = generateIndex();
+		assertTrue(index.contains("\"signature\":\"public enum Color\""), index);
+		assertTrue(index.contains("\"signature\":\"Color RED\""), index);
+	}
+
+	/**
+	 * Generates the API index of the test sources.
+	 *
+	 * @return Content of the API index.
+	 * @throws IOException If any error occurs while reading the index.
+	 */
+	private String generateIndex() throws IOException {
+		try (JavadocMarkTool tool = new JavadocMarkTool()) {
+			assertTrue(tool.run(TestProjects.arguments(sourceRoot, outputDirectory, "-apiindex")));
+		}
+		return Files.readString(outputDirectory.resolve("api-index.ndjson"));
+	}
+
+}
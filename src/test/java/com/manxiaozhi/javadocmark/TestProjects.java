@@ -0,0 +1,86 @@
+package com.manxiaozhi.javadocmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Helpers of the tests generating documentation for small source
+ * trees written to a temporary directory.
+ *
+ * @author wangzhi
+ */
+final class TestProjects {
+
+	/** Package of the test sources. **/
+	static final String PACKAGE = "sample";
+
+	/**
+	 * Private constructor for avoiding instantiation.
+	 */
+	private TestProjects() {
+		// Do nothing.
+	}
+
+	/**
+	 * Writes the given lines to the given file, creating its parent
+	 * directories.
+	 *
+	 * @param file File to write.
+	 * @param lines Lines of the file.
+	 * @return Written file.
+	 * @throws IOException If any error occurs while writing the file.
+	 */
+	static Path write(final Path file, final String ... lines) throws IOException {
+		Files.createDirectories(file.getParent());
+		return Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the source file of the given type of the test package.
+	 *
+	 * @param sourceRoot Source root to write to.
+	 * @param typeName Simple name of the type.
+	 * @param lines Lines of the source, without the package declaration.
+	 * @return Written source file.
+	 * @throws IOException If any error occurs while writing the file.
+	 */
+	static Path writeSource(final Path sourceRoot, final String typeName, final String ... lines) throws IOException {
+		final List<String> source = new ArrayList<>();
+		source.add("package " + PACKAGE + ";");
+		source.addAll(Arrays.asList(lines));
+		return write(sourceRoot.resolve(PACKAGE).resolve(typeName + ".java"), source.toArray(new String[0]));
+	}
+
+	/**
+	 * Returns the arguments documenting the test package of the given
+	 * source root to the given output directory.
+	 *
+	 * @param sourceRoot Source root to document.
+	 * @param outputDirectory Output directory of the pages.
+	 * @param options Additional JavadocMark options.
+	 * @return Javadoc arguments.
+	 */
+	static List<String> arguments(final Path sourceRoot, final Path outputDirectory, final String ... options) {
+		final List<String> arguments = new ArrayList<>(Arrays.asList(options));
+		arguments.addAll(List.of("-quiet", "-d", outputDirectory.toString(), "-sourcepath", sourceRoot.toString(), "-subpackages", PACKAGE));
+		return arguments;
+	}
+
+	/**
+	 * Reads the page of the given type of the test package.
+	 *
+	 * @param outputDirectory Output directory of the pages.
+	 * @param typeName Simple name of the type.
+	 * @return Page content.
+	 * @throws IOException If any error occurs while reading the page.
+	 */
+	static String readPage(final Path outputDirectory, final String typeName) throws IOException {
+		return Files.readString(outputDirectory.resolve(PACKAGE).resolve(typeName + SymbolTable.PAGE_EXTENSION));
+	}
+
+}